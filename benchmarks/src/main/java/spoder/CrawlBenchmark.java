@@ -0,0 +1,157 @@
+package spoder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * End-to-end benchmark that crawls a {@link SyntheticSite} with the full pipeline of a normal run and reports the
+ * throughput, the latency observed by the server and the peak heap usage as JSON.
+ * <p>
+ * Usage: {@code CrawlBenchmark [--fan-out=N] [--depth=N] [--page-size=BYTES] [--latency=MILLIS] [--error-rate=P]
+ * [--report=FILE] [-- spoder arguments]}. The url and --recursive are added to the spoder arguments automatically.
+ */
+public class CrawlBenchmark {
+
+    private int fanOut = 10;
+    private int depth = 3;
+    private int pageSize = 16 * 1024;
+    private int latencyMillis = 10;
+    private double errorRate = 0.0;
+    private Path report;
+    private final List<String> spoderArguments = new ArrayList<>();
+
+
+    public static void main(String[] args) throws Exception {
+        CrawlBenchmark benchmark = new CrawlBenchmark();
+        benchmark.parseArguments(args);
+
+        String json = benchmark.run();
+
+        System.out.println(json);
+        if (benchmark.report != null) {
+            Files.writeString(benchmark.report, json + "\n", StandardCharsets.UTF_8);
+        }
+    }
+
+
+    /**
+     * Starts the site, crawls it once and builds the report.
+     *
+     * @return report as JSON
+     * @throws Exception if the site cannot be started, the arguments are invalid or the crawl is interrupted
+     */
+    private String run() throws Exception {
+        try (SyntheticSite site = new SyntheticSite(fanOut, depth, pageSize, latencyMillis, errorRate)) {
+            site.start();
+
+            List<String> args = new ArrayList<>();
+            args.add("--url=" + site.getRootUrl());
+            args.add("--recursive");
+            args.addAll(spoderArguments);
+
+            CommandLineArguments commandLineArguments = Main.parseArguments(
+                    Main.generateAcceptedCommandLineOptions(), args.toArray(new String[0]));
+
+            List<MemoryPoolMXBean> heapPools = heapPools();
+            System.gc();
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+            long start = System.nanoTime();
+            Crawl crawl = new Crawl(commandLineArguments);
+            crawl.start();
+            crawl.awaitTermination();
+            long duration = System.nanoTime() - start;
+
+            long peakHeap = 0;
+            for (MemoryPoolMXBean pool : heapPools) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+
+            List<Long> latencies = site.getLatencies();
+            Collections.sort(latencies);
+            int pages = latencies.size() - site.getErrors();
+
+            return "{"
+                    + "\"config\":{"
+                    + "\"fanOut\":" + fanOut
+                    + ",\"depth\":" + depth
+                    + ",\"pageSize\":" + pageSize
+                    + ",\"latencyMillis\":" + latencyMillis
+                    + ",\"errorRate\":" + format(errorRate)
+                    + ",\"spoderArguments\":\"" + String.join(" ", spoderArguments).replace("\\", "\\\\").replace("\"", "\\\"") + "\""
+                    + "},"
+                    + "\"sitePages\":" + site.getPageCount()
+                    + ",\"requests\":" + latencies.size()
+                    + ",\"pages\":" + pages
+                    + ",\"errors\":" + site.getErrors()
+                    + ",\"durationMillis\":" + format(duration / 1e6)
+                    + ",\"pagesPerSecond\":" + format(pages / (duration / 1e9))
+                    + ",\"latencyMillis\":{"
+                    + "\"p50\":" + format(percentile(latencies, 0.50) / 1e6)
+                    + ",\"p99\":" + format(percentile(latencies, 0.99) / 1e6)
+                    + ",\"max\":" + format(percentile(latencies, 1.0) / 1e6)
+                    + "},"
+                    + "\"peakHeapBytes\":" + peakHeap
+                    + ",\"linksFound\":" + crawl.getParser().getLinkDeduplicator().size()
+                    + ",\"dedupMemoryBytes\":" + crawl.getParser().getLinkDeduplicator().getMemoryUsage()
+                    + ",\"emailsFound\":" + crawl.getParser().collectEmails().size()
+                    + ",\"phoneNumbersFound\":" + crawl.getParser().collectPhoneNumbers().size()
+                    + "}";
+        }
+    }
+
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--")) {
+                spoderArguments.addAll(Arrays.asList(args).subList(i + 1, args.length));
+                return;
+            }
+
+            String[] option = args[i].split("=", 2);
+            if (option.length != 2) throw new IllegalArgumentException("Expected --option=value but got " + args[i]);
+
+            switch (option[0]) {
+                case "--fan-out" -> fanOut = Integer.parseInt(option[1]);
+                case "--depth" -> depth = Integer.parseInt(option[1]);
+                case "--page-size" -> pageSize = Integer.parseInt(option[1]);
+                case "--latency" -> latencyMillis = Integer.parseInt(option[1]);
+                case "--error-rate" -> errorRate = Double.parseDouble(option[1]);
+                case "--report" -> report = Path.of(option[1]);
+                default -> throw new IllegalArgumentException("Unknown option " + option[0]);
+            }
+        }
+    }
+
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) pools.add(pool);
+        }
+        return pools;
+    }
+
+
+    private static long percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) return 0;
+
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+}
@@ -0,0 +1,130 @@
+package spoder;
+
+import java.util.Random;
+
+/**
+ * Generates the html fixtures the benchmarks run on. The pages are generated from a fixed seed, so every run
+ * sees exactly the same input without checking multi-megabyte files into the repository.
+ */
+public final class HtmlCorpus {
+
+    public static final String SMALL = "small";
+    public static final String HUGE = "huge";
+    public static final String LINK_DENSE = "link-dense";
+    public static final String TEXT_DENSE = "text-dense";
+
+    public static final String PAGE_URL = "https://www.example.com/blog/2023/article.html";
+
+    private static final String[] WORDS = {
+            "the", "spider", "crawls", "every", "page", "of", "site", "and", "collects", "links", "while",
+            "parsing", "content", "contact", "support", "for", "more", "information", "über", "größe", "team",
+            "product", "release", "notes", "security", "advisory", "download", "latest", "version", "here"
+    };
+
+    private HtmlCorpus() {
+    }
+
+
+    /**
+     * Generates the fixture with the given name.
+     *
+     * @param name one of {@link #SMALL}, {@link #HUGE}, {@link #LINK_DENSE}, {@link #TEXT_DENSE}
+     * @return html of the fixture
+     */
+    public static String generate(String name) {
+        Random random = new Random(42);
+
+        return switch (name) {
+            //a typical landing page: navigation, a few paragraphs and a footer
+            case SMALL -> page(random, 12, 6, 0.02, 0);
+            //a single page of several megabytes, e.g. a long forum thread or a generated report
+            case HUGE -> page(random, 2_000, 4_000, 0.02, 40);
+            //an index or sitemap like page that consists mostly of anchors
+            case LINK_DENSE -> page(random, 5_000, 20, 0.01, 0);
+            //an article like page with long paragraphs and only a few anchors
+            case TEXT_DENSE -> page(random, 20, 2_500, 0.03, 0);
+            default -> throw new IllegalArgumentException("Unknown fixture: " + name);
+        };
+    }
+
+
+    /**
+     * Generates a page.
+     *
+     * @param random source of randomness
+     * @param anchors number of anchors in the navigation
+     * @param paragraphs number of text paragraphs
+     * @param contactRate probability that a word in a paragraph is an email, phone number or url
+     * @param scripts number of inline scripts
+     * @return html of the page
+     */
+    private static String page(Random random, int anchors, int paragraphs, double contactRate, int scripts) {
+        StringBuilder html = new StringBuilder();
+
+        html.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n")
+                .append("<meta charset=\"utf-8\">\n<title>Benchmark page</title>\n")
+                .append("<link rel=\"stylesheet\" href=\"/static/css/main.css\">\n")
+                .append("<style>body { font-family: sans-serif; } a > span { color: #333; }</style>\n")
+                .append("</head>\n<body class=\"article\" data-id=\"1234\">\n<!-- navigation -->\n<nav><ul>\n");
+
+        for (int i = 0; i < anchors; i++) {
+            html.append("<li class=nav-item><a href=\"").append(href(random, i)).append("\" title='")
+                    .append(word(random)).append("'>").append(word(random)).append(' ').append(word(random))
+                    .append("</a></li>\n");
+        }
+
+        html.append("</ul></nav>\n<main>\n");
+
+        for (int i = 0; i < paragraphs; i++) {
+            html.append("<p>");
+
+            int words = 40 + random.nextInt(80);
+            for (int j = 0; j < words; j++) {
+                if (random.nextDouble() < contactRate) {
+                    html.append(contact(random, j));
+                } else {
+                    html.append(word(random));
+                }
+                html.append(j % 17 == 16 ? "\n" : " ");
+            }
+
+            html.append("</p>\n");
+
+            if (scripts > 0 && i % (paragraphs / scripts + 1) == 0) {
+                html.append("<script>var config = { url: \"https://cdn.example.com/lib.js\", n: ")
+                        .append(i).append(" }; if (a < b && b > c) { load(config); }</script>\n");
+            }
+        }
+
+        html.append("</main>\n<footer><a href=\"mailto:office@example.com\">office@example.com</a> ")
+                .append("<a href=\"/imprint\">Imprint</a></footer>\n</body>\n</html>\n");
+
+        return html.toString();
+    }
+
+
+    private static String href(Random random, int i) {
+        return switch (random.nextInt(5)) {
+            case 0 -> "/section/" + word(random) + "/" + i + ".html";
+            case 1 -> "../" + word(random) + "-" + i + ".html";
+            case 2 -> "?page=" + i + "&sort=" + word(random);
+            case 3 -> "https://" + word(random) + ".example.org/" + word(random) + "/" + i;
+            default -> word(random) + "/index.html#section-" + i;
+        };
+    }
+
+
+    private static String contact(Random random, int i) {
+        return switch (random.nextInt(3)) {
+            case 0 -> word(random) + "." + i + "@example.com";
+            case 1 -> "+43" + (6000000000L + random.nextInt(1_000_000_000));
+            default -> "https://www.example.net/" + word(random) + "/" + i;
+        };
+    }
+
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+}
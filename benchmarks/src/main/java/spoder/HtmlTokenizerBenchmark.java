@@ -0,0 +1,64 @@
+package spoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Tokenizes a page without any parsing, to separate the cost of the tokenizer from the cost of the
+ * regular expressions in {@link Parser}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HtmlTokenizerBenchmark {
+
+    @Param({HtmlCorpus.SMALL, HtmlCorpus.HUGE, HtmlCorpus.LINK_DENSE, HtmlCorpus.TEXT_DENSE})
+    public String fixture;
+
+    private String html;
+
+    @Setup
+    public void setup() {
+        html = HtmlCorpus.generate(fixture);
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole blackhole) throws IOException {
+        new HtmlTokenizer().tokenize(new StringReader(html), new HtmlTokenizer.Handler() {
+            @Override
+            public void text(CharSequence text) {
+                blackhole.consume(text.length());
+            }
+
+            @Override
+            public void startTag(CharSequence name) {
+                blackhole.consume(name.length());
+            }
+
+            @Override
+            public void attribute(CharSequence name, CharSequence value) {
+                blackhole.consume(value.length());
+            }
+
+            @Override
+            public void endTag(CharSequence name) {
+                blackhole.consume(name.length());
+            }
+        });
+    }
+
+}
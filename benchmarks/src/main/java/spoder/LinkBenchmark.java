@@ -0,0 +1,89 @@
+package spoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resolves all hrefs of the link-dense fixture against the page url and looks them up in a set,
+ * which is what happens for every link the {@link Parser} finds.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LinkBenchmark {
+
+    private final Link page = Link.parse(HtmlCorpus.PAGE_URL, false);
+    private final List<String> hrefs = new ArrayList<>();
+    private final Set<Link> known = new HashSet<>();
+
+    @Setup
+    public void setup() throws IOException {
+        new HtmlTokenizer().tokenize(new StringReader(HtmlCorpus.generate(HtmlCorpus.LINK_DENSE)), new HtmlTokenizer.Handler() {
+            @Override
+            public void text(CharSequence text) {
+            }
+
+            @Override
+            public void startTag(CharSequence name) {
+            }
+
+            @Override
+            public void attribute(CharSequence name, CharSequence value) {
+                if (HtmlTokenizer.equalsIgnoreCase(name, "href") && !value.toString().startsWith("mailto:")) {
+                    hrefs.add(value.toString());
+                }
+            }
+
+            @Override
+            public void endTag(CharSequence name) {
+            }
+        });
+
+        for (String href : hrefs) {
+            known.add(create(href));
+        }
+    }
+
+    @Benchmark
+    public void construct(Blackhole blackhole) {
+        for (String href : hrefs) {
+            blackhole.consume(create(href));
+        }
+    }
+
+    @Benchmark
+    public void lookup(Blackhole blackhole) {
+        for (String href : hrefs) {
+            blackhole.consume(known.contains(create(href)));
+        }
+    }
+
+    @Benchmark
+    public void toString(Blackhole blackhole) {
+        for (Link link : known) {
+            blackhole.consume(link.toString());
+        }
+    }
+
+    private Link create(String href) {
+        return Link.resolve(page, href);
+    }
+
+}
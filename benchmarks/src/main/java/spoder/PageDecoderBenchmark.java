@@ -0,0 +1,65 @@
+package spoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes a UTF-8 encoded page to characters, comparing the pooled {@link PageDecoder} with a new
+ * {@link InputStreamReader} per page.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageDecoderBenchmark {
+
+    @Param({HtmlCorpus.SMALL, HtmlCorpus.HUGE, HtmlCorpus.TEXT_DENSE})
+    public String fixture;
+
+    private byte[] body;
+    private final char[] buffer = new char[16 * 1024];
+
+    @Setup
+    public void setup() {
+        body = HtmlCorpus.generate(fixture).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long pageDecoder() throws IOException {
+        try (PageDecoder decoder = PageDecoder.open(new ByteArrayInputStream(body), "text/html; charset=utf-8")) {
+            return drain(decoder);
+        }
+    }
+
+    @Benchmark
+    public long inputStreamReader() throws IOException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8)) {
+            return drain(reader);
+        }
+    }
+
+    private long drain(Reader reader) throws IOException {
+        long chars = 0;
+        int read;
+        while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            chars += read;
+        }
+        return chars;
+    }
+
+}
@@ -0,0 +1,51 @@
+package spoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Set;
+
+/**
+ * Reads a whole page like a {@link Scanner} does: tokenizing plus extracting links, emails and phone numbers.
+ * The parser is shared between invocations, so after the first one all links are already known, which is
+ * the steady state of a crawl that keeps finding the same navigation links.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageReaderBenchmark {
+
+    @Param({HtmlCorpus.SMALL, HtmlCorpus.HUGE, HtmlCorpus.LINK_DENSE, HtmlCorpus.TEXT_DENSE})
+    public String fixture;
+
+    private String html;
+    private Parser parser;
+    private Link link;
+
+    @Setup
+    public void setup() {
+        html = HtmlCorpus.generate(fixture);
+        parser = new Parser(null, null, null);
+        link = Link.parse(HtmlCorpus.PAGE_URL, false);
+    }
+
+    @Benchmark
+    public Set<Link> read() throws IOException {
+        PageReader pageReader = new PageReader(parser, link);
+        pageReader.read(new StringReader(html));
+        return pageReader.getNewFoundLinks();
+    }
+
+}
@@ -0,0 +1,84 @@
+package spoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs {@link Parser#parseLine} and {@link Parser#parseAttribute} on all text segments and attributes of a page.
+ * The segments are collected once in the setup, so only the parser is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({HtmlCorpus.SMALL, HtmlCorpus.HUGE, HtmlCorpus.LINK_DENSE, HtmlCorpus.TEXT_DENSE})
+    public String fixture;
+
+    private final List<String> texts = new ArrayList<>();
+    private final List<String[]> attributes = new ArrayList<>();
+    private Parser parser;
+    private Link link;
+
+    @Setup
+    public void setup() throws IOException {
+        parser = new Parser(null, null, null);
+        link = Link.parse(HtmlCorpus.PAGE_URL, false);
+
+        new HtmlTokenizer().tokenize(new StringReader(HtmlCorpus.generate(fixture)), new HtmlTokenizer.Handler() {
+            @Override
+            public void text(CharSequence text) {
+                texts.add(text.toString());
+            }
+
+            @Override
+            public void startTag(CharSequence name) {
+            }
+
+            @Override
+            public void attribute(CharSequence name, CharSequence value) {
+                attributes.add(new String[]{name.toString(), value.toString()});
+            }
+
+            @Override
+            public void endTag(CharSequence name) {
+            }
+        });
+    }
+
+    @Benchmark
+    public Set<Link> parseLine() {
+        Set<Link> newFoundLinks = new HashSet<>();
+        for (String text : texts) {
+            parser.parseLine(text, link, newFoundLinks);
+        }
+        return newFoundLinks;
+    }
+
+    @Benchmark
+    public Set<Link> parseAttribute() {
+        Set<Link> newFoundLinks = new HashSet<>();
+        for (String[] attribute : attributes) {
+            parser.parseAttribute(attribute[0], attribute[1], link, newFoundLinks);
+        }
+        return newFoundLinks;
+    }
+
+}
@@ -0,0 +1,211 @@
+package spoder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process web server that serves a generated site. The pages form a tree in which every page links to
+ * fan-out children, to its parent and to the root page, so the crawler has to deduplicate links as well.
+ * Every page is padded with text to the configured size, answered after the configured latency and fails with
+ * a 500 with the configured probability.
+ */
+public class SyntheticSite implements Closeable {
+
+    private static final String PAGE_PREFIX = "/page/";
+    private static final String PAGE_SUFFIX = ".html";
+
+    private final int fanOut;
+    private final int pageCount;
+    private final int latencyMillis;
+    private final double errorRate;
+    private final byte[] filler;
+
+    private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger errors = new AtomicInteger(0);
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param fanOut number of children of every page
+     * @param depth number of levels below the root page
+     * @param pageSize approximate size of every page in bytes
+     * @param latencyMillis time every response is delayed by
+     * @param errorRate probability that a page (except the root page) responds with a 500
+     */
+    SyntheticSite(int fanOut, int depth, int pageSize, int latencyMillis, double errorRate) {
+        this.fanOut = fanOut;
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+
+        long pages = 1;
+        long level = 1;
+        for (int i = 0; i < depth; i++) {
+            level *= fanOut;
+            pages += level;
+        }
+        if (pages > Integer.MAX_VALUE) throw new IllegalArgumentException("Site is too large: " + pages + " pages");
+        this.pageCount = (int) pages;
+
+        this.filler = filler(pageSize);
+    }
+
+
+    /**
+     * Starts the server on a free port of the loopback interface.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    public void start() throws IOException {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+
+    public String getRootUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + PAGE_PREFIX + 0 + PAGE_SUFFIX;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public int getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Returns the time the server needed to answer each request, from receiving the request until the
+     * response has been written, including the injected latency.
+     *
+     * @return latencies in nanoseconds, in no particular order
+     */
+    public List<Long> getLatencies() {
+        return new ArrayList<>(latencies);
+    }
+
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+
+        try (exchange) {
+            int page = pageId(exchange.getRequestURI().getPath());
+
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+
+            if (page < 0) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            if (fails(page)) {
+                errors.incrementAndGet();
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            byte[] head = head(page);
+            byte[] tail = "</p>\n</body>\n</html>\n".getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, head.length + filler.length + tail.length);
+
+            OutputStream body = exchange.getResponseBody();
+            body.write(head);
+            body.write(filler);
+            body.write(tail);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            latencies.add(System.nanoTime() - start);
+        }
+    }
+
+
+    /**
+     * Generates everything of the page up to the filler text: the links to the children, the parent and the root.
+     */
+    private byte[] head(int page) {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html>\n<head><title>Page ").append(page).append("</title></head>\n<body>\n<ul>\n");
+
+        for (int child = page * fanOut + 1; child <= page * fanOut + fanOut && child < pageCount; child++) {
+            html.append("<li><a href=\"").append(PAGE_PREFIX).append(child).append(PAGE_SUFFIX).append("\">Page ")
+                    .append(child).append("</a></li>\n");
+        }
+
+        int parent = page == 0 ? 0 : (page - 1) / fanOut;
+        html.append("<li><a href=\"").append(parent).append(PAGE_SUFFIX).append("\">Up</a></li>\n")
+                .append("<li><a href=\"").append(PAGE_PREFIX).append(0).append(PAGE_SUFFIX).append("\">Home</a></li>\n")
+                .append("</ul>\n<p>Contact page").append(page).append("@example.com or +43660")
+                .append(1_000_000 + page % 9_000_000).append("\n");
+
+        return html.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Decides deterministically whether the given page fails, so repeated runs see the same errors.
+     */
+    private boolean fails(int page) {
+        if (page == 0 || errorRate <= 0) return false;
+
+        return new SplittableRandom(page).nextDouble() < errorRate;
+    }
+
+
+    private int pageId(String path) {
+        if (!path.startsWith(PAGE_PREFIX) || !path.endsWith(PAGE_SUFFIX)) return -1;
+
+        try {
+            int page = Integer.parseInt(path.substring(PAGE_PREFIX.length(), path.length() - PAGE_SUFFIX.length()));
+            return page < pageCount ? page : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+
+    private static byte[] filler(int size) {
+        //only plain words, urls in the filler would lead the crawler away from the site
+        String text = HtmlCorpus.generate(HtmlCorpus.TEXT_DENSE)
+                .replaceAll("<[^>]*>", " ")
+                .replaceAll("\\S*(https?:|@|\\+43)\\S*", " ");
+        StringBuilder filler = new StringBuilder(size);
+
+        while (filler.length() < size) {
+            filler.append(text, 0, Math.min(text.length(), size - filler.length()));
+        }
+
+        //cut at a space so that no word is split in two
+        int end = filler.lastIndexOf(" ");
+        return filler.substring(0, end == -1 ? filler.length() : end).getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,135 @@
+package spoder;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Non-blocking alternative to the {@link Scanner} tasks. Requests are sent asynchronously, so no thread
+ * is parked while waiting for a response, and only the parsing of the received pages is done on the
+ * thread pool of the {@link ThreadPoolManager}.
+ */
+public class AsyncCrawler {
+
+    private final ThreadPoolManager threadPoolManager;
+    private final Parser parser;
+    private final HttpClientConnection connection;
+    private final ConcurrencyLimiter limiter;
+    private final CrawlBudget budget;
+    private final ContentFilter contentFilter;
+    private final PageCache pageCache;
+    private final CrawlMetrics metrics;
+    private final Tracer tracer;
+
+    AsyncCrawler(ThreadPoolManager threadPoolManager, Parser parser, HttpClientConnection connection,
+                 ConcurrencyLimiter limiter, CrawlBudget budget, ContentFilter contentFilter, PageCache pageCache,
+                 CrawlMetrics metrics, Tracer tracer) {
+        this.threadPoolManager = threadPoolManager;
+        this.parser = parser;
+        this.connection = connection;
+        this.limiter = limiter;
+        this.budget = budget;
+        this.contentFilter = contentFilter;
+        this.pageCache = pageCache;
+        this.metrics = metrics;
+        this.tracer = tracer;
+    }
+
+
+    /**
+     * Sends the request for the given link and parses the response on the thread pool once it is received.
+     * The links found on the page are scheduled with a decremented depth. Meant to be the worker of the
+     * {@link ThreadPoolManager}, which limits the number of requests in flight. The trace of the task includes the
+     * time spent waiting for a permit of the {@link ConcurrencyLimiter}. A link that has failed with a transient error
+     * is handed back to the thread pool manager to be retried later. Any other failure, including an unexpected
+     * exception, is reported as an error of the link, and the task is finished.
+     *
+     * @param pending link to be fetched together with its remaining depth
+     */
+    public void fetch(Frontier.Entry pending) {
+        long[] latency = new long[1];
+        TaskTrace trace = new TaskTrace(pending.link());
+
+        limiter.acquire()
+                .thenCompose(v -> {
+                    long started = System.nanoTime();
+                    return connection.fetchAsync(pending.link(), trace)
+                            .whenComplete((response, e) -> {
+                                latency[0] = System.nanoTime() - started;
+                                if (e == null) metrics.pageFetched(latency[0]);
+                            });
+                })
+                .whenComplete((response, e) -> limiter.release())
+                .thenAcceptAsync(response -> parse(pending, response, trace), threadPoolManager.getExecutor())
+                .whenComplete((v, e) -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    boolean retried = false;
+
+                    //the task is finished whatever happens, otherwise the crawl would never complete
+                    try {
+                        trace.finish();
+                        tracer.record(trace);
+
+                        if (cause != null) {
+                            retried = threadPoolManager.retry(pending.link(), pending.depth(), cause, latency[0]);
+                        }
+                    } catch (RuntimeException unexpected) {
+                        if (cause == null) cause = unexpected;
+                    } finally {
+                        if (!retried) {
+                            if (cause != null) metrics.pageFailed();
+                            if (cause != null && !threadPoolManager.isStopped()) {
+                                System.err.println(Scanner.describe(pending.link(), cause));
+                            }
+
+                            threadPoolManager.finished(pending.link(), cause, latency[0]);
+                        }
+                    }
+                });
+    }
+
+
+    /**
+     * Parses the received page, or takes its results from the {@link PageCache} if it has not been modified, and
+     * schedules all new-found links, including those found before reading the body has failed.
+     *
+     * @param pending link of the page together with its remaining depth
+     * @param response buffered response of the page
+     * @param trace trace the parse time is added to
+     */
+    private void parse(Frontier.Entry pending, FetchResponse response, TaskTrace trace) {
+        PageReader pageReader = null;
+        Set<Link> newFoundLinks = Set.of();
+
+        try (response) {
+            //skipped by the content filter, the body has not been downloaded
+            if (response.isSkipped()) return;
+
+            if (response.isNotModified()) {
+                newFoundLinks = pageCache.replay(pending.link(), parser);
+            } else {
+                pageReader = new PageReader(parser, pending.link(), contentFilter.isStopAtHtmlEnd(), pageCache.isEnabled());
+                long parseStarted = System.nanoTime();
+                try (PageDecoder decoder = PageDecoder.open(response.getBody(), response.getHeader("Content-Type"))) {
+                    pageReader.read(decoder);
+                } finally {
+                    budget.addBytes(response.getBytesRead());
+                }
+                long parseTime = Math.max(0, System.nanoTime() - parseStarted - response.getReadNanos());
+                trace.add(TaskTrace.Phase.PARSE, parseTime);
+                metrics.pageParsed(parseTime);
+                pageCache.store(pending.link(), response, pageReader);
+            }
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } finally {
+            //the links found before the body failed are collected already, they would not be found again on a retry
+            if (pageReader != null) newFoundLinks = pageReader.getNewFoundLinks();
+
+            for (Link link_temp : newFoundLinks) {
+                threadPoolManager.schedule(link_temp, pending.depth() - 1);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package spoder;
+
+import java.net.InetAddress;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver;
+import java.net.spi.InetAddressResolverProvider;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Resolver of the JDK that answers the lookups from the installed {@link HostResolver}, so the connections of the
+ * {@link FetchEngine}s use the cached addresses as well. Registered as a service, the JDK loads it on the first lookup.
+ * <p>
+ * As long as no cache is installed, all lookups are passed to the built-in resolver of the JDK.
+ */
+public class CachingResolverProvider extends InetAddressResolverProvider {
+
+    private static volatile InetAddressResolver builtin;
+
+    @Override
+    public InetAddressResolver get(Configuration configuration) {
+        InetAddressResolver builtin = configuration.builtinResolver();
+        CachingResolverProvider.builtin = builtin;
+
+        return new InetAddressResolver() {
+            @Override
+            public Stream<InetAddress> lookupByName(String host, LookupPolicy lookupPolicy) throws UnknownHostException {
+                HostResolver resolver = HostResolver.installed();
+                if (resolver == null) return builtin.lookupByName(host, lookupPolicy);
+
+                InetAddress[] addresses = order(resolver.resolve(host), lookupPolicy.characteristics());
+                if (addresses.length == 0) throw new UnknownHostException(host);
+                return Arrays.stream(addresses);
+            }
+
+            @Override
+            public String lookupByAddress(byte[] addr) throws UnknownHostException {
+                return builtin.lookupByAddress(addr);
+            }
+        };
+    }
+
+    @Override
+    public String name() {
+        return "spoder";
+    }
+
+
+    /**
+     * Returns the built-in resolver of the JDK, once the JDK has loaded this provider.
+     *
+     * @return built-in resolver, null if the provider has not been loaded
+     */
+    static InetAddressResolver builtin() {
+        return builtin;
+    }
+
+
+    /**
+     * Keeps the addresses of the families the lookup asks for, in the order it asks for.
+     */
+    private static InetAddress[] order(InetAddress[] addresses, int characteristics) {
+        boolean ipv4 = (characteristics & InetAddressResolver.LookupPolicy.IPV4) != 0;
+        boolean ipv6 = (characteristics & InetAddressResolver.LookupPolicy.IPV6) != 0;
+
+        Stream<InetAddress> stream = Arrays.stream(addresses)
+                .filter(address -> address instanceof Inet4Address ? ipv4 : ipv6);
+
+        //the sort is stable, so the order of the resolver is kept within a family
+        if ((characteristics & InetAddressResolver.LookupPolicy.IPV4_FIRST) != 0) {
+            stream = stream.sorted(Comparator.comparingInt(address -> address instanceof Inet4Address ? 0 : 1));
+        } else if ((characteristics & InetAddressResolver.LookupPolicy.IPV6_FIRST) != 0) {
+            stream = stream.sorted(Comparator.comparingInt(address -> address instanceof Inet6Address ? 0 : 1));
+        }
+
+        return stream.toArray(InetAddress[]::new);
+    }
+
+}
@@ -0,0 +1,345 @@
+package spoder;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Records the progress of a crawl in a journal, so that an interrupted crawl can be resumed without fetching the
+ * pages that have already been crawled.
+ * <p>
+ * Every scheduled and every finished link as well as every link, email and phone number found is appended to the
+ * journal as a small binary record: a type byte, the depth for scheduled links, the length and the UTF-8 bytes of
+ * the value. The records are collected in a buffer and written every few seconds, so checkpointing costs neither a
+ * rewrite of the whole state nor a system call per record. A crash loses at most the records of the last seconds,
+ * whose pages are simply crawled again after resuming.
+ * <p>
+ * When a crawl is resumed, the journal is compacted: it is replaced by a snapshot of the pending links and the results
+ * found so far, so it does not keep the records of every page ever crawled, and neither its size nor the time to resume
+ * grow with every resume. The snapshot is written to a temporary file that is renamed to the journal, so a crash while
+ * compacting leaves the old journal intact.
+ * <p>
+ * The journal is written with a plain stream rather than a channel, since a channel is closed for good when the
+ * writing thread is interrupted, which happens to the worker threads when the crawl is stopped.
+ */
+public class Checkpoint implements ThreadPoolManager.TaskListener, Parser.ResultListener, Closeable {
+
+    private static final String JOURNAL = "checkpoint.journal";
+    private static final String SNAPSHOT = "checkpoint.journal.tmp";
+    private static final long FLUSH_INTERVAL_SECONDS = 5;
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private static final byte SCHEDULED = 'S';
+    private static final byte FINISHED = 'F';
+    private static final byte LINK = 'L';
+    private static final byte EMAIL = 'E';
+    private static final byte PHONE_NUMBER = 'P';
+
+    private final FileOutputStream journal;
+    private boolean closed = false;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Opens the journal in the given directory, new records are appended to the existing ones.
+     *
+     * @param directory directory of the checkpoint, created if it does not exist
+     * @throws IOException if the journal cannot be opened
+     */
+    Checkpoint(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.journal = new FileOutputStream(directory.resolve(JOURNAL).toFile(), true);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+
+    /**
+     * Checks whether the directory contains a checkpoint that can be resumed.
+     *
+     * @param directory directory of the checkpoint
+     * @return true if the directory contains a non-empty journal
+     * @throws IOException if the size of the journal cannot be determined
+     */
+    public static boolean exists(Path directory) throws IOException {
+        Path journal = directory.resolve(JOURNAL);
+
+        return Files.exists(journal) && Files.size(journal) > 0;
+    }
+
+
+    /**
+     * Reads the journal in the given directory. A truncated record at the end, e.g. because the process was killed
+     * while writing it, is ignored.
+     *
+     * @param directory directory of the checkpoint
+     * @param sortQueryParameters whether the links sort their query parameters, see {@link Link}
+     * @return the state of the crawl at the time of the last written record
+     * @throws IOException if the journal cannot be read
+     */
+    public static State read(Path directory, boolean sortQueryParameters) throws IOException {
+        Map<String, Integer> pending = new LinkedHashMap<>();
+        List<Link> links = new ArrayList<>();
+        List<String> emails = new ArrayList<>();
+        List<String> phoneNumbers = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(directory.resolve(JOURNAL), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.flip();
+
+            while (true) {
+                if (!fill(channel, buffer, 1)) break;
+                byte type = buffer.get();
+
+                if (!fill(channel, buffer, (type == SCHEDULED ? 2 : 1) * Integer.BYTES)) break;
+                int depth = type == SCHEDULED ? buffer.getInt() : 0;
+                byte[] value = new byte[buffer.getInt()];
+
+                if (value.length <= buffer.capacity()) {
+                    if (!fill(channel, buffer, value.length)) break;
+                    buffer.get(value);
+                } else {
+                    //a record larger than the buffer is read directly
+                    ByteBuffer target = ByteBuffer.wrap(value).put(buffer);
+                    if (!readFully(channel, target)) break;
+                }
+
+                String string = new String(value, StandardCharsets.UTF_8);
+
+                switch (type) {
+                    case SCHEDULED -> pending.put(string, depth);
+                    case FINISHED -> pending.remove(string);
+                    case LINK -> links.add(Link.parse(string, sortQueryParameters));
+                    case EMAIL -> emails.add(string);
+                    case PHONE_NUMBER -> phoneNumbers.add(string);
+                    default -> throw new IOException("Corrupt checkpoint journal, unknown record type " + type);
+                }
+            }
+        }
+
+        List<Frontier.Entry> frontier = new ArrayList<>(pending.size());
+        for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+            frontier.add(new Frontier.Entry(Link.parse(entry.getKey(), sortQueryParameters), entry.getValue()));
+        }
+
+        return new State(frontier, links, emails, phoneNumbers);
+    }
+
+
+    /**
+     * Replaces the journal in the given directory by a snapshot of the given state, which has been read from it.
+     * Must not be called while a checkpoint is open in the directory.
+     *
+     * @param directory directory of the checkpoint
+     * @param state state read from the journal by {@link #read(Path, boolean)}
+     * @throws IOException if the snapshot cannot be written, the journal is left unchanged then
+     */
+    public static void compact(Path directory, State state) throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT);
+
+        try (FileOutputStream out = new FileOutputStream(snapshot.toFile())) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+            for (Frontier.Entry entry : state.pending()) {
+                write(out, buffer, SCHEDULED, entry.depth(), entry.link().toString());
+            }
+            for (Link link : state.links()) {
+                write(out, buffer, LINK, 0, link.toString());
+            }
+            for (String email : state.emails()) {
+                write(out, buffer, EMAIL, 0, email);
+            }
+            for (String phoneNumber : state.phoneNumbers()) {
+                write(out, buffer, PHONE_NUMBER, 0, phoneNumber);
+            }
+
+            out.write(buffer.array(), 0, buffer.position());
+            out.getFD().sync();
+        }
+
+        Files.move(snapshot, directory.resolve(JOURNAL), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    @Override
+    public void scheduled(Link link, int depth) {
+        append(SCHEDULED, depth, link.toString());
+    }
+
+
+    @Override
+    public void finished(Link link) {
+        append(FINISHED, 0, link.toString());
+    }
+
+
+    @Override
+    public void linkFound(Link link) {
+        append(LINK, 0, link.toString());
+    }
+
+
+    @Override
+    public void emailFound(String email) {
+        append(EMAIL, 0, email);
+    }
+
+
+    @Override
+    public void phoneNumberFound(String phoneNumber) {
+        append(PHONE_NUMBER, 0, phoneNumber);
+    }
+
+
+    /**
+     * Writes the remaining records to disk and closes the journal.
+     *
+     * @throws IOException if the records cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdownNow();
+
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+
+            flush();
+            journal.getFD().sync();
+            journal.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Appends a record to the buffer. The buffer is written to the journal if it is full.
+     */
+    private void append(byte type, int depth, String value) {
+        lock.lock();
+        try {
+            if (closed) return;
+
+            write(journal, buffer, type, depth, value);
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not write checkpoint: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Puts a record into the buffer, which is written to the stream first if the record does not fit.
+     */
+    private static void write(FileOutputStream out, ByteBuffer buffer, byte type, int depth, String value)
+            throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int size = 1 + (type == SCHEDULED ? Integer.BYTES : 0) + Integer.BYTES + bytes.length;
+
+        if (buffer.remaining() < size) {
+            out.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+
+        if (buffer.remaining() < size) {
+            //larger than the whole buffer, so it is written directly
+            ByteBuffer record = ByteBuffer.allocate(size);
+            put(record, type, depth, bytes);
+            out.write(record.array());
+        } else {
+            put(buffer, type, depth, bytes);
+        }
+    }
+
+
+    private static void put(ByteBuffer target, byte type, int depth, byte[] bytes) {
+        target.put(type);
+        if (type == SCHEDULED) target.putInt(depth);
+        target.putInt(bytes.length).put(bytes);
+    }
+
+
+    private void flush() throws IOException {
+        journal.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+
+    private void flushQuietly() {
+        lock.lock();
+        try {
+            if (closed) return;
+
+            flush();
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not write checkpoint: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Makes sure that at least the given number of bytes can be read from the buffer.
+     *
+     * @return false if the journal ends before
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return true;
+
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) == -1) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+
+    private static boolean readFully(FileChannel channel, ByteBuffer target) throws IOException {
+        while (target.hasRemaining()) {
+            if (channel.read(target) == -1) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * State of a crawl read from a checkpoint.
+     *
+     * @param pending links that have been scheduled but not finished, in the order they were scheduled
+     * @param links links found
+     * @param emails emails found
+     * @param phoneNumbers phone numbers found
+     */
+    public record State(List<Frontier.Entry> pending, List<Link> links, List<String> emails, List<String> phoneNumbers) {
+    }
+
+}
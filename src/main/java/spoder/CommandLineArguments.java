@@ -0,0 +1,778 @@
+package spoder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+/**
+ * Helper class to manage the given arguments. For optional arguments a default value is assigned.
+ */
+public class CommandLineArguments {
+
+    /**
+     * Available implementations of {@link FetchEngine}.
+     */
+    public enum Engine {
+        LEGACY, HTTPCLIENT
+    }
+
+    /**
+     * Available kinds of threads the tasks are run on.
+     */
+    public enum Executor {
+        PLATFORM, VIRTUAL
+    }
+
+    /**
+     * Available implementations of {@link LinkDeduplicator}.
+     */
+    public enum Dedup {
+        EXACT, BLOOM
+    }
+
+    /**
+     * Available formats of the lines written by {@link OutputSink}.
+     */
+    public enum Format {
+        TEXT, JSONL
+    }
+
+    /**
+     * Available orders in which the links of the {@link Frontier} are crawled.
+     */
+    public enum Order {
+        FIFO, BFS, BEST, RANDOM
+    }
+
+    /**
+     * Available scopes of the hosts that are crawled, relative to the host of the start url.
+     */
+    public enum Scope {
+        ALL, HOST, DOMAIN, SUBDOMAINS
+    }
+
+    private String url;
+    private String cookies;
+
+    private int numberOfThreads = Runtime.getRuntime().availableProcessors() * 2;
+    private int depth = 1;
+
+    private Engine engine = Engine.LEGACY;
+    private int maxConnectionsPerHost = 0;
+    private int maxConnections = 0;
+
+    private Executor executor = Executor.PLATFORM;
+
+    private boolean async = false;
+    private int maxInFlight = 1000;
+
+    private boolean sortQueryParameters = false;
+
+    private String checkpointDirectory;
+    private boolean resume = false;
+
+    private int frontierSize = 100_000;
+    private String frontierDirectory;
+    private Order order = Order.FIFO;
+    private List<String> keywords = List.of();
+
+    private Scope scope = Scope.ALL;
+    private List<String> includeGlobs = List.of();
+    private List<String> includeRegexes = List.of();
+    private List<String> excludeGlobs = List.of();
+    private List<String> excludeRegexes = List.of();
+    private Set<String> excludedExtensions = Set.of();
+    private int maxQueryParameters = 0;
+
+    private int maxPages = 0;
+    private long maxBytes = 0;
+    private int maxDuration = 0;
+    private int maxFrontierSize = 0;
+
+    private long maxBodySize = 10L * 1024 * 1024;
+    private boolean allContentTypes = false;
+    private boolean headProbe = false;
+    private boolean stopAtHtmlEnd = false;
+
+    private String cacheDirectory;
+
+    private int connectTimeout = 5_000;
+    private int readTimeout = 10_000;
+    private int totalTimeout = 30_000;
+    private int retries = 2;
+    private int retryDelay = 1_000;
+    private int dnsTtl = 300;
+    private int dnsCacheSize = 10_000;
+
+    private int progressInterval = 10;
+    private int metricsPort = 0;
+    private String jfrFile;
+
+    private Dedup dedup = Dedup.EXACT;
+    private int dedupMemory = 0;
+    private double dedupFalsePositiveRate = 0.001;
+    private boolean omitLinks = false;
+
+    private boolean output = false;
+    private String outputFile;
+    private Format format = Format.TEXT;
+
+    private String linkRegex;
+    private String emailRegex;
+    private String telephoneNumberRegex;
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) throws IllegalArgumentException {
+
+        validateUrlProtocol(url);
+        this.url = url;
+    }
+
+    public String getCookies() {
+        return cookies;
+    }
+
+    public void setCookies(String cookies) {
+        this.cookies = cookies;
+    }
+
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    public void setNumberOfThreads(int numberOfThreads) throws IllegalArgumentException {
+        validateThreadNumber(numberOfThreads);
+
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) throws IllegalArgumentException {
+        validateDepth(depth);
+
+        this.depth = depth;
+    }
+
+    public void setDepthUnlimited() {
+        this.depth = -1;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(String engine) throws IllegalArgumentException {
+        this.engine = parseOption(Engine.class, engine, "Engine");
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) throws IllegalArgumentException {
+        validatePositive(maxConnectionsPerHost, "Maximum number of connections per host");
+
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) throws IllegalArgumentException {
+        validatePositive(maxConnections, "Maximum number of connections");
+
+        this.maxConnections = maxConnections;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(String executor) throws IllegalArgumentException {
+        this.executor = parseOption(Executor.class, executor, "Executor");
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) throws IllegalArgumentException {
+        validatePositive(maxInFlight, "Maximum number of requests in flight");
+
+        this.maxInFlight = maxInFlight;
+    }
+
+    public boolean isSortQueryParameters() {
+        return sortQueryParameters;
+    }
+
+    public void setSortQueryParameters(boolean sortQueryParameters) {
+        this.sortQueryParameters = sortQueryParameters;
+    }
+
+    public String getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    public void setCheckpointDirectory(String checkpointDirectory) {
+        this.checkpointDirectory = checkpointDirectory;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    public int getFrontierSize() {
+        return frontierSize;
+    }
+
+    public void setFrontierSize(int frontierSize) throws IllegalArgumentException {
+        validatePositive(frontierSize, "Number of links kept in memory by the frontier");
+
+        this.frontierSize = frontierSize;
+    }
+
+    public String getFrontierDirectory() {
+        return frontierDirectory;
+    }
+
+    public void setFrontierDirectory(String frontierDirectory) {
+        this.frontierDirectory = frontierDirectory;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public void setOrder(String order) throws IllegalArgumentException {
+        this.order = parseOption(Order.class, order, "Order");
+    }
+
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    public void setKeywords(String keywords) {
+        this.keywords = Arrays.stream(keywords.split(","))
+                .map(String::strip)
+                .filter(keyword -> !keyword.isEmpty())
+                .toList();
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) throws IllegalArgumentException {
+        this.scope = parseOption(Scope.class, scope, "Scope");
+    }
+
+    public List<String> getIncludeGlobs() {
+        return includeGlobs;
+    }
+
+    public void setIncludeGlobs(String[] includeGlobs) {
+        this.includeGlobs = List.of(includeGlobs);
+    }
+
+    public List<String> getIncludeRegexes() {
+        return includeRegexes;
+    }
+
+    public void setIncludeRegexes(String[] includeRegexes) throws IllegalArgumentException {
+        this.includeRegexes = validateRegexes(includeRegexes);
+    }
+
+    public List<String> getExcludeGlobs() {
+        return excludeGlobs;
+    }
+
+    public void setExcludeGlobs(String[] excludeGlobs) {
+        this.excludeGlobs = List.of(excludeGlobs);
+    }
+
+    public List<String> getExcludeRegexes() {
+        return excludeRegexes;
+    }
+
+    public void setExcludeRegexes(String[] excludeRegexes) throws IllegalArgumentException {
+        this.excludeRegexes = validateRegexes(excludeRegexes);
+    }
+
+    public Set<String> getExcludedExtensions() {
+        return excludedExtensions;
+    }
+
+    public void setExcludedExtensions(String excludedExtensions) {
+        this.excludedExtensions = Arrays.stream(excludedExtensions.split(","))
+                .map(extension -> extension.strip().toLowerCase(Locale.ROOT))
+                //accepts ".css" as well as "css"
+                .map(extension -> extension.startsWith(".") ? extension.substring(1) : extension)
+                .filter(extension -> !extension.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    public int getMaxQueryParameters() {
+        return maxQueryParameters;
+    }
+
+    public void setMaxQueryParameters(int maxQueryParameters) throws IllegalArgumentException {
+        validatePositive(maxQueryParameters, "Maximum number of query parameters");
+
+        this.maxQueryParameters = maxQueryParameters;
+    }
+
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    public void setMaxPages(int maxPages) throws IllegalArgumentException {
+        validatePositive(maxPages, "Maximum number of pages");
+
+        this.maxPages = maxPages;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Sets the maximum number of bytes downloaded.
+     *
+     * @param maxBytes number of bytes, optionally followed by the unit K, M or G (powers of 1024)
+     * @throws IllegalArgumentException if the value is not a positive number with an optional unit
+     */
+    public void setMaxBytes(String maxBytes) throws IllegalArgumentException {
+        this.maxBytes = parseSize(maxBytes, "Maximum number of bytes");
+    }
+
+    public int getMaxDuration() {
+        return maxDuration;
+    }
+
+    public void setMaxDuration(int maxDuration) throws IllegalArgumentException {
+        validatePositive(maxDuration, "Maximum duration");
+
+        this.maxDuration = maxDuration;
+    }
+
+    public int getMaxFrontierSize() {
+        return maxFrontierSize;
+    }
+
+    public void setMaxFrontierSize(int maxFrontierSize) throws IllegalArgumentException {
+        validatePositive(maxFrontierSize, "Maximum frontier size");
+
+        this.maxFrontierSize = maxFrontierSize;
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * Sets the maximum number of bytes read from the body of a single page.
+     *
+     * @param maxBodySize number of bytes, optionally followed by the unit K, M or G (powers of 1024)
+     * @throws IllegalArgumentException if the value is not a positive number with an optional unit
+     */
+    public void setMaxBodySize(String maxBodySize) throws IllegalArgumentException {
+        this.maxBodySize = parseSize(maxBodySize, "Maximum body size");
+    }
+
+    public boolean isAllContentTypes() {
+        return allContentTypes;
+    }
+
+    public void setAllContentTypes(boolean allContentTypes) {
+        this.allContentTypes = allContentTypes;
+    }
+
+    public boolean isHeadProbe() {
+        return headProbe;
+    }
+
+    public void setHeadProbe(boolean headProbe) {
+        this.headProbe = headProbe;
+    }
+
+    public boolean isStopAtHtmlEnd() {
+        return stopAtHtmlEnd;
+    }
+
+    public void setStopAtHtmlEnd(boolean stopAtHtmlEnd) {
+        this.stopAtHtmlEnd = stopAtHtmlEnd;
+    }
+
+    public String getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    public void setCacheDirectory(String cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    public int getProgressInterval() {
+        return progressInterval;
+    }
+
+    public void setProgressInterval(int progressInterval) throws IllegalArgumentException {
+        if (progressInterval < 0) {
+            throw new IllegalArgumentException("Progress interval must not be negative");
+        }
+
+        this.progressInterval = progressInterval;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) throws IllegalArgumentException {
+        validateNotNegative(connectTimeout, "Connect timeout");
+
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) throws IllegalArgumentException {
+        validateNotNegative(readTimeout, "Read timeout");
+
+        this.readTimeout = readTimeout;
+    }
+
+    public int getTotalTimeout() {
+        return totalTimeout;
+    }
+
+    public void setTotalTimeout(int totalTimeout) throws IllegalArgumentException {
+        validateNotNegative(totalTimeout, "Total timeout");
+
+        this.totalTimeout = totalTimeout;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public void setRetries(int retries) throws IllegalArgumentException {
+        validateNotNegative(retries, "Number of retries");
+
+        this.retries = retries;
+    }
+
+    public int getRetryDelay() {
+        return retryDelay;
+    }
+
+    public void setRetryDelay(int retryDelay) throws IllegalArgumentException {
+        validatePositive(retryDelay, "Retry delay");
+
+        this.retryDelay = retryDelay;
+    }
+
+    public int getDnsTtl() {
+        return dnsTtl;
+    }
+
+    public void setDnsTtl(int dnsTtl) throws IllegalArgumentException {
+        validateNotNegative(dnsTtl, "DNS TTL");
+
+        this.dnsTtl = dnsTtl;
+    }
+
+    public int getDnsCacheSize() {
+        return dnsCacheSize;
+    }
+
+    public void setDnsCacheSize(int dnsCacheSize) throws IllegalArgumentException {
+        validatePositive(dnsCacheSize, "DNS cache size");
+
+        this.dnsCacheSize = dnsCacheSize;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setMetricsPort(int metricsPort) throws IllegalArgumentException {
+        if (metricsPort < 1 || metricsPort > 65535) {
+            throw new IllegalArgumentException("Metrics port must be between 1 and 65535");
+        }
+
+        this.metricsPort = metricsPort;
+    }
+
+    public String getJfrFile() {
+        return jfrFile;
+    }
+
+    public void setJfrFile(String jfrFile) {
+        this.jfrFile = jfrFile;
+    }
+
+    public Dedup getDedup() {
+        return dedup;
+    }
+
+    public void setDedup(String dedup) throws IllegalArgumentException {
+        this.dedup = parseOption(Dedup.class, dedup, "Dedup");
+    }
+
+    public int getDedupMemory() {
+        return dedupMemory;
+    }
+
+    public void setDedupMemory(int dedupMemory) throws IllegalArgumentException {
+        validatePositive(dedupMemory, "Memory budget for link deduplication");
+
+        this.dedupMemory = dedupMemory;
+    }
+
+    public double getDedupFalsePositiveRate() {
+        return dedupFalsePositiveRate;
+    }
+
+    public void setDedupFalsePositiveRate(double dedupFalsePositiveRate) throws IllegalArgumentException {
+        if (!(dedupFalsePositiveRate > 0 && dedupFalsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+
+        this.dedupFalsePositiveRate = dedupFalsePositiveRate;
+    }
+
+    public boolean isOmitLinks() {
+        return omitLinks;
+    }
+
+    public void setOmitLinks(boolean omitLinks) {
+        this.omitLinks = omitLinks;
+    }
+
+    public String getLinkRegex() {
+        return linkRegex;
+    }
+
+    public void setLinkRegex(String linkRegex) {
+        this.linkRegex = linkRegex;
+    }
+
+    public String getEmailRegex() {
+        return emailRegex;
+    }
+
+    public void setEmailRegex(String emailRegex) {
+        this.emailRegex = emailRegex;
+    }
+
+    public String getTelephoneNumberRegex() {
+        return telephoneNumberRegex;
+    }
+
+    public void setTelephoneNumberRegex(String telephoneNumberRegex) {
+        this.telephoneNumberRegex = telephoneNumberRegex;
+    }
+
+    public boolean isOutput() {
+        return output;
+    }
+
+    public void setOutput(boolean output) {
+        this.output = output;
+    }
+
+    public String getOutputFile() {
+        return outputFile;
+    }
+
+    public void setOutputFile(String outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) throws IllegalArgumentException {
+        this.format = parseOption(Format.class, format, "Format");
+    }
+
+    /**
+     * Validates that the url starts with a valid {@link Main#ALLOWED_PROTOCOLS} and is a valid url.
+     *
+     * @param url url to validate
+     * @throws IllegalArgumentException if url starts with not supported protocol or is not a valid url
+     */
+    private void validateUrlProtocol(String url) throws IllegalArgumentException {
+
+        for (String protocol : Main.ALLOWED_PROTOCOLS) {
+            if (url.startsWith(protocol)) {
+                Link.parse(url, false);
+                return;
+            }
+        }
+
+        throw new IllegalArgumentException("Only http and https protocol are supported");
+    }
+
+
+    /**
+     * Validate that the given depths is greater than or equal to 1.
+     *
+     * @param depth depth to be validated
+     * @throws IllegalArgumentException Is thrown if the depth is < 1.
+     */
+    private void validateDepth(int depth) throws IllegalArgumentException {
+        if (depth >= 1) return;
+
+        throw new IllegalArgumentException("Depth must be at least 1 or greater");
+    }
+
+
+    /**
+     * Validate that the number of threads is greater than or equal to 1.
+     *
+     * @param threads Number of threads
+     * @throws IllegalArgumentException Is thrown if number of threads is less than 1.
+     */
+    private void validateThreadNumber(int threads) throws IllegalArgumentException {
+        if (threads >= 1) return;
+
+        throw new IllegalArgumentException("Number of threads must be equal to 1 or greater");
+    }
+
+
+    /**
+     * Validate that the given value is greater than or equal to 1.
+     *
+     * @param value value to be validated
+     * @param name name of the option used in the error message
+     * @throws IllegalArgumentException Is thrown if the value is less than 1.
+     */
+    private void validatePositive(int value, String name) throws IllegalArgumentException {
+        if (value >= 1) return;
+
+        throw new IllegalArgumentException(name + " must be equal to 1 or greater");
+    }
+
+
+    /**
+     * Validate that the given regexes compile.
+     *
+     * @param regexes regexes to be validated
+     * @return the regexes
+     * @throws IllegalArgumentException Is thrown if a regex is invalid.
+     */
+    private List<String> validateRegexes(String[] regexes) throws IllegalArgumentException {
+        for (String regex : regexes) {
+            try {
+                Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid regex " + regex + ": " + e.getDescription());
+            }
+        }
+
+        return List.of(regexes);
+    }
+
+
+    /**
+     * Validate that the given value is greater than or equal to 0.
+     *
+     * @param value value to be validated
+     * @param name name of the option used in the error message
+     * @throws IllegalArgumentException Is thrown if the value is negative.
+     */
+    private void validateNotNegative(int value, String name) throws IllegalArgumentException {
+        if (value >= 0) return;
+
+        throw new IllegalArgumentException(name + " must not be negative");
+    }
+
+
+    /**
+     * Parses a number of bytes with an optional unit.
+     *
+     * @param value number of bytes, optionally followed by the unit K, M or G (powers of 1024)
+     * @param name name of the option used in the error message
+     * @return number of bytes
+     * @throws IllegalArgumentException Is thrown if the value is not a positive number with an optional unit.
+     */
+    private long parseSize(String value, String name) throws IllegalArgumentException {
+        String size = value.strip().toUpperCase();
+        long unit = 1;
+
+        if (!size.isEmpty()) {
+            switch (size.charAt(size.length() - 1)) {
+                case 'K' -> unit = 1024L;
+                case 'M' -> unit = 1024L * 1024;
+                case 'G' -> unit = 1024L * 1024 * 1024;
+                default -> unit = 1;
+            }
+            if (unit > 1) size = size.substring(0, size.length() - 1);
+        }
+
+        long bytes;
+        try {
+            bytes = Math.multiplyExact(Long.parseLong(size), unit);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException(name + " must be a number, optionally followed by K, M or G");
+        }
+
+        if (bytes < 1) throw new IllegalArgumentException(name + " must be equal to 1 or greater");
+
+        return bytes;
+    }
+
+
+    /**
+     * Maps the given value case-insensitively to the constant of the given enum with the same name.
+     *
+     * @param type enum containing the allowed values
+     * @param value value to be mapped
+     * @param name name of the option used in the error message
+     * @return the matching enum constant
+     * @throws IllegalArgumentException Is thrown if there is no constant with the given name.
+     */
+    private <E extends Enum<E>> E parseOption(Class<E> type, String value, String name) throws IllegalArgumentException {
+        for (E constant : type.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(value)) return constant;
+        }
+
+        StringBuilder allowed = new StringBuilder();
+        for (E constant : type.getEnumConstants()) {
+            if (allowed.length() > 0) allowed.append(", ");
+            allowed.append(constant.name().toLowerCase());
+        }
+
+        throw new IllegalArgumentException(name + " must be one of: " + allowed);
+    }
+
+
+}
@@ -0,0 +1,94 @@
+package spoder;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the total number of concurrent requests. Permits are handed out as futures, so callers can either block on
+ * them or continue asynchronously. The number of requests per host is limited by the {@link HostScheduler}.
+ */
+public class ConcurrencyLimiter {
+
+    private static final CompletableFuture<Void> GRANTED = CompletableFuture.completedFuture(null);
+
+    private final Permits total;
+
+    /**
+     * @param maxTotal maximum number of concurrent requests, 0 means unlimited
+     */
+    ConcurrencyLimiter(int maxTotal) {
+        this.total = maxTotal == 0 ? null : new Permits(maxTotal);
+    }
+
+
+    /**
+     * Acquires a permit.
+     *
+     * @return future that completes as soon as the permit has been granted
+     */
+    public CompletableFuture<Void> acquire() {
+        return total == null ? GRANTED : total.acquire();
+    }
+
+
+    /**
+     * Returns a permit previously acquired with {@link #acquire()}.
+     */
+    public void release() {
+        if (total != null) {
+            total.release();
+        }
+    }
+
+
+    /**
+     * Non-blocking counting semaphore. Waiters are completed in FIFO order.
+     */
+    private static class Permits {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+        private int available;
+
+        Permits(int available) {
+            this.available = available;
+        }
+
+        CompletableFuture<Void> acquire() {
+            lock.lock();
+            try {
+                if (available > 0) {
+                    available--;
+                    return GRANTED;
+                }
+
+                CompletableFuture<Void> waiter = new CompletableFuture<>();
+                waiters.add(waiter);
+                return waiter;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release() {
+            CompletableFuture<Void> next;
+
+            lock.lock();
+            try {
+                next = waiters.poll();
+                if (next == null) {
+                    available++;
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            //complete outside the lock, the waiter might directly continue with its request
+            next.complete(null);
+        }
+    }
+
+}
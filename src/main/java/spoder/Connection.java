@@ -0,0 +1,321 @@
+package spoder;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.URL;
+
+/**
+ * Class that allows to establish an HTTP / HTTPS connection. Every fetch opens a new connection,
+ * which is closed again as soon as the response has been read. Responses rejected by the {@link ContentFilter}
+ * are closed before their body is read, compressed bodies are decoded by the {@link ContentDecoder}. Pages stored in the
+ * {@link PageCache} are requested conditionally.
+ * <p>
+ * Connecting and every read are limited by the connect and the read timeout of the {@link FetchTimeouts}. A fetch
+ * that exceeds the total timeout, including the HEAD request probing its content type, is disconnected by the
+ * watchdog.
+ * <p>
+ * The host is resolved by the {@link HostResolver} before connecting, so the {@link TaskTrace} can tell the DNS lookup
+ * apart from the connect, which then finds the address in the cache of the JVM. Https sockets are created by a {@link TracingSocketFactory},
+ * which notes when the TCP connection is established and the TLS handshake starts.
+ */
+public class Connection implements FetchEngine {
+
+    private static final String REQUEST_METHOD = "GET";
+    private static final String PROBE_METHOD = "HEAD";
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 6.1; WOW64) AppleWebKit/537.11 (KHTML, like Gecko) Chrome/23.0.1271.95 Safari/537.11";
+    //stateless, the trace of the connecting thread is handed over in CONNECTING, so a single factory serves all fetches
+    private static final SSLSocketFactory SOCKET_FACTORY = new TracingSocketFactory(HttpsURLConnection.getDefaultSSLSocketFactory());
+    //trace of the connection the current thread is establishing, read by the socket factory
+    private static final ThreadLocal<TaskTrace> CONNECTING = new ThreadLocal<>();
+    private final String cookies;
+    private final ContentFilter contentFilter;
+    private final ContentDecoder contentDecoder;
+    private final PageCache pageCache;
+    private final FetchTimeouts timeouts;
+    private final HostResolver hostResolver;
+
+
+    Connection(String cookies, ContentFilter contentFilter, ContentDecoder contentDecoder, PageCache pageCache,
+               FetchTimeouts timeouts, HostResolver hostResolver) {
+        this.cookies = cookies;
+        this.contentFilter = contentFilter;
+        this.contentDecoder = contentDecoder;
+        this.pageCache = pageCache;
+        this.timeouts = timeouts;
+        this.hostResolver = hostResolver;
+    }
+
+
+    @Override
+    public FetchResponse fetch(Link link, TaskTrace trace) throws IOException {
+        if (contentFilter.skipsByExtension(link)) return FetchResponse.skipped();
+
+        long started = System.nanoTime();
+        trace.mark();
+        hostResolver.resolve(link.getHostName());
+        trace.lap(TaskTrace.Phase.DNS);
+
+        PageCache.Entry cached = pageCache.lookup(link);
+        //a cached page has been accepted before, so it does not need to be probed again
+        if (cached == null && contentFilter.needsProbe(link) && !probe(link, started, trace)) {
+            return FetchResponse.skipped();
+        }
+
+        HttpURLConnection connection = open(link, REQUEST_METHOD, cached, trace);
+        FetchTimeouts.Watch watch = timeouts.watch(link, started, connection::disconnect);
+        Runnable release = () -> {
+            watch.cancel();
+            connection.disconnect();
+        };
+
+        try {
+            //the request is only sent now, together with following the redirects
+            int statusCode = connection.getResponseCode();
+            trace.lap(TaskTrace.Phase.TTFB);
+            if (statusCode >= 400) {
+                throw new HttpStatusException(statusCode, link, connection.getHeaderField("Retry-After"));
+            }
+
+            //a 304 response has no body
+            if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return new FetchResponse(statusCode, connection::getHeaderField, InputStream.nullInputStream(), release);
+            }
+
+            if (!contentFilter.accepts(connection.getContentType())) {
+                release.run();
+                return FetchResponse.skipped();
+            }
+
+            return new FetchResponse(
+                    statusCode,
+                    connection::getHeaderField,
+                    watch.guard(connection.getInputStream()),
+                    release,
+                    received -> contentFilter.limit(contentDecoder.decode(received, connection.getContentEncoding())));
+        } catch (IOException e) {
+            release.run();
+            throw watch.translate(e);
+        }
+    }
+
+
+    /**
+     * Sends a HEAD request to find out whether the body of the link is worth fetching. The request counts against the
+     * total timeout of the fetch, and its connect and time to the first byte are added to the trace of the fetch.
+     *
+     * @param link link of website to probe
+     * @param started start of the fetch, in {@link System#nanoTime()}
+     * @param trace trace of the fetch
+     * @return false if the content type of the link is rejected by the content filter
+     * @throws IOException If the URL is malformed, there was an error connecting to the site or the site
+     *                     responded with an error status.
+     */
+    private boolean probe(Link link, long started, TaskTrace trace) throws IOException {
+        HttpURLConnection connection = open(link, PROBE_METHOD, null, trace);
+        FetchTimeouts.Watch watch = timeouts.watch(link, started, connection::disconnect);
+
+        try {
+            int statusCode = connection.getResponseCode();
+            trace.lap(TaskTrace.Phase.TTFB);
+            if (statusCode >= 400) {
+                throw new HttpStatusException(statusCode, link, connection.getHeaderField("Retry-After"));
+            }
+
+            return contentFilter.accepts(connection.getContentType());
+        } catch (IOException e) {
+            throw watch.translate(e);
+        } finally {
+            watch.cancel();
+            connection.disconnect();
+        }
+    }
+
+
+    /**
+     * Connects to the website specified by the given link via http or https, depending on its protocol.
+     *
+     * @param link link of website to connect to
+     * @param method request method
+     * @param cached cached page whose validators are sent, null for an unconditional request
+     * @param trace trace the connect is added to, null for none
+     * @return Connection object.
+     * @throws IOException If the URL is malformed or there was an error connecting to the site.
+     */
+    private HttpURLConnection open(Link link, String method, PageCache.Entry cached, TaskTrace trace) throws IOException {
+        if (link.toString().startsWith("http://")) {
+            return establishHttpConnection(link.toString(), method, cached, trace);
+        } else if (link.toString().startsWith("https://")) {
+            return establishHttpsConnection(link.toString(), method, cached, trace);
+        } else {
+            throw new MalformedURLException("Invalid Protocol");
+        }
+    }
+
+
+    /**
+     * Connects via https or Http to the website specified by the given link.
+     *
+     * @param link link of website to connect to
+     * @param method request method
+     * @param cached cached page whose validators are sent, null for an unconditional request
+     * @param trace trace the connect and the TLS handshake are added to, null for none
+     * @return Connection object.
+     * @throws IOException If the URL is malformed or there was an error connecting to the site.
+     */
+    public HttpsURLConnection establishHttpsConnection(String link, String method, PageCache.Entry cached,
+                                                      TaskTrace trace) throws IOException {
+        URL url = new URL(link);
+        HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
+        connection.setSSLSocketFactory(SOCKET_FACTORY);
+
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("User-Agent", USER_AGENT);
+        connection.setRequestProperty("Accept-Encoding", ContentDecoder.ACCEPT_ENCODING);
+
+        if (cookies != null) {
+            connection.setRequestProperty("Cookie", cookies);
+        }
+
+        if (cached != null && cached.etag() != null) {
+            connection.setRequestProperty("If-None-Match", cached.etag());
+        }
+
+        if (cached != null && cached.lastModified() != null) {
+            connection.setRequestProperty("If-Modified-Since", cached.lastModified());
+        }
+
+        connection.setInstanceFollowRedirects(true);
+        connection.setConnectTimeout(timeouts.getConnectTimeout());
+        connection.setReadTimeout(timeouts.getReadTimeout());
+        connect(connection, trace);
+
+        return connection;
+    }
+
+
+    /**
+     * Connects via http to the website specified by the given link.
+     *
+     * @param link link of website to connect to.
+     * @param method request method
+     * @param cached cached page whose validators are sent, null for an unconditional request
+     * @param trace trace the connect is added to, null for none
+     * @return Connection object.
+     * @throws IOException If the URL is malformed or there was an error connecting to site.
+     */
+    public HttpURLConnection establishHttpConnection(String link, String method, PageCache.Entry cached,
+                                                    TaskTrace trace) throws IOException {
+        URL url = new URL(link);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("User-Agent", USER_AGENT);
+        connection.setRequestProperty("Accept-Encoding", ContentDecoder.ACCEPT_ENCODING);
+
+        if (cookies != null) {
+            connection.setRequestProperty("Cookie", cookies);
+        }
+
+        if (cached != null && cached.etag() != null) {
+            connection.setRequestProperty("If-None-Match", cached.etag());
+        }
+
+        if (cached != null && cached.lastModified() != null) {
+            connection.setRequestProperty("If-Modified-Since", cached.lastModified());
+        }
+
+        connection.setInstanceFollowRedirects(true);
+        connection.setConnectTimeout(timeouts.getConnectTimeout());
+        connection.setReadTimeout(timeouts.getReadTimeout());
+        connect(connection, trace);
+
+        return connection;
+    }
+
+
+    /**
+     * Connects and adds the time it took to the trace, split into the TCP connect and the TLS handshake if the
+     * socket factory has noted the start of the handshake.
+     *
+     * @param connection connection to be connected
+     * @param trace trace the connect is added to, null for none
+     * @throws IOException if there was an error connecting to the site
+     */
+    private static void connect(HttpURLConnection connection, TaskTrace trace) throws IOException {
+        if (trace == null) {
+            connection.connect();
+            return;
+        }
+
+        trace.mark();
+        CONNECTING.set(trace);
+        try {
+            connection.connect();
+        } finally {
+            CONNECTING.remove();
+        }
+        trace.lapConnect();
+    }
+
+
+    /**
+     * Creates the sockets of the default factory and notes in the trace of the connecting thread when the TLS
+     * handshake starts.
+     * <p>
+     * Unconnected sockets are not supported, so https connections first connect a plain socket and then layer TLS on
+     * top of it with {@link #createSocket(Socket, String, int, boolean)}, which is called right before the handshake.
+     */
+    private static class TracingSocketFactory extends SSLSocketFactory {
+
+        private final SSLSocketFactory delegate;
+
+        TracingSocketFactory(SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+            TaskTrace trace = CONNECTING.get();
+            if (trace != null) trace.transportConnected();
+
+            return delegate.createSocket(socket, host, port, autoClose);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return delegate.createSocket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return delegate.createSocket(address, port, localAddress, localPort);
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+    }
+
+}
@@ -0,0 +1,280 @@
+package spoder;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decodes bodies sent with {@code Content-Encoding: gzip} or {@code deflate}, which the fetch engines ask for with
+ * {@link #ACCEPT_ENCODING}. Html usually compresses several times, so this saves most of the bandwidth of a crawl.
+ * <p>
+ * The {@link Inflater}s hold native memory, so they are pooled and reused instead of being created and ended for
+ * every response. The bytes received, the bytes they decode to and the time spent inflating are counted.
+ * <p>
+ * A body that ends in the middle of the compressed data, e.g. because it has been cut off at the maximum body size,
+ * ends where the data ends instead of failing.
+ */
+public class ContentDecoder {
+
+    /**
+     * Value of the Accept-Encoding header sent with every request.
+     */
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int POOL_SIZE = 64;
+
+    //gzip header, see RFC 1952
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    //inflaters for raw deflate data, used for gzip and for deflate sent without the zlib wrapper
+    private final BlockingQueue<Inflater> rawInflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+    //inflaters for zlib wrapped deflate data
+    private final BlockingQueue<Inflater> zlibInflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final LongAdder compressedResponses = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder decodedBytes = new LongAdder();
+    private final LongAdder inflateNanos = new LongAdder();
+
+
+    ContentDecoder() {
+    }
+
+
+    /**
+     * Decodes the given body according to its content encoding.
+     *
+     * @param body body as received
+     * @param contentEncoding value of the Content-Encoding header, null if the response has none
+     * @return the decoded body, closing it closes the given body
+     * @throws IOException if the content encoding is not supported or the gzip header is invalid
+     */
+    public InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        if (contentEncoding == null) return body;
+
+        String encoding = contentEncoding.strip().toLowerCase(Locale.ROOT);
+
+        return switch (encoding) {
+            case "", "identity" -> body;
+            case "gzip", "x-gzip" -> {
+                CountingInputStream counting = new CountingInputStream(body);
+                //e.g. the body of a 204 or 304 response
+                if (!skipGzipHeader(counting)) yield body;
+                yield new InflatingInputStream(counting, true, new byte[0]);
+            }
+            case "deflate" -> {
+                //deflate should be zlib wrapped, but some servers send the raw deflate data
+                CountingInputStream counting = new CountingInputStream(body);
+                byte[] header = counting.readNBytes(2);
+                boolean zlib = header.length == 2
+                        && (header[0] & 0x0F) == 8
+                        && (((header[0] & 0xFF) << 8) | (header[1] & 0xFF)) % 31 == 0;
+                yield new InflatingInputStream(counting, !zlib, header);
+            }
+            default -> throw new IOException("Unsupported content encoding: " + contentEncoding);
+        };
+    }
+
+
+    public long getCompressedResponses() {
+        return compressedResponses.sum();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    public long getDecodedBytes() {
+        return decodedBytes.sum();
+    }
+
+    public long getInflateNanos() {
+        return inflateNanos.sum();
+    }
+
+
+    /**
+     * Reads the gzip header up to the start of the deflate data.
+     *
+     * @param in body positioned at the start of the gzip header
+     * @return false if the body is empty
+     * @throws IOException if the body does not start with a valid gzip header
+     */
+    private static boolean skipGzipHeader(InputStream in) throws IOException {
+        int first = in.read();
+        if (first == -1) return false;
+
+        if ((first | (readUnsignedByte(in) << 8)) != GZIP_MAGIC) throw new ZipException("Not in GZIP format");
+        if (readUnsignedByte(in) != 8) throw new ZipException("Unsupported compression method");
+
+        int flags = readUnsignedByte(in);
+        //modification time, extra flags and operating system
+        in.skipNBytes(6);
+
+        if ((flags & FEXTRA) == FEXTRA) in.skipNBytes(readUnsignedShort(in));
+        if ((flags & FNAME) == FNAME) skipZeroTerminated(in);
+        if ((flags & FCOMMENT) == FCOMMENT) skipZeroTerminated(in);
+        if ((flags & FHCRC) == FHCRC) in.skipNBytes(2);
+
+        return true;
+    }
+
+
+    private static void skipZeroTerminated(InputStream in) throws IOException {
+        while (readUnsignedByte(in) != 0) {
+            //skip
+        }
+    }
+
+
+    private static int readUnsignedShort(InputStream in) throws IOException {
+        return readUnsignedByte(in) | (readUnsignedByte(in) << 8);
+    }
+
+
+    private static int readUnsignedByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) throw new EOFException("Unexpected end of GZIP header");
+        return b;
+    }
+
+
+    private Inflater acquire(boolean raw) {
+        Inflater inflater = (raw ? rawInflaters : zlibInflaters).poll();
+        return inflater != null ? inflater : new Inflater(raw);
+    }
+
+
+    private void release(Inflater inflater, boolean raw) {
+        inflater.reset();
+        if (!(raw ? rawInflaters : zlibInflaters).offer(inflater)) inflater.end();
+    }
+
+
+    /**
+     * Inflates the deflate data of a body with a pooled inflater, which is returned to the pool when the stream is
+     * closed. Anything after the end of the deflate data, e.g. the gzip trailer, is ignored.
+     */
+    private class InflatingInputStream extends InputStream {
+
+        private final CountingInputStream in;
+        private final boolean raw;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private Inflater inflater;
+        private boolean finished = false;
+
+        /**
+         * @param in compressed body, positioned after the bytes already read
+         * @param raw whether the deflate data is raw or zlib wrapped
+         * @param initial bytes of the deflate data that have already been read from the body
+         */
+        InflatingInputStream(CountingInputStream in, boolean raw, byte[] initial) {
+            this.in = in;
+            this.raw = raw;
+            this.inflater = acquire(raw);
+            if (initial.length > 0) inflater.setInput(initial);
+            compressedResponses.increment();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (inflater == null) throw new IOException("Stream closed");
+            if (length == 0) return 0;
+
+            while (!finished) {
+                long started = System.nanoTime();
+                int inflated;
+                try {
+                    inflated = inflater.inflate(target, offset, length);
+                } catch (DataFormatException e) {
+                    throw new ZipException(e.getMessage());
+                } finally {
+                    inflateNanos.add(System.nanoTime() - started);
+                }
+
+                if (inflated > 0) {
+                    decodedBytes.add(inflated);
+                    return inflated;
+                }
+
+                if (inflater.finished() || inflater.needsDictionary()) {
+                    finished = true;
+                } else if (inflater.needsInput()) {
+                    int read = in.read(buffer, 0, buffer.length);
+                    //the body has been cut off, everything inflated so far is kept
+                    if (read == -1) {
+                        finished = true;
+                    } else {
+                        inflater.setInput(buffer, 0, read);
+                    }
+                }
+            }
+
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (inflater == null) return;
+
+            compressedBytes.add(in.count);
+            release(inflater, raw);
+            inflater = null;
+            in.close();
+        }
+    }
+
+
+    /**
+     * Counts the compressed bytes of a body.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            int read = super.read(target, offset, length);
+            if (read > 0) count += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+}
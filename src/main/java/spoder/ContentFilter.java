@@ -0,0 +1,293 @@
+package spoder;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which responses are worth reading, before their body is downloaded.
+ * <p>
+ * Only text can contain links, emails and phone numbers, so links whose extension names a binary format (images,
+ * archives, media, ...) are not requested at all, and responses whose {@code Content-Type} is not textual are closed
+ * without reading their body. Links without a known extension can optionally be probed with a HEAD request first.
+ * The body of every response is read up to a maximum size; larger bodies are cut off and their connection is aborted
+ * instead of being drained.
+ */
+public class ContentFilter {
+
+    private static final Set<String> BINARY_EXTENSIONS = Set.of(
+            "png", "jpg", "jpeg", "gif", "webp", "bmp", "ico", "tif", "tiff", "svg",
+            "mp3", "mp4", "m4a", "m4v", "avi", "mov", "mkv", "webm", "wav", "ogg", "flac",
+            "pdf", "doc", "docx", "xls", "xlsx", "ppt", "pptx", "odt",
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "tar", "jar", "apk", "exe", "msi", "dmg", "iso", "bin",
+            "woff", "woff2", "ttf", "otf", "eot");
+
+    private static final Set<String> PAGE_EXTENSIONS = Set.of(
+            "", "html", "htm", "xhtml", "shtml", "php", "asp", "aspx", "jsp", "cgi", "pl", "txt");
+
+    private final boolean allContentTypes;
+    private final long maxBodySize;
+    private final boolean headProbe;
+    private final boolean stopAtHtmlEnd;
+
+    private final AtomicLong skipped = new AtomicLong(0);
+    private final AtomicLong truncated = new AtomicLong(0);
+
+    /**
+     * @param allContentTypes whether all responses are read regardless of their extension and content type
+     * @param maxBodySize maximum number of bytes read from a single body
+     * @param headProbe whether links without a known extension are probed with a HEAD request
+     * @param stopAtHtmlEnd whether a page is only read until its closing html tag
+     */
+    ContentFilter(boolean allContentTypes, long maxBodySize, boolean headProbe, boolean stopAtHtmlEnd) {
+        this.allContentTypes = allContentTypes;
+        this.maxBodySize = maxBodySize;
+        this.headProbe = headProbe && !allContentTypes;
+        this.stopAtHtmlEnd = stopAtHtmlEnd;
+    }
+
+
+    /**
+     * Checks whether the link can be skipped without a request, because its extension names a binary format.
+     * The link is counted as skipped if so.
+     *
+     * @param link link to be fetched
+     * @return true if the link must not be requested
+     */
+    public boolean skipsByExtension(Link link) {
+        if (allContentTypes || !BINARY_EXTENSIONS.contains(extension(link))) return false;
+
+        skipped.incrementAndGet();
+        return true;
+    }
+
+
+    /**
+     * Checks whether the content type of the link should be probed with a HEAD request before it is fetched.
+     *
+     * @param link link to be fetched
+     * @return true if probing is enabled and the extension of the link does not tell whether it is a page
+     */
+    public boolean needsProbe(Link link) {
+        return headProbe && !PAGE_EXTENSIONS.contains(extension(link));
+    }
+
+
+    /**
+     * Checks whether a response with the given content type can contain links, emails or phone numbers.
+     * Responses that cannot are counted as skipped.
+     *
+     * @param contentType value of the Content-Type header, null if the response has none
+     * @return true if the body should be read
+     */
+    public boolean accepts(String contentType) {
+        if (allContentTypes || contentType == null || isText(contentType)) return true;
+
+        skipped.incrementAndGet();
+        return false;
+    }
+
+
+    /**
+     * Limits the given body to the maximum body size. Reading the returned stream ends after the maximum number of
+     * bytes, even if the body is longer.
+     *
+     * @param body body of a response
+     * @return stream that ends after at most the maximum body size
+     */
+    public InputStream limit(InputStream body) {
+        return new LimitedInputStream(body);
+    }
+
+
+    /**
+     * Creates a body handler for the asynchronous {@link java.net.http.HttpClient}, which decides on the status and
+     * the headers whether the body is read at all and reads at most the maximum body size of it.
+     * The body of error responses and of responses that are not accepted is not downloaded.
+     *
+     * @return body handler that completes with the (possibly truncated) body, or with null if the body has not
+     * been read
+     */
+    public HttpResponse.BodyHandler<byte[]> bodyHandler() {
+        return info -> {
+            boolean read = info.statusCode() < 400 && accepts(info.headers().firstValue("Content-Type").orElse(null));
+            return new LimitedBodySubscriber(read ? maxBodySize : 0);
+        };
+    }
+
+
+    public boolean isStopAtHtmlEnd() {
+        return stopAtHtmlEnd;
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getTruncated() {
+        return truncated.get();
+    }
+
+
+    /**
+     * Checks whether the media type of the given content type is text, xml, json or javascript.
+     */
+    private static boolean isText(String contentType) {
+        int end = contentType.indexOf(';');
+        String type = (end == -1 ? contentType : contentType.substring(0, end)).strip().toLowerCase(Locale.ROOT);
+
+        return type.isEmpty()
+                || type.startsWith("text/")
+                || type.endsWith("/xml") || type.endsWith("+xml")
+                || type.endsWith("/json") || type.endsWith("+json")
+                || type.equals("application/javascript");
+    }
+
+
+    /**
+     * Returns the lower case extension of the last path segment of the link, or an empty string if it has none.
+     */
+    static String extension(Link link) {
+        String path = link.getPath();
+        int dot = path.lastIndexOf('.');
+
+        if (dot == -1 || dot < path.lastIndexOf('/')) return "";
+
+        return path.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+
+    /**
+     * Ends after the maximum body size and counts the body as truncated if there would have been more.
+     */
+    private class LimitedInputStream extends FilterInputStream {
+
+        private long remaining = maxBodySize;
+
+        LimitedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return atLimit();
+
+            int b = super.read();
+            if (b != -1) remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (remaining <= 0) return atLimit();
+
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) remaining -= read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skippedBytes = super.skip(Math.min(n, Math.max(remaining, 0)));
+            remaining -= skippedBytes;
+            return skippedBytes;
+        }
+
+        /**
+         * Reports the end of the stream once the limit is reached. A single byte is read to tell a body of exactly
+         * the maximum size from a longer one.
+         */
+        private int atLimit() throws IOException {
+            if (remaining == 0) {
+                remaining = -1;
+                if (super.read() != -1) truncated.incrementAndGet();
+            }
+            return -1;
+        }
+    }
+
+
+    /**
+     * Collects the body of an asynchronous response up to a limit. Once the limit is reached, the subscription is
+     * cancelled, which aborts the download, and the collected bytes are used as the body. A limit of 0 cancels the
+     * download right away and completes with null.
+     */
+    private class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private final long limit;
+        private Flow.Subscription subscription;
+        private byte[] bytes = new byte[0];
+        private int size = 0;
+
+        LimitedBodySubscriber(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+
+            if (limit == 0) {
+                subscription.cancel();
+                body.complete(null);
+                return;
+            }
+
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (body.isDone()) return;
+
+            for (ByteBuffer buffer : buffers) {
+                if (size + buffer.remaining() > limit) {
+                    append(buffer, (int) (limit - size));
+                    truncated.incrementAndGet();
+                    subscription.cancel();
+                    body.complete(Arrays.copyOf(bytes, size));
+                    return;
+                }
+
+                append(buffer, buffer.remaining());
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(Arrays.copyOf(bytes, size));
+        }
+
+        private void append(ByteBuffer buffer, int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + length, Math.max(1024, 2 * bytes.length)));
+            }
+
+            buffer.get(bytes, size, length);
+            size += length;
+        }
+    }
+
+}
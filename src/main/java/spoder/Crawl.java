@@ -0,0 +1,422 @@
+package spoder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Wires the components of a single crawl together according to the given command line arguments.
+ */
+public class Crawl {
+
+    //hosts of queued links resolved at the same time, lookups mostly wait for the DNS server
+    private static final int DNS_PREFETCH_THREADS = 8;
+
+    private final CommandLineArguments commandLineArguments;
+    private final ContentFilter contentFilter;
+    private final ContentDecoder contentDecoder;
+    private final PageCache pageCache;
+    private final FetchTimeouts timeouts;
+    private final HostResolver hostResolver;
+    private final FetchEngine fetchEngine;
+    private final ConcurrencyLimiter limiter;
+    private final CrawlBudget budget;
+    private final Parser parser;
+    private final Frontier frontier;
+    private final HostScheduler hostScheduler;
+    private final RetryPolicy retryPolicy;
+    private final CrawlScope scope;
+    private final ThreadPoolManager threadPoolManager;
+    private final Tracer tracer;
+    private final CrawlMetrics metrics;
+    private final Checkpoint checkpoint;
+    private final Checkpoint.State resumeState;
+
+    /**
+     * @param commandLineArguments parsed command line arguments
+     * @throws IOException if the directory of the frontier cannot be created, the checkpoint cannot be opened or
+     *                     compacted or the page cache cannot be read, the port of the metrics is in use or the flight recording
+     *                     cannot be written
+     */
+    Crawl(CommandLineArguments commandLineArguments) throws IOException {
+        this.commandLineArguments = commandLineArguments;
+        this.contentFilter = new ContentFilter(
+                commandLineArguments.isAllContentTypes(),
+                commandLineArguments.getMaxBodySize(),
+                commandLineArguments.isHeadProbe(),
+                commandLineArguments.isStopAtHtmlEnd());
+        this.contentDecoder = new ContentDecoder();
+        this.pageCache = new PageCache(
+                commandLineArguments.getCacheDirectory() == null ? null : Path.of(commandLineArguments.getCacheDirectory()),
+                commandLineArguments.isSortQueryParameters());
+        this.timeouts = new FetchTimeouts(
+                commandLineArguments.getConnectTimeout(),
+                commandLineArguments.getReadTimeout(),
+                commandLineArguments.getTotalTimeout());
+        this.hostResolver = new HostResolver(
+                commandLineArguments.getDnsTtl(),
+                commandLineArguments.getDnsCacheSize(),
+                DNS_PREFETCH_THREADS);
+        this.fetchEngine = createFetchEngine(commandLineArguments, contentFilter, contentDecoder, pageCache, timeouts,
+                hostResolver);
+        this.limiter = new ConcurrencyLimiter(commandLineArguments.getMaxConnections());
+        this.budget = new CrawlBudget(
+                commandLineArguments.getMaxPages(),
+                commandLineArguments.getMaxBytes(),
+                commandLineArguments.getMaxDuration() * 1000L,
+                commandLineArguments.getMaxFrontierSize());
+        this.parser = new Parser(
+                commandLineArguments.getLinkRegex(),
+                commandLineArguments.getEmailRegex(),
+                commandLineArguments.getTelephoneNumberRegex(),
+                createLinkDeduplicator(commandLineArguments),
+                false);
+        this.frontier = new Frontier(
+                commandLineArguments.getFrontierSize(),
+                commandLineArguments.getFrontierDirectory() == null ? null : Path.of(commandLineArguments.getFrontierDirectory()),
+                commandLineArguments.isSortQueryParameters(),
+                createPriority(commandLineArguments));
+        int maxActiveTasks = maxActiveTasks(commandLineArguments);
+        //links sorted into the queues of the hosts are crawled in the order they were taken, so only a few
+        //more than can be active are taken, to keep the order of the frontier
+        this.hostScheduler = new HostScheduler(
+                frontier,
+                Math.min(commandLineArguments.getFrontierSize(), 2 * maxActiveTasks),
+                commandLineArguments.getMaxConnectionsPerHost() > 0
+                        ? commandLineArguments.getMaxConnectionsPerHost()
+                        : maxActiveTasks);
+        this.retryPolicy = new RetryPolicy(commandLineArguments.getRetries(), commandLineArguments.getRetryDelay());
+        this.scope = new CrawlScope(
+                Link.parse(commandLineArguments.getUrl(), commandLineArguments.isSortQueryParameters()),
+                commandLineArguments.getScope(),
+                commandLineArguments.getExcludedExtensions(),
+                commandLineArguments.getMaxQueryParameters(),
+                commandLineArguments.getIncludeGlobs(),
+                commandLineArguments.getIncludeRegexes(),
+                commandLineArguments.getExcludeGlobs(),
+                commandLineArguments.getExcludeRegexes());
+        this.threadPoolManager = new ThreadPoolManager(
+                commandLineArguments.getNumberOfThreads(),
+                commandLineArguments.getExecutor() == CommandLineArguments.Executor.VIRTUAL,
+                frontier,
+                hostScheduler,
+                maxActiveTasks,
+                budget,
+                retryPolicy,
+                hostResolver,
+                scope);
+        this.tracer = new Tracer(commandLineArguments.getJfrFile() == null ? null : Path.of(commandLineArguments.getJfrFile()));
+        this.metrics = new CrawlMetrics(budget, threadPoolManager, parser.getLinkDeduplicator(), tracer, hostResolver);
+        metrics.serve(commandLineArguments.getMetricsPort());
+
+        if (commandLineArguments.getCheckpointDirectory() != null) {
+            Path directory = Path.of(commandLineArguments.getCheckpointDirectory());
+            boolean exists = Checkpoint.exists(directory);
+
+            if (exists && !commandLineArguments.isResume()) {
+                throw new IOException(directory + " already contains a checkpoint, use --resume to continue it");
+            }
+
+            this.resumeState = exists ? Checkpoint.read(directory, commandLineArguments.isSortQueryParameters()) : null;
+            if (exists) Checkpoint.compact(directory, resumeState);
+            this.checkpoint = new Checkpoint(directory);
+            threadPoolManager.setTaskListener(checkpoint);
+        } else {
+            this.resumeState = null;
+            this.checkpoint = null;
+        }
+    }
+
+
+    /**
+     * Starts crawling at the url given by the command line arguments, or, if a checkpoint is resumed, continues with
+     * the links that were pending when the checkpoint was written.
+     */
+    public void start() {
+        hostResolver.install();
+        metrics.startProgress(commandLineArguments.getProgressInterval());
+
+        //registered last, so a result is only recorded in the checkpoint once the other listeners, e.g. the output,
+        //have received it, and a result that gets lost when the crawl is stopped is found again after resuming
+        if (checkpoint != null) parser.addResultListener(checkpoint);
+
+        if (commandLineArguments.isAsync()) {
+            AsyncCrawler crawler = new AsyncCrawler(
+                    threadPoolManager,
+                    parser,
+                    (HttpClientConnection) fetchEngine,
+                    limiter,
+                    budget,
+                    contentFilter,
+                    pageCache,
+                    metrics,
+                    tracer);
+            threadPoolManager.setWorker(crawler::fetch);
+        } else {
+            threadPoolManager.setWorker(entry -> threadPoolManager.getExecutor().execute(new Scanner(
+                    threadPoolManager,
+                    parser,
+                    fetchEngine,
+                    limiter,
+                    budget,
+                    contentFilter,
+                    pageCache,
+                    metrics,
+                    tracer,
+                    entry.link(),
+                    entry.depth())));
+        }
+
+        budget.start(threadPoolManager::drain);
+
+        if (resumeState != null) {
+            resume();
+            return;
+        }
+
+        Link startLink = Link.parse(commandLineArguments.getUrl(), commandLineArguments.isSortQueryParameters());
+        parser.markCollected(startLink);
+        threadPoolManager.schedule(startLink, commandLineArguments.getDepth());
+    }
+
+
+    /**
+     * Blocks until all links have been crawled or the crawl has been interrupted, then closes the frontier and the
+     * checkpoint, writes the page cache and the flight recording and stops reporting the metrics, the watchdog of the
+     * timeouts and the DNS cache.
+     *
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public void awaitTermination() throws InterruptedException {
+        threadPoolManager.awaitTermination();
+        metrics.close();
+        tracer.close();
+        timeouts.close();
+        hostResolver.close();
+
+        try {
+            frontier.close();
+            if (checkpoint != null) checkpoint.close();
+            pageCache.close();
+        } catch (IOException e) {
+            System.err.println("ERROR: " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Stops the crawl.
+     */
+    public void interrupt() {
+        threadPoolManager.interrupt();
+    }
+
+
+    /**
+     * Returns the parser, which holds the links, emails and phone numbers found so far.
+     *
+     * @return parser of the crawl
+     */
+    public Parser getParser() {
+        return parser;
+    }
+
+
+    /**
+     * Returns the budget of the crawl, which tells whether and why the crawl has been ended early.
+     *
+     * @return budget of the crawl
+     */
+    public CrawlBudget getBudget() {
+        return budget;
+    }
+
+
+    /**
+     * Returns the content filter of the crawl, which counts the skipped and truncated responses.
+     *
+     * @return content filter of the crawl
+     */
+    public ContentFilter getContentFilter() {
+        return contentFilter;
+    }
+
+
+    /**
+     * Returns the decoder of compressed responses, which counts the bytes received and decoded.
+     *
+     * @return content decoder of the crawl
+     */
+    public ContentDecoder getContentDecoder() {
+        return contentDecoder;
+    }
+
+
+    /**
+     * Returns the metrics of the crawl, which count the pages and time their fetching and parsing.
+     *
+     * @return metrics of the crawl
+     */
+    public CrawlMetrics getMetrics() {
+        return metrics;
+    }
+
+
+    /**
+     * Returns the tracer of the crawl, which keeps the durations of the phases of the crawled links.
+     *
+     * @return tracer of the crawl
+     */
+    public Tracer getTracer() {
+        return tracer;
+    }
+
+
+    /**
+     * Returns the retry policy of the crawl, which counts the retries and the links given up.
+     *
+     * @return retry policy of the crawl
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+
+    /**
+     * Returns the host scheduler of the crawl, which counts the opened circuits and the unreachable hosts.
+     *
+     * @return host scheduler of the crawl
+     */
+    public HostScheduler getHostScheduler() {
+        return hostScheduler;
+    }
+
+
+    /**
+     * Returns the scope of the crawl, which counts the links that have not been crawled because they were out of scope.
+     *
+     * @return scope of the crawl
+     */
+    public CrawlScope getScope() {
+        return scope;
+    }
+
+
+    /**
+     * Returns the DNS cache of the crawl, which counts the hosts found in the cache and the hosts resolved.
+     *
+     * @return DNS cache of the crawl
+     */
+    public HostResolver getHostResolver() {
+        return hostResolver;
+    }
+
+
+    /**
+     * Returns the page cache of the crawl, which counts the conditional requests and the pages not modified.
+     *
+     * @return page cache of the crawl
+     */
+    public PageCache getPageCache() {
+        return pageCache;
+    }
+
+
+    /**
+     * Restores the results of the checkpoint and schedules the links that were pending.
+     */
+    private void resume() {
+        parser.restore(resumeState.links(), resumeState.emails(), resumeState.phoneNumbers());
+
+        System.err.println("Resuming with " + resumeState.pending().size() + " pending links, "
+                + resumeState.links().size() + " links found so far");
+
+        if (resumeState.pending().isEmpty()) {
+            //nothing will ever finish, so the crawl has to be ended here
+            threadPoolManager.interrupt();
+            return;
+        }
+
+        threadPoolManager.restore(resumeState.pending());
+    }
+
+
+    /**
+     * Creates the fetch engine selected by the command line arguments.
+     *
+     * @param commandLineArguments parsed command line arguments
+     * @param contentFilter filter deciding which responses are read
+     * @param contentDecoder decoder of compressed responses
+     * @param pageCache cache of the pages that are requested conditionally
+     * @param timeouts timeouts of the requests
+     * @param hostResolver cache of the addresses of the hosts
+     * @return the selected fetch engine
+     */
+    private static FetchEngine createFetchEngine(CommandLineArguments commandLineArguments, ContentFilter contentFilter,
+                                                 ContentDecoder contentDecoder, PageCache pageCache,
+                                                 FetchTimeouts timeouts, HostResolver hostResolver) {
+        return switch (commandLineArguments.getEngine()) {
+            case LEGACY -> new Connection(commandLineArguments.getCookies(), contentFilter, contentDecoder, pageCache,
+                    timeouts, hostResolver);
+            case HTTPCLIENT -> new HttpClientConnection(commandLineArguments.getCookies(), contentFilter, contentDecoder,
+                    pageCache, timeouts, hostResolver);
+        };
+    }
+
+
+    /**
+     * Determines how many links are crawled at the same time: one per thread of the pool, or, since virtual threads
+     * and asynchronous requests are not limited by threads, the maximum number of connections or requests in flight.
+     *
+     * @param commandLineArguments parsed command line arguments
+     * @return maximum number of active tasks
+     */
+    private static int maxActiveTasks(CommandLineArguments commandLineArguments) {
+        if (commandLineArguments.isAsync()) return commandLineArguments.getMaxInFlight();
+
+        if (commandLineArguments.getExecutor() == CommandLineArguments.Executor.VIRTUAL) {
+            return commandLineArguments.getMaxConnections() > 0
+                    ? commandLineArguments.getMaxConnections()
+                    : Main.DEFAULT_VIRTUAL_MAX_CONNECTIONS;
+        }
+
+        return commandLineArguments.getNumberOfThreads();
+    }
+
+
+    /**
+     * Creates the priority of the links in the frontier for the order selected by the command line arguments.
+     *
+     * @param commandLineArguments parsed command line arguments
+     * @return priority of the links, null for first-in-first-out
+     */
+    private static ToDoubleFunction<Frontier.Entry> createPriority(CommandLineArguments commandLineArguments) {
+        return switch (commandLineArguments.getOrder()) {
+            case FIFO -> null;
+            //the remaining depth is higher the closer to the start page a link has been found
+            case BFS -> Frontier.Entry::depth;
+            case BEST -> new LinkScorer(
+                    Link.parse(commandLineArguments.getUrl(), commandLineArguments.isSortQueryParameters()),
+                    commandLineArguments.getKeywords());
+            case RANDOM -> entry -> ThreadLocalRandom.current().nextDouble();
+        };
+    }
+
+
+    /**
+     * Creates the link deduplicator selected by the command line arguments.
+     *
+     * @param commandLineArguments parsed command line arguments
+     * @return the selected deduplicator
+     */
+    private static LinkDeduplicator createLinkDeduplicator(CommandLineArguments commandLineArguments) {
+        long memoryBudget = commandLineArguments.getDedupMemory() * 1024L * 1024L;
+
+        return switch (commandLineArguments.getDedup()) {
+            case EXACT -> new FingerprintSet(memoryBudget);
+            case BLOOM -> new ScalableBloomFilter(commandLineArguments.getDedupFalsePositiveRate(), memoryBudget);
+        };
+    }
+
+}
@@ -0,0 +1,134 @@
+package spoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Caps the cost of a crawl: the number of pages fetched, the number of bytes downloaded, the wall-clock duration
+ * and the number of links waiting in the frontier.
+ * <p>
+ * The checks on the hot path are a single atomic operation each. When the pages, the bytes or the time are used up,
+ * the crawl is ended gracefully: no further links are handed out, the pages in progress are finished and everything
+ * found so far is kept. When the frontier is full, newly found links are dropped instead of being queued.
+ */
+public class CrawlBudget {
+
+    /**
+     * Budgets that can run out.
+     */
+    public enum Limit {
+        PAGES, BYTES, DURATION
+    }
+
+    private final long maxPages;
+    private final long maxBytes;
+    private final long maxDurationMillis;
+    private final long maxFrontierSize;
+
+    private final AtomicLong pages = new AtomicLong(0);
+    private final AtomicLong bytes = new AtomicLong(0);
+    private final AtomicLong droppedLinks = new AtomicLong(0);
+    private final AtomicReference<Limit> exhausted = new AtomicReference<>();
+
+    private volatile Runnable onExhausted = () -> {};
+
+    /**
+     * @param maxPages maximum number of pages fetched, 0 for unlimited
+     * @param maxBytes maximum number of bytes downloaded, 0 for unlimited
+     * @param maxDurationMillis maximum duration of the crawl in milliseconds, 0 for unlimited
+     * @param maxFrontierSize maximum number of links waiting to be crawled, 0 for unlimited
+     */
+    CrawlBudget(long maxPages, long maxBytes, long maxDurationMillis, long maxFrontierSize) {
+        this.maxPages = maxPages <= 0 ? Long.MAX_VALUE : maxPages;
+        this.maxBytes = maxBytes <= 0 ? Long.MAX_VALUE : maxBytes;
+        this.maxDurationMillis = maxDurationMillis;
+        this.maxFrontierSize = maxFrontierSize <= 0 ? Long.MAX_VALUE : maxFrontierSize;
+    }
+
+
+    /**
+     * Starts the clock of the duration budget.
+     *
+     * @param onExhausted called once, on the thread that used up the budget, when a budget has run out
+     */
+    public void start(Runnable onExhausted) {
+        this.onExhausted = onExhausted;
+
+        if (maxDurationMillis > 0) {
+            CompletableFuture.delayedExecutor(maxDurationMillis, TimeUnit.MILLISECONDS)
+                    .execute(() -> exhaust(Limit.DURATION));
+        }
+    }
+
+
+    /**
+     * Counts a page that is about to be fetched.
+     *
+     * @return false if the page would exceed the budget, in which case it must not be fetched
+     */
+    public boolean tryAcquirePage() {
+        if (exhausted.get() != null) return false;
+
+        if (pages.incrementAndGet() > maxPages) {
+            pages.decrementAndGet();
+            exhaust(Limit.PAGES);
+            return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Counts the bytes downloaded for a page.
+     *
+     * @param downloaded number of bytes
+     */
+    public void addBytes(long downloaded) {
+        if (bytes.addAndGet(downloaded) >= maxBytes) exhaust(Limit.BYTES);
+    }
+
+
+    /**
+     * Checks whether another link may be queued. Links that may not are counted as dropped.
+     *
+     * @param frontierSize number of links currently waiting to be crawled
+     * @return true if the link may be queued
+     */
+    public boolean admitLink(long frontierSize) {
+        if (frontierSize < maxFrontierSize) return true;
+
+        droppedLinks.incrementAndGet();
+        return false;
+    }
+
+
+    /**
+     * Returns the budget that has run out first.
+     *
+     * @return the exhausted budget, or null if all budgets are left
+     */
+    public Limit getExhausted() {
+        return exhausted.get();
+    }
+
+    public long getPages() {
+        return pages.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getDroppedLinks() {
+        return droppedLinks.get();
+    }
+
+
+    private void exhaust(Limit limit) {
+        if (exhausted.compareAndSet(null, limit)) onExhausted.run();
+    }
+
+}
@@ -0,0 +1,289 @@
+package spoder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live instrumentation of a crawl: counters of the pages fetched and failed, histograms of the fetch latency and the
+ * parse time, and the current number of pending links, active tasks and links seen.
+ * <p>
+ * The counters and histograms are recorded by the crawling threads without locking. The gauges are read from the
+ * components of the crawl only when the metrics are reported: periodically as a progress line on stderr, so it does
+ * not mix with the results streamed to stdout, and on request as JSON ({@code /metrics.json}) or in the Prometheus
+ * text format ({@code /metrics}) from an HTTP endpoint bound to the loopback interface. The endpoint also serves the
+ * slowest and the most recent traces of the {@link Tracer} ({@code /traces.json}). The hit rate of the
+ * {@link HostResolver} is reported as well.
+ */
+public class CrawlMetrics implements Closeable {
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+
+    private final CrawlBudget budget;
+    private final ThreadPoolManager threadPoolManager;
+    private final LinkDeduplicator linkDeduplicator;
+    private final Tracer tracer;
+    private final HostResolver hostResolver;
+
+    private final LongAdder pagesFetched = new LongAdder();
+    private final LongAdder pagesFailed = new LongAdder();
+    private final Histogram fetchLatency = new Histogram();
+    private final Histogram parseTime = new Histogram();
+
+    private final long started = System.nanoTime();
+    private ScheduledExecutorService reporter;
+    private HttpServer server;
+
+    //progress at the last report, only accessed by the reporter thread
+    private long lastReportPages = 0;
+    private long lastReportNanos = started;
+
+    /**
+     * @param budget budget of the crawl, which counts the bytes received
+     * @param threadPoolManager thread pool manager of the crawl, which counts the pending and the active tasks
+     * @param linkDeduplicator deduplicator of the crawl, which counts the links seen
+     * @param tracer tracer of the crawl, which keeps the traces of the tasks
+     * @param hostResolver DNS cache of the crawl, which counts the hits and misses
+     */
+    CrawlMetrics(CrawlBudget budget, ThreadPoolManager threadPoolManager, LinkDeduplicator linkDeduplicator,
+                 Tracer tracer, HostResolver hostResolver) {
+        this.budget = budget;
+        this.threadPoolManager = threadPoolManager;
+        this.linkDeduplicator = linkDeduplicator;
+        this.tracer = tracer;
+        this.hostResolver = hostResolver;
+    }
+
+
+    /**
+     * Starts serving the metrics from an HTTP endpoint on the loopback interface.
+     *
+     * @param port port of the endpoint, 0 for none
+     * @throws IOException if the port cannot be bound
+     */
+    public void serve(int port) throws IOException {
+        if (port <= 0) return;
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> respond(exchange, "text/plain; version=0.0.4", toPrometheus()));
+        server.createContext("/metrics.json", exchange -> respond(exchange, "application/json", toJson()));
+        server.createContext("/traces.json", exchange -> respond(exchange, "application/json", tracer.toJson()));
+        server.start();
+    }
+
+
+    /**
+     * Starts printing the progress line.
+     *
+     * @param progressIntervalSeconds seconds between two progress lines, 0 for none
+     */
+    public void startProgress(int progressIntervalSeconds) {
+        if (progressIntervalSeconds > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(() -> System.err.println(progressLine()),
+                    progressIntervalSeconds, progressIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+
+    /**
+     * Records a page whose response has been received.
+     *
+     * @param latencyNanos time until the response was received
+     */
+    public void pageFetched(long latencyNanos) {
+        pagesFetched.increment();
+        fetchLatency.record(latencyNanos);
+    }
+
+
+    /**
+     * Records a page that could not be fetched or read.
+     */
+    public void pageFailed() {
+        pagesFailed.increment();
+    }
+
+
+    /**
+     * Records the time spent reading and parsing the body of a page.
+     *
+     * @param nanos parse time
+     */
+    public void pageParsed(long nanos) {
+        parseTime.record(nanos);
+    }
+
+
+    public long getPagesFetched() {
+        return pagesFetched.sum();
+    }
+
+    public long getPagesFailed() {
+        return pagesFailed.sum();
+    }
+
+    public Histogram getFetchLatency() {
+        return fetchLatency;
+    }
+
+    public Histogram getParseTime() {
+        return parseTime;
+    }
+
+
+    /**
+     * Stops the progress line and the HTTP endpoint.
+     */
+    @Override
+    public void close() {
+        if (reporter != null) reporter.shutdownNow();
+        if (server != null) server.stop(0);
+    }
+
+
+    /**
+     * Formats the current progress, including the pages per second since the previous line.
+     *
+     * @return single line
+     */
+    private String progressLine() {
+        long now = System.nanoTime();
+        long pages = pagesFetched.sum();
+        double rate = (pages - lastReportPages) / ((now - lastReportNanos) / NANOS_PER_SECOND);
+        lastReportPages = pages;
+        lastReportNanos = now;
+
+        return String.format(Locale.ROOT,
+                "[%ds] pages %d (%.1f/s), failed %d, %.1f MB, pending %d, active %d, links %d, dns hits %.0f%%, fetch p50 %.0f ms p99 %.0f ms, parse p99 %.1f ms",
+                (now - started) / (long) NANOS_PER_SECOND,
+                pages,
+                rate,
+                pagesFailed.sum(),
+                budget.getBytes() / (1024.0 * 1024.0),
+                threadPoolManager.getPendingTasks(),
+                threadPoolManager.getActiveTasks(),
+                linkDeduplicator.size(),
+                hostResolver.getHitRate() * 100,
+                fetchLatency.getPercentile(0.5) / NANOS_PER_MILLI,
+                fetchLatency.getPercentile(0.99) / NANOS_PER_MILLI,
+                parseTime.getPercentile(0.99) / NANOS_PER_MILLI);
+    }
+
+
+    /**
+     * Formats all metrics as a JSON object, durations in milliseconds.
+     *
+     * @return JSON object
+     */
+    public String toJson() {
+        return "{\"uptime_seconds\":" + format((System.nanoTime() - started) / NANOS_PER_SECOND)
+                + ",\"pages_fetched\":" + pagesFetched.sum()
+                + ",\"pages_failed\":" + pagesFailed.sum()
+                + ",\"bytes\":" + budget.getBytes()
+                + ",\"pending_links\":" + threadPoolManager.getPendingTasks()
+                + ",\"active_tasks\":" + threadPoolManager.getActiveTasks()
+                + ",\"links_seen\":" + linkDeduplicator.size()
+                + ",\"dns\":{\"hits\":" + hostResolver.getHits()
+                + ",\"misses\":" + hostResolver.getMisses()
+                + ",\"hit_rate\":" + format(hostResolver.getHitRate())
+                + ",\"hosts\":" + hostResolver.size()
+                + ",\"prefetched\":" + hostResolver.getPrefetched() + "}"
+                + ",\"fetch_latency_ms\":" + toJson(fetchLatency)
+                + ",\"parse_time_ms\":" + toJson(parseTime)
+                + "}";
+    }
+
+
+    /**
+     * Formats all metrics in the Prometheus text format, durations in seconds.
+     *
+     * @return metrics, one sample per line
+     */
+    public String toPrometheus() {
+        StringBuilder builder = new StringBuilder();
+
+        appendSample(builder, "spoder_pages_fetched_total", "counter", "Pages whose response has been received", pagesFetched.sum());
+        appendSample(builder, "spoder_pages_failed_total", "counter", "Pages that could not be fetched", pagesFailed.sum());
+        appendSample(builder, "spoder_bytes_total", "counter", "Bytes received", budget.getBytes());
+        appendSample(builder, "spoder_pending_links", "gauge", "Links waiting to be crawled", threadPoolManager.getPendingTasks());
+        appendSample(builder, "spoder_active_tasks", "gauge", "Links being crawled", threadPoolManager.getActiveTasks());
+        appendSample(builder, "spoder_links_seen", "gauge", "Links remembered by the deduplication", linkDeduplicator.size());
+        appendSample(builder, "spoder_dns_hits_total", "counter", "Host lookups answered by the DNS cache", hostResolver.getHits());
+        appendSample(builder, "spoder_dns_misses_total", "counter", "Host lookups sent to the DNS server", hostResolver.getMisses());
+        appendSample(builder, "spoder_dns_prefetched_total", "counter", "Hosts resolved in advance", hostResolver.getPrefetched());
+        appendSample(builder, "spoder_dns_hosts", "gauge", "Hosts in the DNS cache", hostResolver.size());
+        appendSummary(builder, "spoder_fetch_latency_seconds", "Time until the response of a page was received", fetchLatency);
+        appendSummary(builder, "spoder_parse_time_seconds", "Time spent reading and parsing a page", parseTime);
+
+        return builder.toString();
+    }
+
+
+    private static String toJson(Histogram histogram) {
+        StringBuilder builder = new StringBuilder("{\"count\":").append(histogram.getCount())
+                .append(",\"mean\":").append(format(histogram.getMean() / NANOS_PER_MILLI));
+
+        for (double percentile : PERCENTILES) {
+            builder.append(",\"p").append(Math.round(percentile * 100)).append("\":")
+                    .append(format(histogram.getPercentile(percentile) / NANOS_PER_MILLI));
+        }
+
+        return builder.append(",\"max\":").append(format(histogram.getMax() / NANOS_PER_MILLI)).append('}').toString();
+    }
+
+
+    private static void appendSample(StringBuilder builder, String name, String type, String help, long value) {
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(' ').append(type).append('\n')
+                .append(name).append(' ').append(value).append('\n');
+    }
+
+
+    private static void appendSummary(StringBuilder builder, String name, String help, Histogram histogram) {
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" summary\n");
+
+        for (double percentile : PERCENTILES) {
+            builder.append(name).append("{quantile=\"").append(percentile).append("\"} ")
+                    .append(format(histogram.getPercentile(percentile) / NANOS_PER_SECOND)).append('\n');
+        }
+
+        builder.append(name).append("_sum ").append(format(histogram.getSum() / NANOS_PER_SECOND)).append('\n')
+                .append(name).append("_count ").append(histogram.getCount()).append('\n');
+    }
+
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+
+    private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+}
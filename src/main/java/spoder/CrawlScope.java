@@ -0,0 +1,229 @@
+package spoder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Decides which found links are worth crawling, before they are queued in the {@link Frontier}, so links outside of
+ * the scope are never fetched. They are still reported as found.
+ * <p>
+ * A link is in scope if its host is covered by the {@link CommandLineArguments.Scope} relative to the start link, its
+ * extension is not excluded, its query does not have more than the maximum number of parameters, it matches at least
+ * one of the include patterns, if there are any, and none of the exclude patterns. The start link is always in scope.
+ * <p>
+ * The rules are compiled once: the extensions into a hash set, the include and the exclude patterns into a single
+ * regex each, so a link is matched against all of them in one pass. Whether a host is in scope is decided once per
+ * host and looked up afterwards. The cheap rules are checked first.
+ */
+public class CrawlScope {
+
+    //hosts whose decision is remembered, further hosts are decided for every link
+    private static final int MAX_HOSTS = 100_000;
+
+    //second-level labels under which country code domains are registered, e.g. example.co.uk
+    private static final Set<String> SECOND_LEVEL_LABELS = Set.of(
+            "ac", "co", "com", "edu", "gob", "gov", "mil", "ne", "net", "or", "org");
+
+    private final Link startLink;
+    private final CommandLineArguments.Scope mode;
+    private final String startHost;
+    private final String startDomain;
+    private final Set<String> excludedExtensions;
+    private final int maxQueryParameters;
+    private final Pattern includes;
+    private final Pattern excludes;
+
+    private final Map<String, Boolean> hosts = new ConcurrentHashMap<>();
+
+    private final LongAdder otherHosts = new LongAdder();
+    private final LongAdder excludedExtension = new LongAdder();
+    private final LongAdder tooManyQueryParameters = new LongAdder();
+    private final LongAdder excludedPattern = new LongAdder();
+
+    /**
+     * @param startLink link the crawl starts at, the hosts are in scope relative to its host
+     * @param mode hosts that are in scope
+     * @param excludedExtensions lowercase extensions of links that are out of scope
+     * @param maxQueryParameters maximum number of query parameters of a link in scope, 0 for no limit
+     * @param includeGlobs globs of which links in scope have to match one, see {@link #globToRegex(String)}
+     * @param includeRegexes regexes of which links in scope have to contain a match of one
+     * @param excludeGlobs globs of links that are out of scope
+     * @param excludeRegexes regexes of links that are out of scope if they contain a match
+     */
+    CrawlScope(Link startLink, CommandLineArguments.Scope mode, Set<String> excludedExtensions, int maxQueryParameters,
+               List<String> includeGlobs, List<String> includeRegexes, List<String> excludeGlobs,
+               List<String> excludeRegexes) {
+        this.startLink = startLink;
+        this.mode = mode;
+        this.startHost = startLink.getHostName();
+        this.startDomain = domainOf(startHost);
+        this.excludedExtensions = Set.copyOf(excludedExtensions);
+        this.maxQueryParameters = maxQueryParameters;
+        this.includes = compile(includeGlobs, includeRegexes);
+        this.excludes = compile(excludeGlobs, excludeRegexes);
+    }
+
+
+    /**
+     * Checks whether the given link is in scope and counts the links that are not.
+     *
+     * @param link found link
+     * @return true if the link may be crawled
+     */
+    public boolean admits(Link link) {
+        //the start link is in scope even if the rules do not cover it, or there would be nothing to crawl
+        if (link.equals(startLink)) return true;
+
+        if (mode != CommandLineArguments.Scope.ALL && !admitsHost(link)) {
+            otherHosts.increment();
+            return false;
+        }
+
+        if (!excludedExtensions.isEmpty() && excludedExtensions.contains(ContentFilter.extension(link))) {
+            excludedExtension.increment();
+            return false;
+        }
+
+        if (maxQueryParameters > 0 && countQueryParameters(link) > maxQueryParameters) {
+            tooManyQueryParameters.increment();
+            return false;
+        }
+
+        if (includes != null || excludes != null) {
+            String url = link.toString();
+            if ((includes != null && !includes.matcher(url).find()) || (excludes != null && excludes.matcher(url).find())) {
+                excludedPattern.increment();
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Returns the number of links that have been out of scope.
+     *
+     * @return number of links not crawled
+     */
+    public long getOutOfScope() {
+        return otherHosts.sum() + excludedExtension.sum() + tooManyQueryParameters.sum() + excludedPattern.sum();
+    }
+
+    public long getOtherHosts() {
+        return otherHosts.sum();
+    }
+
+    public long getExcludedExtension() {
+        return excludedExtension.sum();
+    }
+
+    public long getTooManyQueryParameters() {
+        return tooManyQueryParameters.sum();
+    }
+
+    public long getExcludedPattern() {
+        return excludedPattern.sum();
+    }
+
+
+    /**
+     * Converts a glob to a regex matching the whole url: {@code *} matches any characters, including none, all other
+     * characters match themselves.
+     *
+     * @param glob glob, e.g. {@code *logout*}
+     * @return regex
+     */
+    static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder("^");
+        int start = 0;
+
+        for (int star = glob.indexOf('*'); star != -1; star = glob.indexOf('*', start)) {
+            if (star > start) regex.append(Pattern.quote(glob.substring(start, star)));
+            regex.append(".*");
+            start = star + 1;
+        }
+        if (start < glob.length()) regex.append(Pattern.quote(glob.substring(start)));
+
+        return regex.append('$').toString();
+    }
+
+
+    /**
+     * Decides whether the host of a link is in scope, once per host. The port is not considered.
+     */
+    private boolean admitsHost(Link link) {
+        //hosts are interned, so the lookup only hashes a string whose hash is cached
+        String host = link.getHost();
+        Boolean admitted = hosts.get(host);
+        if (admitted != null) return admitted;
+
+        String name = link.getHostName();
+        admitted = switch (mode) {
+            case ALL -> true;
+            case HOST -> name.equals(startHost);
+            case DOMAIN -> name.equals(startDomain) || name.endsWith("." + startDomain);
+            case SUBDOMAINS -> name.equals(startHost) || name.endsWith("." + startHost);
+        };
+
+        if (hosts.size() < MAX_HOSTS) hosts.put(host, admitted);
+        return admitted;
+    }
+
+
+    /**
+     * Combines the globs and the regexes into a single regex.
+     *
+     * @return regex, or null if there are no globs and regexes
+     */
+    private static Pattern compile(List<String> globs, List<String> regexes) {
+        if (globs.isEmpty() && regexes.isEmpty()) return null;
+
+        return Pattern.compile(Stream.concat(globs.stream().map(CrawlScope::globToRegex), regexes.stream())
+                .map(regex -> "(?:" + regex + ")")
+                .collect(Collectors.joining("|")));
+    }
+
+
+    private static int countQueryParameters(Link link) {
+        String query = link.getQuery();
+        if (query == null || query.isEmpty()) return 0;
+
+        int count = 0;
+        int start = 0;
+        while (start <= query.length()) {
+            int end = query.indexOf('&', start);
+            if (end == -1) end = query.length();
+            if (end > start) count++;
+            start = end + 1;
+        }
+
+        return count;
+    }
+
+
+    /**
+     * Approximates the registrable domain of a host by its last two labels, or three if the second last one is a
+     * common second-level label of a country code, e.g. example.co.uk. IP addresses are their own domain.
+     */
+    private static String domainOf(String host) {
+        if (host.indexOf(':') != -1 || host.chars().allMatch(c -> c == '.' || Character.isDigit(c))) return host;
+
+        String[] labels = host.split("\\.");
+        if (labels.length <= 2) return host;
+
+        int last = labels.length - 1;
+        boolean countryCode = labels[last].length() == 2;
+        int count = countryCode && SECOND_LEVEL_LABELS.contains(labels[last - 1]) ? 3 : 2;
+
+        return String.join(".", Arrays.copyOfRange(labels, labels.length - count, labels.length));
+    }
+
+}
@@ -0,0 +1,21 @@
+package spoder;
+
+import java.io.IOException;
+
+/**
+ * Strategy used by the {@link Scanner} to fetch the content of a single link.
+ */
+public interface FetchEngine {
+
+    /**
+     * Sends a GET request to the website specified by the given link.
+     *
+     * @param link link of website to fetch
+     * @param trace trace the phases up to the first byte of the response are added to
+     * @return Response whose body has to be closed by the caller.
+     * @throws IOException If the URL is malformed, there was an error connecting to the site or the site
+     *                     responded with an error status, which is reported as {@link HttpStatusException}.
+     */
+    FetchResponse fetch(Link link, TaskTrace trace) throws IOException;
+
+}
@@ -0,0 +1,203 @@
+package spoder;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.function.Function;
+
+/**
+ * Engine independent view of a response returned by a {@link FetchEngine}.
+ */
+public class FetchResponse implements Closeable {
+
+    private final int statusCode;
+    private final Function<String, String> headers;
+    private final InputStream body;
+    private final Runnable onClose;
+    private final boolean skipped;
+    private long bytesRead = 0;
+    private long readNanos = 0;
+
+    FetchResponse(int statusCode, Function<String, String> headers, InputStream body, Runnable onClose) {
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.body = new CountingInputStream(body);
+        this.onClose = onClose;
+        this.skipped = false;
+    }
+
+    /**
+     * @param statusCode status code of the response
+     * @param headers function returning the first value of a header
+     * @param body body as received
+     * @param onClose releases the underlying connection
+     * @param decoding turns the body as received into the body returned by {@link #getBody()}, e.g. by decompressing
+     *                 it; {@link #getBytesRead()} still counts the bytes as received
+     * @throws IOException if the decoding fails, in which case the body has been closed
+     */
+    FetchResponse(int statusCode, Function<String, String> headers, InputStream body, Runnable onClose,
+                  Decoding decoding) throws IOException {
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.onClose = onClose;
+        this.skipped = false;
+
+        InputStream received = new CountingInputStream(body);
+        try {
+            this.body = decoding.apply(received);
+        } catch (IOException e) {
+            close(received);
+            throw e;
+        }
+    }
+
+    private FetchResponse(InputStream body) {
+        this.statusCode = 0;
+        this.headers = name -> null;
+        this.body = body;
+        this.onClose = () -> {};
+        this.skipped = true;
+    }
+
+
+    /**
+     * Creates the response of a link that has not been fetched or whose body has not been read, because the
+     * {@link ContentFilter} rejected it. The response has no headers and an empty body.
+     *
+     * @return empty response
+     */
+    static FetchResponse skipped() {
+        return new FetchResponse(InputStream.nullInputStream());
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Returns the first value of the given response header.
+     *
+     * @param name case-insensitive name of the header
+     * @return value of the header or null if the response does not contain the header
+     */
+    public String getHeader(String name) {
+        return headers.apply(name);
+    }
+
+    public InputStream getBody() {
+        return body;
+    }
+
+    /**
+     * Checks whether the body has been skipped by the {@link ContentFilter}.
+     *
+     * @return true if the response has not been read
+     */
+    public boolean isSkipped() {
+        return skipped;
+    }
+
+
+    /**
+     * Checks whether the server answered a conditional request with 304 Not Modified, i.e. the page has not changed
+     * since it has been stored in the {@link PageCache}. The response has an empty body.
+     *
+     * @return true if the page has not been modified
+     */
+    public boolean isNotModified() {
+        return statusCode == HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+
+
+    /**
+     * Returns the number of bytes that have been read from the body so far, as received, i.e. before decompressing.
+     *
+     * @return number of bytes read
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Returns the time spent waiting for the body as received, i.e. the download time of a body that is read while
+     * it arrives. Decoding and parsing the body are not included.
+     *
+     * @return nanoseconds spent reading the body
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    /**
+     * Closes the body and releases the underlying connection.
+     *
+     * @throws IOException if an I/O error occurs while closing the body
+     */
+    @Override
+    public void close() throws IOException {
+        close(body);
+    }
+
+
+    private void close(InputStream stream) throws IOException {
+        try {
+            stream.close();
+        } finally {
+            onClose.run();
+        }
+    }
+
+
+    /**
+     * Decodes the body of a response as it has been received.
+     */
+    @FunctionalInterface
+    interface Decoding {
+
+        /**
+         * @param received body as received
+         * @return decoded body, closing it closes the received body
+         * @throws IOException if the body cannot be decoded
+         */
+        InputStream apply(InputStream received) throws IOException;
+    }
+
+
+    /**
+     * Counts the bytes read from the body and the time spent reading them. The body is only read by a single thread.
+     */
+    private class CountingInputStream extends FilterInputStream {
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long started = System.nanoTime();
+            int b = super.read();
+            readNanos += System.nanoTime() - started;
+            if (b != -1) bytesRead++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long started = System.nanoTime();
+            int read = super.read(buffer, offset, length);
+            readNanos += System.nanoTime() - started;
+            if (read > 0) bytesRead += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            bytesRead += skipped;
+            return skipped;
+        }
+    }
+
+}
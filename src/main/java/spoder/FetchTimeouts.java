@@ -0,0 +1,180 @@
+package spoder;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timeouts of the requests of the {@link FetchEngine}s: how long connecting may take, how long to wait for data from
+ * the server, and how long a whole fetch may take including the download of the body.
+ * <p>
+ * The connect and the read timeout are enforced by the engines themselves. A slow server can still trickle a body
+ * for a long time without ever hitting the read timeout, so the total timeout is enforced by a watchdog thread, which
+ * aborts the fetches that have not finished in time, e.g. by closing their connection. The thread blocked in reading
+ * the body then fails, and its error is reported as a timeout.
+ */
+public class FetchTimeouts implements Closeable {
+
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final int totalTimeout;
+    private final ScheduledExecutorService watchdog;
+
+    /**
+     * @param connectTimeout milliseconds connecting may take, 0 for no limit
+     * @param readTimeout milliseconds to wait for the response or for the next data of the body, 0 for no limit
+     * @param totalTimeout milliseconds a whole fetch may take, 0 for no limit
+     */
+    FetchTimeouts(int connectTimeout, int readTimeout, int totalTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.totalTimeout = totalTimeout;
+        this.watchdog = totalTimeout == 0 ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public int getTotalTimeout() {
+        return totalTimeout;
+    }
+
+
+    /**
+     * Returns the time left to wait for the response of a fetch: the read timeout, or less if the total timeout
+     * expires earlier.
+     *
+     * @param startedNanos {@link System#nanoTime()} when the fetch started
+     * @return milliseconds, at least 1, or 0 for no limit
+     */
+    public long responseTimeout(long startedNanos) {
+        if (totalTimeout == 0) return readTimeout;
+
+        long left = Math.max(1, totalTimeout - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos));
+        return readTimeout == 0 ? left : Math.min(readTimeout, left);
+    }
+
+
+    /**
+     * Starts watching a fetch, which is aborted if it has not finished when the total timeout expires.
+     *
+     * @param link link that is fetched
+     * @param startedNanos {@link System#nanoTime()} when the fetch started
+     * @param abort aborts the fetch, e.g. by closing its connection
+     * @return watch that has to be cancelled when the fetch has finished
+     */
+    public Watch watch(Link link, long startedNanos, Runnable abort) {
+        Watch watch = new Watch(link);
+        if (watchdog == null) return watch;
+
+        long left = TimeUnit.MILLISECONDS.toNanos(totalTimeout) - (System.nanoTime() - startedNanos);
+        watch.expiry = watchdog.schedule(() -> {
+            watch.expired = true;
+            abort.run();
+        }, Math.max(0, left), TimeUnit.NANOSECONDS);
+
+        return watch;
+    }
+
+
+    /**
+     * Stops the watchdog.
+     */
+    @Override
+    public void close() {
+        if (watchdog != null) watchdog.shutdownNow();
+    }
+
+
+    /**
+     * Total timeout of a single fetch.
+     */
+    public class Watch {
+
+        private final Link link;
+        private volatile ScheduledFuture<?> expiry;
+        private volatile boolean expired = false;
+
+        private Watch(Link link) {
+            this.link = link;
+        }
+
+        /**
+         * Stops watching the fetch, it is not aborted anymore.
+         */
+        public void cancel() {
+            ScheduledFuture<?> expiry = this.expiry;
+            if (expiry != null) expiry.cancel(false);
+        }
+
+        /**
+         * Checks whether the fetch has been aborted, because the total timeout has expired.
+         *
+         * @return true if the fetch has been aborted
+         */
+        public boolean isExpired() {
+            return expired;
+        }
+
+        /**
+         * Replaces the error of an aborted fetch by a timeout, which tells the cause of the error.
+         *
+         * @param e error of the fetch
+         * @return a {@link HttpTimeoutException} if the fetch has been aborted, the given error otherwise
+         */
+        public IOException translate(IOException e) {
+            if (!expired) return e;
+
+            HttpTimeoutException timeout = new HttpTimeoutException("Total timeout of " + totalTimeout + " ms exceeded for URL: " + link);
+            timeout.initCause(e);
+            return timeout;
+        }
+
+        /**
+         * Wraps the body of the fetch, so errors caused by aborting it are reported as timeouts.
+         *
+         * @param body body of the response
+         * @return wrapped body
+         */
+        public InputStream guard(InputStream body) {
+            if (watchdog == null) return body;
+
+            return new FilterInputStream(body) {
+                @Override
+                public int read() throws IOException {
+                    try {
+                        return super.read();
+                    } catch (IOException e) {
+                        throw translate(e);
+                    }
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    try {
+                        return super.read(b, off, len);
+                    } catch (IOException e) {
+                        throw translate(e);
+                    }
+                }
+            };
+        }
+    }
+
+}
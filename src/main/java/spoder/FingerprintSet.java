@@ -0,0 +1,179 @@
+package spoder;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exact (up to collisions of the 64-bit fingerprints) deduplicator that stores the fingerprints of the links in
+ * open-addressing hash tables of primitive longs, about 11 to 21 bytes per link instead of the link objects.
+ * The fingerprints are spread over independently locked segments, so threads rarely contend.
+ * <p>
+ * The tables grow as long as the memory budget allows. Once it is exhausted, new links are rejected, i.e. reported as
+ * already found, and a warning is printed.
+ */
+public class FingerprintSet implements LinkDeduplicator {
+
+    private static final int SEGMENTS = 64;
+    private static final int SEGMENT_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(SEGMENTS);
+    private static final int INITIAL_CAPACITY = 1024;
+
+    //fingerprints are stored as is, except 0, which marks an empty slot
+    private static final long EMPTY = 0L;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long memoryBudget;
+
+    private final AtomicLong memoryUsage = new AtomicLong(0);
+    private final AtomicLong size = new AtomicLong(0);
+    private final AtomicLong rejected = new AtomicLong(0);
+    private final AtomicBoolean warned = new AtomicBoolean(false);
+
+    /**
+     * @param memoryBudget maximum number of bytes the tables may use, 0 for unlimited
+     */
+    FingerprintSet(long memoryBudget) {
+        this.memoryBudget = memoryBudget <= 0 ? Long.MAX_VALUE : memoryBudget;
+
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+
+    @Override
+    public boolean add(Link link) {
+        long fingerprint = LinkDeduplicator.fingerprint(link);
+        if (fingerprint == EMPTY) fingerprint = 1;
+
+        return segments[(int) (fingerprint >>> SEGMENT_SHIFT)].add(fingerprint);
+    }
+
+
+    @Override
+    public long size() {
+        return size.get();
+    }
+
+
+    @Override
+    public long getMemoryUsage() {
+        return memoryUsage.get();
+    }
+
+
+    @Override
+    public long getRejected() {
+        return rejected.get();
+    }
+
+
+    /**
+     * A new link is only reported as found if its fingerprint equals one of the n stored fingerprints,
+     * which happens with a probability of about n / 2^64.
+     */
+    @Override
+    public double getFalsePositiveRate() {
+        return size.get() / 0x1p64;
+    }
+
+
+    /**
+     * Reserves memory for a table of the given capacity.
+     *
+     * @param capacity number of slots
+     * @return true if the memory budget allows the table
+     */
+    private boolean reserve(int capacity) {
+        long bytes = (long) capacity * Long.BYTES;
+
+        while (true) {
+            long used = memoryUsage.get();
+            if (used + bytes > memoryBudget) return false;
+            if (memoryUsage.compareAndSet(used, used + bytes)) return true;
+        }
+    }
+
+
+    private void reject() {
+        rejected.incrementAndGet();
+
+        if (warned.compareAndSet(false, true)) {
+            System.err.println("ERROR: Memory budget for link deduplication exhausted, new links are dropped");
+        }
+    }
+
+
+    /**
+     * Open-addressing hash table with linear probing. Grows to twice its size at a load factor of 0.75 if the
+     * memory budget allows, otherwise it is filled up to a load factor of 0.9.
+     */
+    private class Segment {
+
+        private long[] table;
+        private int size;
+
+        synchronized boolean add(long fingerprint) {
+            if (table == null) {
+                if (!reserve(INITIAL_CAPACITY)) {
+                    reject();
+                    return false;
+                }
+                table = new long[INITIAL_CAPACITY];
+            }
+
+            if (contains(fingerprint)) return false;
+
+            if (size >= table.length * 3L / 4 && !grow() && size >= table.length * 9L / 10) {
+                reject();
+                return false;
+            }
+
+            insert(table, fingerprint);
+            size++;
+            FingerprintSet.this.size.incrementAndGet();
+            return true;
+        }
+
+        private boolean contains(long fingerprint) {
+            int mask = table.length - 1;
+            int index = (int) fingerprint & mask;
+
+            while (table[index] != EMPTY) {
+                if (table[index] == fingerprint) return true;
+                index = (index + 1) & mask;
+            }
+
+            return false;
+        }
+
+        /**
+         * Doubles the capacity of the table.
+         *
+         * @return true if the table has grown, false if the memory budget does not allow it
+         */
+        private boolean grow() {
+            if (table.length >= 1 << 30 || !reserve(table.length * 2)) return false;
+
+            long[] grown = new long[table.length * 2];
+            for (long fingerprint : table) {
+                if (fingerprint != EMPTY) insert(grown, fingerprint);
+            }
+
+            memoryUsage.addAndGet(-(long) table.length * Long.BYTES);
+            table = grown;
+            return true;
+        }
+
+        private static void insert(long[] table, long fingerprint) {
+            int mask = table.length - 1;
+            int index = (int) fingerprint & mask;
+
+            while (table[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+
+            table[index] = fingerprint;
+        }
+    }
+
+}
@@ -0,0 +1,358 @@
+package spoder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Queue of the links that still have to be crawled, either first-in-first-out or ordered by a priority.
+ * <p>
+ * At most a fixed number of links is kept in memory. Once that head is full, further links are appended to segment
+ * files on disk. When the head runs empty it is refilled from the oldest segment, and segments that have been read
+ * completely are deleted. The heap usage therefore stays flat no matter how many links are discovered.
+ * <p>
+ * In first-in-first-out order, everything added after the first link on disk is appended to disk as well, so the
+ * order is kept. With a priority, the head holds the links with the highest priority: a new link that ranks higher
+ * than the lowest one in the full head takes its place, and the lowest one goes to disk instead. Links with the same
+ * priority are taken in the order they were added. The order is therefore exact as long as all links fit into memory,
+ * and otherwise the best links seen so far are crawled first.
+ */
+public class Frontier implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long SEGMENT_SIZE = 16L * 1024 * 1024;
+
+    private final int maxInMemory;
+    private final Path directory;
+    private final boolean deleteDirectory;
+    private final boolean sortQueryParameters;
+    private final ToDoubleFunction<Entry> priority;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Entry> head = new ArrayDeque<>();
+    private final TreeSet<Ranked> ranked = new TreeSet<>(Comparator
+            .comparingDouble(Ranked::priority).reversed()
+            .thenComparingLong(Ranked::sequence));
+    private long sequence = 0;
+    private final Deque<Path> segments = new ArrayDeque<>();
+
+    private long spilled = 0;
+    private int segmentCounter = 0;
+    private boolean closed = false;
+
+    private FileChannel writeChannel;
+    private Path writeSegment;
+    private long writeSegmentSize;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private FileChannel readChannel;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * @param maxInMemory maximum number of links kept in memory
+     * @param directory directory the segments are written to, null for a temporary directory that is deleted on close
+     * @param sortQueryParameters whether the links read back from disk sort their query parameters, see {@link Link}
+     * @throws IOException if the directory cannot be created
+     */
+    Frontier(int maxInMemory, Path directory, boolean sortQueryParameters) throws IOException {
+        this(maxInMemory, directory, sortQueryParameters, null);
+    }
+
+
+    /**
+     * @param maxInMemory maximum number of links kept in memory
+     * @param directory directory the segments are written to, null for a temporary directory that is deleted on close
+     * @param sortQueryParameters whether the links read back from disk sort their query parameters, see {@link Link}
+     * @param priority priority of a link, links with a higher priority are taken first, null for first-in-first-out
+     * @throws IOException if the directory cannot be created
+     */
+    Frontier(int maxInMemory, Path directory, boolean sortQueryParameters, ToDoubleFunction<Entry> priority)
+            throws IOException {
+        this.maxInMemory = maxInMemory;
+        this.deleteDirectory = directory == null;
+        this.directory = directory == null ? Files.createTempDirectory("spoder-frontier") : Files.createDirectories(directory);
+        this.sortQueryParameters = sortQueryParameters;
+        this.priority = priority;
+        readBuffer.flip();
+    }
+
+
+    /**
+     * Appends a link to the frontier.
+     *
+     * @param link link to be crawled
+     * @param depth remaining recursion depth of the link
+     * @throws UncheckedIOException if the link cannot be written to disk
+     */
+    public void add(Link link, int depth) {
+        lock.lock();
+        try {
+            if (closed) return;
+
+            if (priority != null) {
+                addRanked(new Entry(link, depth));
+            } else if (spilled == 0 && head.size() < maxInMemory) {
+                head.addLast(new Entry(link, depth));
+            } else {
+                spill(link, depth);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Removes the next link from the frontier, the oldest one or the one with the highest priority.
+     *
+     * @return the next link, or null if the frontier is empty
+     * @throws UncheckedIOException if the links on disk cannot be read
+     */
+    public Entry poll() {
+        lock.lock();
+        try {
+            if (inMemory() == 0 && spilled > 0) refill();
+
+            if (priority != null) {
+                Ranked next = ranked.pollFirst();
+                return next == null ? null : next.entry();
+            }
+            return head.pollFirst();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the number of links in the frontier, in memory and on disk.
+     *
+     * @return number of links
+     */
+    public long size() {
+        lock.lock();
+        try {
+            return inMemory() + spilled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+
+    /**
+     * Discards all links and deletes the segments.
+     *
+     * @throws IOException if a segment cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+
+            head.clear();
+            ranked.clear();
+            spilled = 0;
+
+            if (readChannel != null) readChannel.close();
+            if (writeChannel != null) {
+                writeChannel.close();
+                Files.deleteIfExists(writeSegment);
+            }
+            for (Path segment : segments) {
+                Files.deleteIfExists(segment);
+            }
+            segments.clear();
+
+            if (deleteDirectory) Files.deleteIfExists(directory);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    private int inMemory() {
+        return priority != null ? ranked.size() : head.size();
+    }
+
+
+    /**
+     * Adds the link to the head if it is not full or the link ranks higher than the lowest link in the head,
+     * which is then written to disk instead.
+     */
+    private void addRanked(Entry entry) throws IOException {
+        Ranked added = new Ranked(entry, priority.applyAsDouble(entry), sequence++);
+
+        if (ranked.size() < maxInMemory) {
+            ranked.add(added);
+            return;
+        }
+
+        if (ranked.comparator().compare(added, ranked.last()) < 0) {
+            Entry lowest = ranked.pollLast().entry();
+            ranked.add(added);
+            spill(lowest.link(), lowest.depth());
+        } else {
+            spill(entry.link(), entry.depth());
+        }
+    }
+
+
+    /**
+     * Appends the link to the segment that is currently written. A new segment is started when it is full.
+     * An entry consists of the depth, the length of the url and the url encoded as UTF-8.
+     */
+    private void spill(Link link, int depth) throws IOException {
+        byte[] url = link.toString().getBytes(StandardCharsets.UTF_8);
+
+        if (writeChannel == null || writeSegmentSize >= SEGMENT_SIZE) {
+            sealWriteSegment();
+            writeSegment = directory.resolve(String.format("frontier-%06d.seg", segmentCounter++));
+            writeChannel = FileChannel.open(writeSegment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            writeSegmentSize = 0;
+        }
+
+        if (writeBuffer.remaining() < 2 * Integer.BYTES + url.length) {
+            flush();
+        }
+
+        if (writeBuffer.remaining() < 2 * Integer.BYTES + url.length) {
+            //the url does not fit into the buffer at all, so it is written directly
+            writeChannel.write(ByteBuffer.allocate(2 * Integer.BYTES).putInt(depth).putInt(url.length).flip());
+            writeChannel.write(ByteBuffer.wrap(url));
+        } else {
+            writeBuffer.putInt(depth).putInt(url.length).put(url);
+        }
+
+        writeSegmentSize += 2 * Integer.BYTES + url.length;
+        spilled++;
+    }
+
+
+    /**
+     * Closes the segment that is currently written, so that it can be read.
+     */
+    private void sealWriteSegment() throws IOException {
+        if (writeChannel == null) return;
+
+        flush();
+        writeChannel.close();
+        writeChannel = null;
+        segments.addLast(writeSegment);
+    }
+
+
+    private void flush() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            writeChannel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+
+    /**
+     * Moves up to {@link #maxInMemory} links from the oldest segments into the head.
+     */
+    private void refill() throws IOException {
+        while (inMemory() < maxInMemory && spilled > 0) {
+            if (readChannel == null) {
+                //the links that are still being written are the newest ones, so they are read last
+                if (segments.isEmpty()) sealWriteSegment();
+
+                readChannel = FileChannel.open(segments.peekFirst(), StandardOpenOption.READ);
+                readBuffer.clear().flip();
+            }
+
+            if (!fillReadBuffer(2 * Integer.BYTES)) {
+                readChannel.close();
+                readChannel = null;
+                Files.deleteIfExists(segments.pollFirst());
+                continue;
+            }
+
+            int depth = readBuffer.getInt();
+            byte[] url = new byte[readBuffer.getInt()];
+
+            if (url.length <= readBuffer.capacity()) {
+                if (!fillReadBuffer(url.length)) throw new IOException("Truncated frontier segment");
+                readBuffer.get(url);
+            } else {
+                ByteBuffer target = ByteBuffer.wrap(url);
+                target.put(readBuffer);
+                while (target.hasRemaining()) {
+                    if (readChannel.read(target) == -1) throw new IOException("Truncated frontier segment");
+                }
+            }
+
+            Entry entry = new Entry(Link.parse(new String(url, StandardCharsets.UTF_8), sortQueryParameters), depth);
+            if (priority != null) {
+                ranked.add(new Ranked(entry, priority.applyAsDouble(entry), sequence++));
+            } else {
+                head.addLast(entry);
+            }
+            spilled--;
+        }
+    }
+
+
+    /**
+     * Makes sure that at least the given number of bytes can be read from the read buffer.
+     *
+     * @param bytes number of bytes needed
+     * @return false if the segment ends before
+     */
+    private boolean fillReadBuffer(int bytes) throws IOException {
+        if (readBuffer.remaining() >= bytes) return true;
+
+        readBuffer.compact();
+        while (readBuffer.position() < bytes) {
+            if (readChannel.read(readBuffer) == -1) {
+                readBuffer.flip();
+                return false;
+            }
+        }
+        readBuffer.flip();
+        return true;
+    }
+
+
+    /**
+     * A link in the frontier together with its remaining recursion depth.
+     *
+     * @param link link to be crawled
+     * @param depth remaining recursion depth
+     */
+    public record Entry(Link link, int depth) {
+    }
+
+
+    /**
+     * A link in the head together with its priority and the position it was added at, which breaks ties.
+     */
+    private record Ranked(Entry entry, double priority, long sequence) {
+    }
+
+}
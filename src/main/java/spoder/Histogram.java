@@ -0,0 +1,127 @@
+package spoder;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values, e.g. durations in nanoseconds, that can be recorded from many threads without
+ * locking.
+ * <p>
+ * The buckets are laid out like in HdrHistogram: values below 128 have a bucket each, and every further power of two
+ * is split into 64 buckets of equal width. Every value up to {@link Long#MAX_VALUE} therefore falls into one of a few
+ * thousand buckets, and a percentile read from them is off by less than 1/64 of the value. Recording is a single
+ * atomic increment of the bucket, plus the updates of the sum and the maximum.
+ * <p>
+ * Reading while values are recorded gives a snapshot that may miss the values recorded in the meantime.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong(0);
+
+
+    /**
+     * Records a value, negative values are recorded as 0.
+     *
+     * @param value value to be recorded
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return mean, 0 if nothing has been recorded
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+
+    /**
+     * Returns the value below or at which the given fraction of the recorded values lies.
+     *
+     * @param percentile fraction between 0 and 1, e.g. 0.99
+     * @return the highest value of the bucket the percentile falls into, capped at the maximum, or 0 if nothing has
+     * been recorded
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(highestValue(i), max.get());
+        }
+
+        return max.get();
+    }
+
+
+    /**
+     * Returns the bucket of the given value: the value itself below {@link #SUB_BUCKETS}, above the 64 buckets of
+     * its power of two, selected by the six bits following the highest one.
+     */
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int top = (int) (value >>> shift);
+
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (top - HALF_SUB_BUCKETS);
+    }
+
+
+    /**
+     * Returns the highest value that falls into the given bucket.
+     */
+    private static long highestValue(int index) {
+        if (index < SUB_BUCKETS) return index;
+
+        int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long top = HALF_SUB_BUCKETS + (index - SUB_BUCKETS) % HALF_SUB_BUCKETS;
+
+        //the buckets of the highest power of two end at Long.MAX_VALUE
+        if (top + 1 > Long.MAX_VALUE >>> shift) return Long.MAX_VALUE;
+        return ((top + 1) << shift) - 1;
+    }
+
+}
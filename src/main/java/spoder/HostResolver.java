@@ -0,0 +1,329 @@
+package spoder;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of the addresses of the crawled hosts, shared by all tasks of a crawl.
+ * <p>
+ * The cache holds at most a fixed number of hosts, the least recently used one is evicted first. The resolver of the
+ * JDK does not tell the TTL of the DNS records, so an entry expires after a fixed time; hosts that could not be
+ * resolved are remembered for a shorter time. A host is only resolved once at a time: a task that needs a host which
+ * is being resolved waits for that lookup instead of sending another one.
+ * <p>
+ * The hosts of the links found on a page are resolved in the background while the links wait in the {@link Frontier},
+ * see {@link #prefetch(Link)}, so the task that crawls them usually finds the address in the cache.
+ * <p>
+ * Once installed, the cache also serves the lookups of the JDK, i.e. the connections of both {@link FetchEngine}s,
+ * through the {@link CachingResolverProvider}. The JDK keeps a cache of its own in front of it, which passes a lookup
+ * on once its entry has expired.
+ */
+public class HostResolver implements Closeable {
+
+    private static final long NEGATIVE_TTL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    //lookups waiting for a prefetch thread, further hosts are resolved when they are needed
+    private static final int PREFETCH_QUEUE = 4096;
+
+    private static volatile HostResolver installed;
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final ThreadPoolExecutor prefetcher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Entry>> lookups = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder prefetched = new LongAdder();
+
+    /**
+     * @param ttlSeconds seconds a resolved host is kept, 0 disables the cache
+     * @param maxEntries maximum number of hosts kept
+     * @param prefetchThreads number of threads resolving hosts in the background
+     */
+    HostResolver(int ttlSeconds, int maxEntries, int prefetchThreads) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxEntries = maxEntries;
+
+        AtomicInteger threads = new AtomicInteger(0);
+        this.prefetcher = new ThreadPoolExecutor(prefetchThreads, prefetchThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(PREFETCH_QUEUE), runnable -> {
+                    Thread thread = new Thread(runnable, "dns-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+
+    /**
+     * Lets the cache serve the lookups of the JDK, until it is closed.
+     */
+    public void install() {
+        if (!isEnabled()) return;
+
+        try {
+            //loads the resolver provider of the JDK before the cache is installed, so the cache can use the built-in
+            //resolver, instead of being called back by the lookup of its own miss
+            InetAddress.getAllByName("localhost");
+        } catch (UnknownHostException e) {
+            //the provider is loaded anyway
+        }
+
+        installed = this;
+    }
+
+
+    public boolean isEnabled() {
+        return ttlNanos > 0;
+    }
+
+
+    /**
+     * Resolves the host of the given link in the background, unless it is cached or already being resolved. If too
+     * many hosts are waiting to be resolved, the host is resolved when its link is crawled.
+     *
+     * @param link link whose host is going to be needed
+     */
+    public void prefetch(Link link) {
+        if (!isEnabled()) return;
+
+        String host = link.getHostName();
+        CompletableFuture<Entry> lookup;
+
+        lock.lock();
+        try {
+            Entry entry = entries.get(host);
+            if ((entry != null && !entry.isExpired()) || lookups.containsKey(host)) return;
+
+            lookup = new CompletableFuture<>();
+            lookups.put(host, lookup);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            prefetcher.execute(() -> {
+                prefetched.increment();
+                lookup(host, lookup);
+            });
+        } catch (RejectedExecutionException e) {
+            //the queue is full or the cache has been closed, the first task that needs the host resolves it
+            lock.lock();
+            try {
+                lookups.remove(host);
+            } finally {
+                lock.unlock();
+            }
+            lookup.complete(null);
+        }
+    }
+
+
+    /**
+     * Returns the addresses of the given host from the cache, or resolves it. If the host is being resolved, e.g. by
+     * a prefetch, the lookup is awaited.
+     *
+     * @param host name of the host, see {@link Link#getHostName()}
+     * @return addresses of the host
+     * @throws UnknownHostException if the host cannot be resolved, also if this has been cached
+     */
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        if (!isEnabled()) return lookup(host);
+
+        CompletableFuture<Entry> lookup;
+        boolean owner = false;
+
+        lock.lock();
+        try {
+            Entry entry = entries.get(host);
+            if (entry != null && !entry.isExpired()) {
+                hits.increment();
+                return entry.get();
+            }
+
+            lookup = lookups.get(host);
+            if (lookup == null) {
+                lookup = new CompletableFuture<>();
+                lookups.put(host, lookup);
+                owner = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Entry entry;
+        if (owner) {
+            misses.increment();
+            entry = lookup(host, lookup);
+        } else {
+            try {
+                entry = lookup.join();
+            } catch (CompletionException e) {
+                entry = null;
+            }
+            //the prefetch has been rejected or has failed, the host is looked up again
+            if (entry == null) return resolve(host);
+
+            //resolved by another thread, which is as good as a hit
+            hits.increment();
+        }
+
+        return entry.get();
+    }
+
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getPrefetched() {
+        return prefetched.sum();
+    }
+
+    /**
+     * Returns the share of the lookups that have been answered by the cache or by a lookup in progress.
+     *
+     * @return hit rate between 0 and 1, 0 if nothing has been looked up
+     */
+    public double getHitRate() {
+        long hits = this.hits.sum();
+        long total = hits + misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Stops the prefetching and hands the lookups of the JDK back to its built-in resolver.
+     */
+    @Override
+    public void close() {
+        if (installed == this) installed = null;
+        prefetcher.shutdownNow();
+
+        //the prefetches that have not been started are never completed otherwise
+        lock.lock();
+        try {
+            for (CompletableFuture<Entry> lookup : lookups.values()) {
+                lookup.complete(null);
+            }
+            lookups.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the installed cache, if any.
+     *
+     * @return cache serving the lookups of the JDK, null if there is none
+     */
+    static HostResolver installed() {
+        return installed;
+    }
+
+
+    /**
+     * Resolves the host, caches the result and completes the given lookup with it.
+     */
+    private Entry lookup(String host, CompletableFuture<Entry> lookup) {
+        Entry entry = null;
+
+        try {
+            try {
+                entry = new Entry(lookup(host), null, System.nanoTime() + ttlNanos);
+            } catch (UnknownHostException e) {
+                entry = new Entry(null, e.getMessage(), System.nanoTime() + NEGATIVE_TTL_NANOS);
+            }
+        } finally {
+            lock.lock();
+            try {
+                if (entry != null) {
+                    entries.put(host, entry);
+                    if (entries.size() > maxEntries) {
+                        //the least recently used host
+                        entries.remove(entries.keySet().iterator().next());
+                    }
+                }
+                lookups.remove(host);
+            } finally {
+                lock.unlock();
+            }
+
+            //null if the lookup has failed unexpectedly, the waiting tasks look the host up again
+            lookup.complete(entry);
+        }
+
+        return entry;
+    }
+
+
+    /**
+     * Resolves the host with the built-in resolver of the JDK, or with the JDK itself, if the cache is not installed
+     * as its resolver.
+     */
+    private static InetAddress[] lookup(String host) throws UnknownHostException {
+        InetAddressResolver builtin = CachingResolverProvider.builtin();
+        if (builtin == null) return InetAddress.getAllByName(host);
+
+        InetAddress[] addresses = builtin.lookupByName(host, InetAddressResolver.LookupPolicy.of(
+                InetAddressResolver.LookupPolicy.IPV4 | InetAddressResolver.LookupPolicy.IPV6)).toArray(InetAddress[]::new);
+        if (addresses.length == 0) throw new UnknownHostException(host);
+        return addresses;
+    }
+
+
+    /**
+     * Cached result of resolving a host.
+     *
+     * @param addresses addresses of the host, null if it could not be resolved
+     * @param error message of the error if the host could not be resolved
+     * @param expiresNanos {@link System#nanoTime()} when the entry expires
+     */
+    private record Entry(InetAddress[] addresses, String error, long expiresNanos) {
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresNanos >= 0;
+        }
+
+        /**
+         * Returns a copy of the addresses, since the caller may reorder them.
+         */
+        InetAddress[] get() throws UnknownHostException {
+            if (addresses == null) throw new UnknownHostException(error);
+            return Arrays.copyOf(addresses, addresses.length);
+        }
+    }
+
+}
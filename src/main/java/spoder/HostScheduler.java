@@ -0,0 +1,507 @@
+package spoder;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides which of the links in the {@link Frontier} is crawled next, so that no single host is sent too many
+ * requests at once.
+ * <p>
+ * Links are taken from the frontier in order and sorted into one queue per host. The hosts take turns, and a host
+ * is only given another link while fewer requests than its current limit are in flight. The limit is adapted to how
+ * the host copes with the load (additive increase, multiplicative decrease): it grows by one per round of successful
+ * requests as long as the response times stay close to the fastest one seen for the host, and it is halved when the
+ * host answers with 429 or 503 or a request times out. A page with hundreds of links to the same host therefore does
+ * not result in hundreds of simultaneous requests, while hosts that are idle do not hold back the others.
+ * <p>
+ * Every host has a circuit breaker. After a number of consecutive requests that timed out, could not connect or got a
+ * server error, the circuit opens and the host is paused, its links wait in its queue. When the pause is over, a
+ * single request is let through: if it succeeds, the circuit closes again, otherwise the host is paused for twice as
+ * long. A host that keeps failing is given up as unreachable, and its links are dropped instead of tying up threads
+ * until they time out. A host that answers with a Retry-After header is paused as long as it asks for.
+ * <p>
+ * The queues of the hosts hold at most a fixed number of links, the rest stays in the frontier. If the queues are
+ * full and all of their hosts are busy, a limited number of further links is taken from the frontier to find one of
+ * another host. The links skipped on the way are kept in the queues of their hosts, so they are still crawled in the
+ * order of the frontier.
+ * <p>
+ * The state of at most a fixed number of hosts is kept. Beyond that, the hosts that have not been sent a request for
+ * the longest time are forgotten once they are idle; hosts given up as unreachable are never forgotten.
+ */
+public class HostScheduler {
+
+    private static final double INITIAL_LIMIT = 4;
+
+    //responses slower than this multiple of the fastest response of the host do not increase its limit
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    private static final double BACKOFF_FACTOR = 0.5;
+
+    //consecutive failures that open the circuit of a host
+    private static final int FAILURE_THRESHOLD = 5;
+
+    //pause of a host after its circuit has opened for the first time, doubled every time it opens again
+    private static final long OPEN_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    //number of times the circuit of a host opens without a success in between until the host is given up
+    private static final int MAX_OPENINGS = 3;
+
+    //number of links taken beyond the full queues to find one of a host that is not busy
+    private static final int SKIP_AHEAD = 1024;
+
+    //hosts whose state is kept, idle hosts beyond are forgotten
+    private static final int MAX_HOSTS = 100_000;
+
+    //hosts looked at to find an idle one to forget, so a host is not forgotten at the cost of a full scan
+    private static final int EVICTION_SCAN = 16;
+
+    private final Frontier frontier;
+    private final int maxBuffered;
+    private final int maxPerHost;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    //in the order the hosts have been used, the least recently used first
+    private final LinkedHashMap<String, Host> hosts = new LinkedHashMap<>(16, 0.75f, true);
+    private final Deque<Host> ready = new ArrayDeque<>();
+    private List<Frontier.Entry> dropped = new ArrayList<>();
+    private int buffered = 0;
+    private int circuitsOpened = 0;
+    private int unreachableHosts = 0;
+    private long droppedLinks = 0;
+
+    /**
+     * @param frontier frontier the links are taken from
+     * @param maxBuffered maximum number of links taken from the frontier before they can be crawled
+     * @param maxPerHost upper bound of the number of requests in flight per host
+     */
+    HostScheduler(Frontier frontier, int maxBuffered, int maxPerHost) {
+        this.frontier = frontier;
+        this.maxBuffered = maxBuffered;
+        this.maxPerHost = maxPerHost;
+    }
+
+
+    /**
+     * Takes the next link that may be crawled now and counts it as in flight for its host.
+     *
+     * @return link to be crawled, or null if there is none or all hosts with pending links are busy
+     */
+    public Frontier.Entry poll() {
+        lock.lock();
+        try {
+            refill();
+
+            while (!ready.isEmpty()) {
+                Host host = ready.pollFirst();
+                host.ready = false;
+
+                if (!host.canStart()) continue;
+
+                Frontier.Entry entry = host.queue.pollFirst();
+                buffered--;
+                host.inFlight++;
+
+                //round-robin, the host gets its next turn after all other ready hosts
+                markReady(host);
+                return entry;
+            }
+
+            return skipAhead();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Checks whether {@link #poll()} might return a link.
+     *
+     * @return true if a host can be sent another request or there are links in the frontier that have not been
+     * sorted into the queues of their hosts yet
+     */
+    public boolean hasReady() {
+        lock.lock();
+        try {
+            return !ready.isEmpty() || (buffered < maxBuffered && !frontier.isEmpty());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Marks the request for the given link as done and adapts the limit and the circuit of its host.
+     *
+     * @param link link that has been crawled
+     * @param error error of the request, null if it succeeded
+     * @param latencyNanos time until the response was received, ignored unless the request succeeded
+     * @return nanoseconds until the host is sent requests again, if it has been paused, otherwise 0; the host has to
+     * be woken up by {@link #wake(Link)} then
+     */
+    public long completed(Link link, Throwable error, long latencyNanos) {
+        lock.lock();
+        try {
+            Host host = hosts.get(link.getHost());
+            if (host == null) return 0;
+
+            host.inFlight--;
+            long pause = host.adapt(outcomeOf(error), latencyNanos, retryAfterNanos(error));
+            markReady(host);
+            return pause;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Lets a paused host be sent requests again, if its pause is over.
+     *
+     * @param link any link of the host
+     */
+    public void wake(Link link) {
+        lock.lock();
+        try {
+            Host host = hosts.get(link.getHost());
+            if (host != null) markReady(host);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Takes the links that have been dropped since the last call, because their host has been given up.
+     *
+     * @return dropped links, which have not been and will not be crawled
+     */
+    public List<Frontier.Entry> takeDropped() {
+        lock.lock();
+        try {
+            if (dropped.isEmpty()) return List.of();
+
+            List<Frontier.Entry> taken = dropped;
+            dropped = new ArrayList<>();
+            return taken;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the current limit of requests in flight to the given host.
+     *
+     * @param host host as returned by {@link Link#getHost()}
+     * @return current limit, or the initial limit if nothing has been sent to the host yet
+     */
+    public int getLimit(String host) {
+        lock.lock();
+        try {
+            Host state = hosts.get(host);
+            return state == null ? (int) Math.min(INITIAL_LIMIT, maxPerHost) : state.limit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    public int getCircuitsOpened() {
+        lock.lock();
+        try {
+            return circuitsOpened;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getUnreachableHosts() {
+        lock.lock();
+        try {
+            return unreachableHosts;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDroppedLinks() {
+        lock.lock();
+        try {
+            return droppedLinks;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Classifies the error of a failed request.
+     *
+     * @param e error of the request, null if it succeeded
+     * @return outcome of the request
+     */
+    public static Outcome outcomeOf(Throwable e) {
+        if (e == null) return Outcome.SUCCESS;
+        if (e instanceof HttpStatusException status) {
+            if (status.getStatusCode() == 429 || status.getStatusCode() == 503) return Outcome.OVERLOADED;
+            return status.getStatusCode() >= 500 ? Outcome.SERVER_ERROR : Outcome.FAILURE;
+        }
+        //a connect timeout is a timeout, but says more about the host being reachable than about its load
+        if (e instanceof HttpConnectTimeoutException) return Outcome.UNREACHABLE;
+        if (e instanceof SocketTimeoutException || e instanceof HttpTimeoutException) return Outcome.TIMEOUT;
+        if (e instanceof ConnectException || e instanceof NoRouteToHostException || e instanceof UnknownHostException) {
+            return Outcome.UNREACHABLE;
+        }
+        if (e instanceof IOException && e.getCause() != null) return outcomeOf(e.getCause());
+        return Outcome.FAILURE;
+    }
+
+
+    /**
+     * Returns how long the host asked to wait before the next request.
+     *
+     * @param e error of the request, null if it succeeded
+     * @return nanoseconds to wait, or -1 if the host has not asked to wait
+     */
+    private static long retryAfterNanos(Throwable e) {
+        if (e instanceof HttpStatusException status && status.getRetryAfterMillis() >= 0) {
+            return TimeUnit.MILLISECONDS.toNanos(status.getRetryAfterMillis());
+        }
+        if (e instanceof IOException && e.getCause() != null) return retryAfterNanos(e.getCause());
+        return -1;
+    }
+
+
+    /**
+     * Sorts links from the frontier into the queues of their hosts until the queues hold the maximum number of links.
+     */
+    private void refill() {
+        while (buffered < maxBuffered) {
+            Frontier.Entry entry = frontier.poll();
+            if (entry == null) return;
+
+            Host host = host(entry.link());
+            if (host.unreachable) {
+                drop(entry);
+                continue;
+            }
+
+            host.queue.addLast(entry);
+            buffered++;
+            markReady(host);
+        }
+    }
+
+
+    /**
+     * Looks for a link of a host that is not busy beyond the links in the queues. The links of busy hosts are sorted
+     * into their queues, which hold at most {@link #SKIP_AHEAD} links more than the maximum then.
+     *
+     * @return link to be crawled, or null if none is found
+     */
+    private Frontier.Entry skipAhead() {
+        while (buffered < maxBuffered + SKIP_AHEAD) {
+            Frontier.Entry entry = frontier.poll();
+            if (entry == null) return null;
+
+            Host host = host(entry.link());
+            if (host.unreachable) {
+                drop(entry);
+                continue;
+            }
+
+            //all hosts with queued links are busy, otherwise poll would have taken one of their links
+            if (host.queue.isEmpty() && host.canSend()) {
+                host.inFlight++;
+                return entry;
+            }
+
+            host.queue.addLast(entry);
+            buffered++;
+        }
+
+        return null;
+    }
+
+
+    private Host host(Link link) {
+        Host host = hosts.get(link.getHost());
+        if (host != null) return host;
+
+        if (hosts.size() >= MAX_HOSTS) evictIdle();
+
+        host = new Host(Math.min(INITIAL_LIMIT, maxPerHost));
+        hosts.put(link.getHost(), host);
+        return host;
+    }
+
+
+    /**
+     * Forgets an idle host among the least recently used ones, if there is one.
+     */
+    private void evictIdle() {
+        Iterator<Host> iterator = hosts.values().iterator();
+        for (int i = 0; i < EVICTION_SCAN && iterator.hasNext(); i++) {
+            if (iterator.next().isIdle()) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+
+    private void drop(Frontier.Entry entry) {
+        dropped.add(entry);
+        droppedLinks++;
+    }
+
+
+    private void markReady(Host host) {
+        if (host.ready || !host.canStart()) return;
+
+        host.ready = true;
+        ready.addLast(host);
+    }
+
+
+    /**
+     * How a host responded to a request.
+     */
+    public enum Outcome {
+        SUCCESS,
+        //429 Too Many Requests or 503 Service Unavailable
+        OVERLOADED,
+        TIMEOUT,
+        //5xx other than 503
+        SERVER_ERROR,
+        //the host could not be resolved or connected to
+        UNREACHABLE,
+        //any other error, which says nothing about the load of the host
+        FAILURE
+    }
+
+
+    /**
+     * Queue, concurrency limit and circuit breaker of a single host.
+     */
+    private class Host {
+
+        private final Deque<Frontier.Entry> queue = new ArrayDeque<>();
+        private double limit;
+        private int inFlight = 0;
+        private long fastestNanos = Long.MAX_VALUE;
+        private boolean ready = false;
+
+        private int failures = 0;
+        //times the circuit has opened since the last success, the circuit is half-open while this is not 0
+        private int openings = 0;
+        private long pausedUntil = 0;
+        private boolean unreachable = false;
+
+        Host(double limit) {
+            this.limit = limit;
+        }
+
+        int limit() {
+            return (int) limit;
+        }
+
+        boolean canStart() {
+            return !queue.isEmpty() && canSend();
+        }
+
+        boolean canSend() {
+            if (unreachable || isPaused()) return false;
+
+            //a half-open circuit only lets a single request through
+            return inFlight < (openings > 0 ? 1 : limit());
+        }
+
+        /**
+         * Checks whether the host can be forgotten: it has no links queued or in flight and its circuit is closed.
+         */
+        boolean isIdle() {
+            return queue.isEmpty() && inFlight == 0 && !ready && !unreachable && openings == 0 && !isPaused();
+        }
+
+        boolean isPaused() {
+            return pausedUntil != 0 && System.nanoTime() - pausedUntil < 0;
+        }
+
+        /**
+         * Adapts the limit and the circuit to the outcome of a request.
+         *
+         * @return nanoseconds the host is paused, 0 if it is not
+         */
+        long adapt(Outcome outcome, long latencyNanos, long retryAfterNanos) {
+            switch (outcome) {
+                case SUCCESS -> {
+                    fastestNanos = Math.min(fastestNanos, latencyNanos);
+                    if (latencyNanos <= fastestNanos * LATENCY_TOLERANCE) {
+                        //one more request per round of requests at the current limit
+                        limit = Math.min(maxPerHost, limit + 1 / limit);
+                    }
+                    failures = 0;
+                    openings = 0;
+                }
+                case OVERLOADED -> {
+                    limit = Math.max(1, limit * BACKOFF_FACTOR);
+                    if (retryAfterNanos > 0) return pause(retryAfterNanos);
+                }
+                case TIMEOUT, SERVER_ERROR, UNREACHABLE -> {
+                    if (outcome == Outcome.TIMEOUT) limit = Math.max(1, limit * BACKOFF_FACTOR);
+                    return fail();
+                }
+                case FAILURE -> {
+                    //not a sign of overload
+                }
+            }
+
+            return 0;
+        }
+
+        private long fail() {
+            //requests that were in flight when the circuit opened fail as well, they do not count
+            if (isPaused()) return 0;
+
+            failures++;
+            if (openings == 0 && failures < FAILURE_THRESHOLD) return 0;
+
+            failures = 0;
+            openings++;
+            circuitsOpened++;
+
+            if (openings > MAX_OPENINGS) {
+                unreachable = true;
+                unreachableHosts++;
+                while (!queue.isEmpty()) {
+                    drop(queue.pollFirst());
+                    buffered--;
+                }
+                return 0;
+            }
+
+            return pause(OPEN_NANOS << (openings - 1));
+        }
+
+        private long pause(long nanos) {
+            long until = System.nanoTime() + nanos;
+            if (pausedUntil == 0 || until - pausedUntil > 0) pausedUntil = until;
+            return Math.max(0, pausedUntil - System.nanoTime());
+        }
+    }
+
+}
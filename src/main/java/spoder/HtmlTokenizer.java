@@ -0,0 +1,555 @@
+package spoder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streaming html tokenizer. The input is read in bulk into a reusable buffer and text, tags and attributes are
+ * reported to a {@link Handler} as views into that buffer, so no Strings are created while tokenizing.
+ * Comments, doctypes and processing instructions are skipped. The content of script and style elements and of
+ * CDATA sections is reported as text, without looking for tags inside of it.
+ * <p>
+ * Tokenizers are pooled: a page takes one with {@link #acquire()} and hands it back with {@link #release()}, so the
+ * buffer is reused instead of allocating a new one for every page.
+ */
+public class HtmlTokenizer {
+
+    /**
+     * Receives the tokens of a page. The passed CharSequences are only valid until the method returns,
+     * they have to be copied (e.g. with toString()) if they are needed afterwards.
+     */
+    public interface Handler {
+
+        /**
+         * Called for the text between tags. Long texts are reported in multiple chunks, which are split at whitespace.
+         *
+         * @param text text between tags
+         */
+        void text(CharSequence text);
+
+        /**
+         * Called for every start tag, followed by a call of {@link #attribute(CharSequence, CharSequence)} for
+         * each of its attributes.
+         *
+         * @param name name of the tag
+         */
+        void startTag(CharSequence name);
+
+        /**
+         * Called for every attribute of the last start tag.
+         *
+         * @param name name of the attribute
+         * @param value value of the attribute without quotes, empty if the attribute has no value
+         */
+        void attribute(CharSequence name, CharSequence value);
+
+        /**
+         * Called for every end tag.
+         *
+         * @param name name of the tag
+         */
+        void endTag(CharSequence name);
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+    private static final int POOL_SIZE = 256;
+    private static final BlockingQueue<HtmlTokenizer> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private char[] buffer;
+    private CharBuffer first;
+    private CharBuffer second;
+
+    private Reader in;
+    private boolean eof;
+    private boolean stopped;
+
+    //buffer[mark, limit) is kept when more input is read, everything before mark may be discarded
+    private int mark;
+    private int pos;
+    private int limit;
+
+    HtmlTokenizer() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    HtmlTokenizer(int bufferSize) {
+        allocate(new char[bufferSize]);
+    }
+
+
+    /**
+     * Takes a tokenizer with a buffer of the default size from the pool.
+     *
+     * @return tokenizer, which has to be released to return it to the pool
+     */
+    public static HtmlTokenizer acquire() {
+        HtmlTokenizer tokenizer = POOL.poll();
+        return tokenizer != null ? tokenizer : new HtmlTokenizer();
+    }
+
+
+    /**
+     * Returns the tokenizer to the pool. A buffer that has grown for a large token is replaced by one of the default
+     * size, so the pool does not keep the memory of the largest pages.
+     */
+    public void release() {
+        if (buffer.length != DEFAULT_BUFFER_SIZE) allocate(new char[DEFAULT_BUFFER_SIZE]);
+        POOL.offer(this);
+    }
+
+
+    /**
+     * Reads the given Reader until its end, or until {@link #stop()} is called, and reports all tokens to the handler.
+     * The tokenizer can be reused afterwards, but it must not be used by multiple threads at the same time.
+     *
+     * @param reader html input
+     * @param handler receiver of the tokens
+     * @throws IOException if an I/O error occurs
+     */
+    public void tokenize(Reader reader, Handler handler) throws IOException {
+        this.in = reader;
+        this.eof = false;
+        this.stopped = false;
+        this.mark = 0;
+        this.pos = 0;
+        this.limit = 0;
+
+        try {
+            while (!stopped) {
+                mark = pos;
+                if (peek(0) == -1) break;
+
+                if (buffer[pos] == '<' && startsMarkup()) {
+                    markup(handler);
+                } else {
+                    text(handler);
+                }
+            }
+        } finally {
+            this.in = null;
+        }
+    }
+
+
+    /**
+     * Stops the running {@link #tokenize(Reader, Handler)} after the current token, without reading the rest of
+     * the input. Meant to be called by the handler.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+
+    /**
+     * Checks whether the given character is a whitespace character as defined by html.
+     *
+     * @param c character to be checked
+     * @return true if the character is a space, tab, line feed, form feed or carriage return
+     */
+    public static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f';
+    }
+
+
+    /**
+     * Compares the given CharSequence with an ASCII string ignoring the case.
+     *
+     * @param sequence CharSequence to be compared
+     * @param ascii lower case ASCII string
+     * @return true if both contain the same characters ignoring the case
+     */
+    public static boolean equalsIgnoreCase(CharSequence sequence, String ascii) {
+        if (sequence.length() != ascii.length()) return false;
+
+        for (int i = 0; i < ascii.length(); i++) {
+            char c = sequence.charAt(i);
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            if (c != ascii.charAt(i)) return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Reads text until the next tag and reports it to the handler.
+     *
+     * @param handler receiver of the text
+     * @throws IOException if an I/O error occurs
+     */
+    private void text(Handler handler) throws IOException {
+        //the first character is always text, even if it is a '<' that does not start a tag
+        pos++;
+
+        while (true) {
+            if (pos == limit) {
+                flushText(handler, false);
+                if (!fill()) {
+                    flushText(handler, true);
+                    return;
+                }
+            }
+
+            if (buffer[pos] == '<' && startsMarkup()) {
+                flushText(handler, true);
+                return;
+            }
+
+            pos++;
+        }
+    }
+
+
+    /**
+     * Reads a comment, CDATA section, doctype, processing instruction, start tag or end tag starting at pos.
+     *
+     * @param handler receiver of the tokens
+     * @throws IOException if an I/O error occurs
+     */
+    private void markup(Handler handler) throws IOException {
+        int next = buffer[pos + 1];
+
+        if (next == '!') {
+            if (startsWith("<!--")) {
+                pos += 4;
+                skipUntil("-->");
+            } else if (startsWith("<![CDATA[")) {
+                pos += 9;
+                mark = pos;
+                rawText(handler, "]]>");
+                skipUntil("]]>");
+            } else {
+                skipUntil(">");
+            }
+            return;
+        }
+
+        if (next == '?') {
+            skipUntil(">");
+            return;
+        }
+
+        if (!findTagEnd()) {
+            //unterminated tag at the end of the input
+            pos = limit;
+            return;
+        }
+
+        int end = pos;
+        pos++;
+
+        if (next == '/') {
+            int nameStart = mark + 2;
+            handler.endTag(view(first, nameStart, nameEnd(nameStart, end)));
+            return;
+        }
+
+        int nameStart = mark + 1;
+        int nameEnd = nameEnd(nameStart, end);
+        CharSequence name = view(first, nameStart, nameEnd);
+
+        String rawTextEnd = null;
+        if (buffer[end - 1] != '/') {
+            if (equalsIgnoreCase(name, "script")) rawTextEnd = "</script";
+            else if (equalsIgnoreCase(name, "style")) rawTextEnd = "</style";
+        }
+
+        handler.startTag(name);
+        attributes(handler, nameEnd, end);
+
+        if (rawTextEnd != null) {
+            mark = pos;
+            rawText(handler, rawTextEnd);
+        }
+    }
+
+
+    /**
+     * Reports all attributes inside buffer[start, end) to the handler.
+     *
+     * @param handler receiver of the attributes
+     * @param start index after the tag name
+     * @param end index of the closing '>'
+     */
+    private void attributes(Handler handler, int start, int end) {
+        int i = start;
+
+        while (i < end) {
+            if (isWhitespace(buffer[i]) || buffer[i] == '/') {
+                i++;
+                continue;
+            }
+
+            int nameStart = i;
+            while (i < end && !isWhitespace(buffer[i]) && buffer[i] != '=' && buffer[i] != '/') i++;
+            int nameEnd = i;
+
+            while (i < end && isWhitespace(buffer[i])) i++;
+
+            int valueStart = nameEnd;
+            int valueEnd = nameEnd;
+
+            if (i < end && buffer[i] == '=') {
+                i++;
+                while (i < end && isWhitespace(buffer[i])) i++;
+
+                if (i < end && (buffer[i] == '"' || buffer[i] == '\'')) {
+                    char quote = buffer[i];
+                    valueStart = ++i;
+                    while (i < end && buffer[i] != quote) i++;
+                    valueEnd = i;
+                    i++;
+                } else {
+                    valueStart = i;
+                    while (i < end && !isWhitespace(buffer[i])) i++;
+                    valueEnd = i;
+                }
+            }
+
+            if (nameEnd > nameStart) {
+                handler.attribute(view(first, nameStart, nameEnd), view(second, valueStart, valueEnd));
+            }
+        }
+    }
+
+
+    /**
+     * Reports everything up to the given terminator as text. Afterwards pos points to the terminator,
+     * or to the end of the input if the terminator does not occur.
+     *
+     * @param handler receiver of the text
+     * @param terminator end of the raw text, compared ignoring the case
+     * @throws IOException if an I/O error occurs
+     */
+    private void rawText(Handler handler, String terminator) throws IOException {
+        while (true) {
+            if (pos + terminator.length() > limit) {
+                flushText(handler, false);
+                if (!fill()) {
+                    pos = limit;
+                    flushText(handler, true);
+                    return;
+                }
+                continue;
+            }
+
+            if (regionMatches(pos, terminator)) {
+                flushText(handler, true);
+                return;
+            }
+
+            pos++;
+        }
+    }
+
+
+    /**
+     * Reports the text in buffer[mark, pos) to the handler and moves the mark behind it. Unless all is set,
+     * only the text up to the last whitespace is reported, so that words are not split between chunks.
+     *
+     * @param handler receiver of the text
+     * @param all whether the whole text should be reported
+     */
+    private void flushText(Handler handler, boolean all) {
+        int end = pos;
+
+        if (!all) {
+            while (end > mark && !isWhitespace(buffer[end - 1])) end--;
+
+            if (end == mark) {
+                //a single word, keep it in the buffer unless it gets too long
+                if (pos - mark < buffer.length / 2) return;
+                end = pos;
+            }
+        }
+
+        if (end > mark) {
+            handler.text(view(first, mark, end));
+        }
+        mark = end;
+    }
+
+
+    /**
+     * Moves pos behind the next occurrence of the given terminator or to the end of the input.
+     *
+     * @param terminator string to search for
+     * @throws IOException if an I/O error occurs
+     */
+    private void skipUntil(String terminator) throws IOException {
+        while (true) {
+            mark = pos;
+            if (peek(terminator.length() - 1) == -1) {
+                pos = limit;
+                return;
+            }
+
+            if (regionMatches(pos, terminator)) {
+                pos += terminator.length();
+                return;
+            }
+
+            pos++;
+        }
+    }
+
+
+    /**
+     * Moves pos to the '>' that closes the tag starting at mark. A '>' inside a quoted attribute value
+     * does not close the tag.
+     *
+     * @return false if the input ended before the tag was closed
+     * @throws IOException if an I/O error occurs
+     */
+    private boolean findTagEnd() throws IOException {
+        char quote = 0;
+        char previous = 0;
+        pos++;
+
+        while (true) {
+            if (pos == limit && !fill()) return false;
+
+            char c = buffer[pos];
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '>') {
+                return true;
+            } else if ((c == '"' || c == '\'') && previous == '=') {
+                quote = c;
+            }
+
+            if (!isWhitespace(c)) previous = c;
+            pos++;
+        }
+    }
+
+
+    /**
+     * Returns the end of the tag name starting at the given index.
+     *
+     * @param start index of the first character of the name
+     * @param end index of the closing '>'
+     * @return index after the last character of the name
+     */
+    private int nameEnd(int start, int end) {
+        int i = start;
+        while (i < end && !isWhitespace(buffer[i]) && buffer[i] != '/') i++;
+        return i;
+    }
+
+
+    /**
+     * Checks whether the '<' at pos starts a tag, comment, doctype or processing instruction.
+     *
+     * @return true if the next character is a letter, '/', '!' or '?'
+     * @throws IOException if an I/O error occurs
+     */
+    private boolean startsMarkup() throws IOException {
+        int next = peek(1);
+
+        return next == '/' || next == '!' || next == '?' || Character.isLetter(next);
+    }
+
+
+    /**
+     * Checks whether the input at pos starts with the given string, reading more input if necessary.
+     *
+     * @param string string to be compared
+     * @return true if the input at pos starts with the string
+     * @throws IOException if an I/O error occurs
+     */
+    private boolean startsWith(String string) throws IOException {
+        return peek(string.length() - 1) != -1 && regionMatches(pos, string);
+    }
+
+
+    /**
+     * Compares the buffer at the given index with an ASCII string ignoring the case.
+     * The caller has to make sure that enough characters are in the buffer.
+     *
+     * @param index start index in the buffer
+     * @param ascii lower or upper case ASCII string
+     * @return true if the buffer contains the string at the index
+     */
+    private boolean regionMatches(int index, String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            char c = buffer[index + i];
+            char expected = ascii.charAt(i);
+            if (c != expected && Character.toLowerCase(c) != Character.toLowerCase(expected)) return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Returns the character at pos + offset, reading more input if necessary.
+     *
+     * @param offset offset from pos
+     * @return the character or -1 if the input ends before
+     * @throws IOException if an I/O error occurs
+     */
+    private int peek(int offset) throws IOException {
+        while (pos + offset >= limit) {
+            if (!fill()) return -1;
+        }
+
+        return buffer[pos + offset];
+    }
+
+
+    /**
+     * Reads more input into the buffer. Everything before the mark is discarded to make room for it,
+     * if there is nothing to discard and the buffer is full, the buffer is enlarged.
+     *
+     * @return false if the end of the input has been reached
+     * @throws IOException if an I/O error occurs
+     */
+    private boolean fill() throws IOException {
+        if (eof) return false;
+
+        if (mark > 0) {
+            System.arraycopy(buffer, mark, buffer, 0, limit - mark);
+            pos -= mark;
+            limit -= mark;
+            mark = 0;
+        } else if (limit == buffer.length) {
+            allocate(Arrays.copyOf(buffer, buffer.length * 2));
+        }
+
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read == -1) {
+            eof = true;
+            return false;
+        }
+
+        limit += read;
+        return true;
+    }
+
+
+    private void allocate(char[] buffer) {
+        this.buffer = buffer;
+        this.first = CharBuffer.wrap(buffer);
+        this.second = CharBuffer.wrap(buffer);
+    }
+
+
+    /**
+     * Points the given view to buffer[start, end).
+     *
+     * @return the view
+     */
+    private static CharBuffer view(CharBuffer view, int start, int end) {
+        view.clear();
+        view.position(start);
+        view.limit(end);
+        return view;
+    }
+
+}
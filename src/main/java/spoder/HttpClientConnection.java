@@ -0,0 +1,315 @@
+package spoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Fetch engine based on a single shared {@link HttpClient}. Connections are kept alive and reused for
+ * subsequent requests to the same host and HTTP/2 is used if the server supports it. Responses rejected by the
+ * {@link ContentFilter} are closed before their body is read, compressed bodies are decoded by the
+ * {@link ContentDecoder}. Pages stored in the {@link PageCache} are requested conditionally.
+ * <p>
+ * The client only supports a timeout for connecting and one for receiving the response headers, which is the read
+ * timeout of the {@link FetchTimeouts}, or less if the total timeout expires earlier. Bodies that take longer than the
+ * total timeout are aborted by the watchdog.
+ * <p>
+ * The client does not tell when it connects, so the connect and the TLS handshake are part of the time to the first
+ * byte in the {@link TaskTrace}. Blocking fetches resolve the host beforehand with the
+ * {@link HostResolver}, so the DNS lookup is traced apart.
+ */
+public class HttpClientConnection implements FetchEngine {
+
+    private static final String REQUEST_METHOD = "GET";
+    private static final String PROBE_METHOD = "HEAD";
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 6.1; WOW64) AppleWebKit/537.11 (KHTML, like Gecko) Chrome/23.0.1271.95 Safari/537.11";
+    private final String cookies;
+    private final ContentFilter contentFilter;
+    private final ContentDecoder contentDecoder;
+    private final PageCache pageCache;
+    private final FetchTimeouts timeouts;
+    private final HostResolver hostResolver;
+    private final HttpClient client;
+
+
+    HttpClientConnection(String cookies, ContentFilter contentFilter, ContentDecoder contentDecoder,
+                         PageCache pageCache, FetchTimeouts timeouts, HostResolver hostResolver) {
+        this.cookies = cookies;
+        this.contentFilter = contentFilter;
+        this.contentDecoder = contentDecoder;
+        this.pageCache = pageCache;
+        this.timeouts = timeouts;
+        this.hostResolver = hostResolver;
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if (timeouts.getConnectTimeout() > 0) builder.connectTimeout(Duration.ofMillis(timeouts.getConnectTimeout()));
+        this.client = builder.build();
+    }
+
+
+    @Override
+    public FetchResponse fetch(Link link, TaskTrace trace) throws IOException {
+        if (contentFilter.skipsByExtension(link)) return FetchResponse.skipped();
+
+        long started = System.nanoTime();
+        trace.mark();
+        hostResolver.resolve(link.getHostName());
+        trace.lap(TaskTrace.Phase.DNS);
+
+        PageCache.Entry cached = pageCache.lookup(link);
+        //a cached page has been accepted before, so it does not need to be probed again
+        if (cached == null && contentFilter.needsProbe(link) && !probe(link, started)) return FetchResponse.skipped();
+
+        HttpRequest request = buildRequest(link, REQUEST_METHOD, cached, started);
+        trace.mark();
+        HttpResponse<InputStream> response = send(request, HttpResponse.BodyHandlers.ofInputStream(), link);
+        trace.lap(TaskTrace.Phase.TTFB);
+
+        if (response.statusCode() >= 400) {
+            response.body().close();
+            throw new HttpStatusException(response.statusCode(), link, retryAfter(response));
+        }
+
+        if (response.statusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            response.body().close();
+            return new FetchResponse(
+                    response.statusCode(),
+                    name -> response.headers().firstValue(name).orElse(null),
+                    InputStream.nullInputStream(),
+                    () -> {});
+        }
+
+        if (!contentFilter.accepts(response.headers().firstValue("Content-Type").orElse(null))) {
+            //closing the unread body cancels the download
+            response.body().close();
+            return FetchResponse.skipped();
+        }
+
+        FetchTimeouts.Watch watch = timeouts.watch(link, started, () -> closeQuietly(response.body()));
+
+        try {
+            return new FetchResponse(
+                    response.statusCode(),
+                    name -> response.headers().firstValue(name).orElse(null),
+                    watch.guard(response.body()),
+                    watch::cancel,
+                    received -> decode(received, response));
+        } catch (IOException e) {
+            watch.cancel();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Sends a GET request to the website specified by the given link without blocking the calling thread.
+     * The body of the response is read, up to the maximum body size of the content filter, before the returned
+     * future completes.
+     *
+     * @param link link of website to fetch
+     * @param trace trace the time to the first byte and the download are added to
+     * @return future that completes with the buffered response or exceptionally with an {@link IOException},
+     * which is a {@link HttpStatusException} if the server responded with an error status
+     */
+    public CompletableFuture<FetchResponse> fetchAsync(Link link, TaskTrace trace) {
+        if (contentFilter.skipsByExtension(link)) return CompletableFuture.completedFuture(FetchResponse.skipped());
+
+        long started = System.nanoTime();
+        PageCache.Entry cached = pageCache.lookup(link);
+        HttpRequest request;
+        HttpRequest probe;
+
+        try {
+            request = buildRequest(link, REQUEST_METHOD, cached, started);
+            //a cached page has been accepted before, so it does not need to be probed again
+            probe = cached == null && contentFilter.needsProbe(link) ? buildRequest(link, PROBE_METHOD, null, started) : null;
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<Boolean> accepted = probe == null
+                ? CompletableFuture.completedFuture(true)
+                : client.sendAsync(probe, HttpResponse.BodyHandlers.discarding()).thenCompose(response -> {
+                    if (response.statusCode() >= 400) {
+                        return CompletableFuture.failedFuture(
+                                new HttpStatusException(response.statusCode(), link, retryAfter(response)));
+                    }
+                    return CompletableFuture.completedFuture(
+                            contentFilter.accepts(response.headers().firstValue("Content-Type").orElse(null)));
+                });
+
+        return accepted.thenCompose(accept -> {
+            if (!accept) return CompletableFuture.completedFuture(FetchResponse.skipped());
+
+            HttpResponse.BodyHandler<byte[]> bodyHandler = contentFilter.bodyHandler();
+            trace.mark();
+
+            //the body handler is applied as soon as the headers have been received
+            CompletableFuture<HttpResponse<byte[]>> sent = client.sendAsync(request, info -> {
+                trace.lap(TaskTrace.Phase.TTFB);
+                return bodyHandler.apply(info);
+            });
+            //cancelling the future of the client aborts the request
+            FetchTimeouts.Watch watch = timeouts.watch(link, started, () -> sent.cancel(true));
+
+            return sent.handle((response, e) -> {
+                watch.cancel();
+                if (e == null) return CompletableFuture.completedFuture(response);
+
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (watch.isExpired()) cause = watch.translate(new IOException(cause));
+                return CompletableFuture.<HttpResponse<byte[]>>failedFuture(cause);
+            }).thenCompose(future -> future).thenCompose(response -> {
+                trace.lap(TaskTrace.Phase.DOWNLOAD);
+
+                if (response.statusCode() >= 400) {
+                    return CompletableFuture.failedFuture(
+                            new HttpStatusException(response.statusCode(), link, retryAfter(response)));
+                }
+
+                if (response.statusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    return CompletableFuture.completedFuture(new FetchResponse(
+                            response.statusCode(),
+                            name -> response.headers().firstValue(name).orElse(null),
+                            InputStream.nullInputStream(),
+                            () -> {}));
+                }
+
+                //the body handler has not read the body, because of its content type
+                if (response.body() == null) return CompletableFuture.completedFuture(FetchResponse.skipped());
+
+                try {
+                    return CompletableFuture.completedFuture(new FetchResponse(
+                            response.statusCode(),
+                            name -> response.headers().firstValue(name).orElse(null),
+                            new ByteArrayInputStream(response.body()),
+                            () -> {},
+                            received -> decode(received, response)));
+                } catch (IOException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            });
+        });
+    }
+
+
+    /**
+     * Decompresses the received body according to the content encoding of the response and limits it to the maximum
+     * body size.
+     *
+     * @param received body as received
+     * @param response response the body belongs to
+     * @return decoded body
+     * @throws IOException if the content encoding is not supported or the body is not valid compressed data
+     */
+    private InputStream decode(InputStream received, HttpResponse<?> response) throws IOException {
+        return contentFilter.limit(contentDecoder.decode(received, response.headers().firstValue("Content-Encoding").orElse(null)));
+    }
+
+
+    /**
+     * Sends a HEAD request to find out whether the body of the link is worth fetching.
+     *
+     * @param link link of website to probe
+     * @param started {@link System#nanoTime()} when the fetch started
+     * @return false if the content type of the link is rejected by the content filter
+     * @throws IOException If the URL is malformed, there was an error connecting to the site or the site
+     *                     responded with an error status.
+     */
+    private boolean probe(Link link, long started) throws IOException {
+        HttpResponse<Void> response = send(buildRequest(link, PROBE_METHOD, null, started), HttpResponse.BodyHandlers.discarding(), link);
+
+        if (response.statusCode() >= 400) {
+            throw new HttpStatusException(response.statusCode(), link, retryAfter(response));
+        }
+
+        return contentFilter.accepts(response.headers().firstValue("Content-Type").orElse(null));
+    }
+
+
+    /**
+     * Sends the request and blocks until the response has been received.
+     *
+     * @param request request to be sent
+     * @param bodyHandler handler of the body of the response
+     * @param link link of the request, used in the error message
+     * @return response
+     * @throws IOException if the request fails or the thread is interrupted while waiting
+     */
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, Link link) throws IOException {
+        try {
+            return client.send(request, bodyHandler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching " + link, e);
+        }
+    }
+
+
+    /**
+     * Builds the request for the given link.
+     *
+     * @param link link of website to fetch
+     * @param method request method without a body, i.e. GET or HEAD
+     * @param cached cached page whose validators are sent, null for an unconditional request
+     * @param started {@link System#nanoTime()} when the fetch started, the response has to be received within the
+     *                read timeout and the total timeout
+     * @return request with the user agent, cookies, validators and timeout set
+     * @throws IOException If the link is not a valid http or https URI.
+     */
+    private HttpRequest buildRequest(Link link, String method, PageCache.Entry cached, long started) throws IOException {
+        HttpRequest.Builder builder;
+
+        try {
+            builder = HttpRequest.newBuilder(URI.create(link.toString()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid URL: " + link, e);
+        }
+
+        builder.method(method, HttpRequest.BodyPublishers.noBody())
+                .header("User-Agent", USER_AGENT)
+                .header("Accept-Encoding", ContentDecoder.ACCEPT_ENCODING);
+
+        if (cookies != null) {
+            builder.header("Cookie", cookies);
+        }
+
+        if (cached != null && cached.etag() != null) {
+            builder.header("If-None-Match", cached.etag());
+        }
+
+        if (cached != null && cached.lastModified() != null) {
+            builder.header("If-Modified-Since", cached.lastModified());
+        }
+
+        long timeout = timeouts.responseTimeout(started);
+        if (timeout > 0) builder.timeout(Duration.ofMillis(timeout));
+
+        return builder.build();
+    }
+
+
+    private static String retryAfter(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After").orElse(null);
+    }
+
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            //the body is aborted, its error is reported by the thread reading it
+        }
+    }
+
+}
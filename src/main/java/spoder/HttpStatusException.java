@@ -0,0 +1,68 @@
+package spoder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Thrown by a {@link FetchEngine} if the server responds with an error status.
+ */
+public class HttpStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final String retryAfter;
+
+    /**
+     * @param statusCode status code of the response
+     * @param link link that has been fetched
+     */
+    HttpStatusException(int statusCode, Link link) {
+        this(statusCode, link, null);
+    }
+
+    /**
+     * @param statusCode status code of the response
+     * @param link link that has been fetched
+     * @param retryAfter value of the Retry-After header of the response, null if it has none
+     */
+    HttpStatusException(int statusCode, Link link, String retryAfter) {
+        super("Server returned HTTP response code: " + statusCode + " for URL: " + link);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Returns how long the server asked to wait before the next request, given by the Retry-After header either in
+     * seconds or as a date.
+     *
+     * @return milliseconds to wait, 0 for a date in the past, or -1 if the response has no valid Retry-After header
+     */
+    public long getRetryAfterMillis() {
+        if (retryAfter == null) return -1;
+
+        String value = retryAfter.trim();
+
+        try {
+            long seconds = Long.parseLong(value);
+            return seconds < 0 ? -1 : Math.multiplyExact(seconds, 1000L);
+        } catch (NumberFormatException | ArithmeticException e) {
+            //not a number of seconds, but maybe a date
+        }
+
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,533 @@
+package spoder;
+
+import java.net.IDN;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * An absolute http or https url in canonical form.
+ * <p>
+ * References found on a page are resolved against the link of the page once, when the link is created, following
+ * RFC 3986: scheme and host are lowercased, default ports, dot segments and fragments are removed, percent-encodings
+ * are normalized and, if enabled, the query parameters are sorted. Different spellings of the same url therefore
+ * result in equal links, so every page is fetched only once.
+ * <p>
+ * The canonical url is kept as a single string together with the offsets of its components and its hash, so neither
+ * {@link #toString()}, {@link #hashCode()} nor the getters have to parse or concatenate anything.
+ * The host is interned, so all links of a host share the same string.
+ */
+public class Link {
+
+    private static final String HTTP = "http";
+    private static final String HTTPS = "https";
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String url;
+    private final String host;
+    private final int pathStart;
+    private final int queryStart;
+    private final int hash;
+    private final boolean sortQueryParameters;
+
+    private Link(String url, String host, int pathStart, int queryStart, boolean sortQueryParameters) {
+        this.url = url;
+        this.host = host;
+        this.pathStart = pathStart;
+        this.queryStart = queryStart;
+        this.hash = url.hashCode();
+        this.sortQueryParameters = sortQueryParameters;
+    }
+
+
+    /**
+     * Creates a link from an absolute url.
+     *
+     * @param url absolute http or https url
+     * @param sortQueryParameters whether the query parameters of this link and of all links resolved against it
+     *                            are sorted by name
+     * @return canonical link
+     * @throws IllegalArgumentException if the url is not a valid absolute http or https url
+     */
+    public static Link parse(String url, boolean sortQueryParameters) throws IllegalArgumentException {
+        Link link = create(null, url, sortQueryParameters);
+        if (link == null) throw new IllegalArgumentException("Not a valid http or https url: " + url);
+
+        return link;
+    }
+
+
+    /**
+     * Resolves a reference found on a page, e.g. the value of a href, against the link of the page.
+     *
+     * @param base link of the page the reference was found on
+     * @param reference absolute or relative reference
+     * @return canonical link, or null if the reference does not resolve to a valid http or https url
+     * (e.g. mailto: or javascript: references)
+     */
+    public static Link resolve(Link base, String reference) {
+        return create(base, reference, base.sortQueryParameters);
+    }
+
+
+    /**
+     * Returns the scheme of the url.
+     *
+     * @return "http" or "https"
+     */
+    public String getScheme() {
+        return url.charAt(4) == 's' ? HTTPS : HTTP;
+    }
+
+
+    /**
+     * Returns the host of the url.
+     *
+     * @return lowercase host, including the port if it is not the default port of the scheme
+     */
+    public String getHost() {
+        return host;
+    }
+
+
+    /**
+     * Returns the name of the host of the url, which can be resolved.
+     *
+     * @return lowercase host without the port, IPv6 addresses without their brackets
+     */
+    public String getHostName() {
+        String name = host;
+
+        //an IPv6 address is bracketed, so only a colon after the closing bracket starts the port
+        int colon = name.lastIndexOf(':');
+        if (colon > name.lastIndexOf(']')) name = name.substring(0, colon);
+
+        if (name.startsWith("[")) return name.substring(1, name.length() - 1);
+        return name;
+    }
+
+
+    /**
+     * Returns the path of the url.
+     *
+     * @return path without dot segments, at least "/"
+     */
+    public String getPath() {
+        return url.substring(pathStart, queryStart);
+    }
+
+
+    /**
+     * Returns the query of the url.
+     *
+     * @return query without the leading '?', or null if the url has no query
+     */
+    public String getQuery() {
+        if (queryStart == url.length()) return null;
+
+        return url.substring(queryStart + 1);
+    }
+
+
+    @Override
+    public String toString() {
+        return url;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Link link = (Link) o;
+        return hash == link.hash && url.equals(link.url);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+
+    /**
+     * Splits the reference into its components (RFC 3986, section 3), resolves it against the base (section 5.2)
+     * and normalizes the result (section 6).
+     *
+     * @param base link the reference is resolved against, null if the reference has to be absolute
+     * @param reference absolute or relative reference
+     * @param sortQueryParameters whether the query parameters are sorted
+     * @return canonical link, or null if the reference does not resolve to a valid http or https url
+     */
+    private static Link create(Link base, String reference, boolean sortQueryParameters) {
+        String ref = reference.strip();
+        int length = ref.length();
+
+        int schemeEnd = schemeEnd(ref);
+        int authorityStart = schemeEnd + 1;
+        boolean hasAuthority = ref.startsWith("//", authorityStart);
+        int pathStart = hasAuthority ? indexOfAny(ref, authorityStart + 2, "/?#") : authorityStart;
+        int pathEnd = indexOfAny(ref, pathStart, "?#");
+        boolean hasQuery = pathEnd < length && ref.charAt(pathEnd) == '?';
+        int queryEnd = hasQuery ? indexOfAny(ref, pathEnd + 1, "#") : pathEnd;
+
+        String path = normalizeEncoding(ref, pathStart, pathEnd);
+        String query = hasQuery ? normalizeEncoding(ref, pathEnd + 1, queryEnd) : null;
+
+        StringBuilder canonical = new StringBuilder(length + 16);
+        String host;
+
+        if (schemeEnd != -1 || hasAuthority) {
+            String scheme;
+            if (schemeEnd != -1) {
+                scheme = ref.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+            } else if (base != null) {
+                scheme = base.getScheme();
+            } else {
+                return null;
+            }
+
+            //only hierarchical http(s) urls can be crawled, everything else (mailto:, tel:, javascript:, ...) is skipped
+            if (!hasAuthority || !(scheme.equals(HTTP) || scheme.equals(HTTPS))) return null;
+
+            canonical.append(scheme).append("://");
+            host = appendAuthority(canonical, scheme, ref, authorityStart + 2, pathStart);
+            if (host == null) return null;
+
+            path = removeDotSegments(path);
+        } else {
+            if (base == null) return null;
+
+            canonical.append(base.url, 0, base.pathStart);
+            host = base.host;
+
+            if (path.isEmpty()) {
+                path = base.getPath();
+                if (query == null) query = base.getQuery();
+            } else if (path.charAt(0) == '/') {
+                path = removeDotSegments(path);
+            } else {
+                String basePath = base.getPath();
+                path = removeDotSegments(basePath.substring(0, basePath.lastIndexOf('/') + 1) + path);
+            }
+        }
+
+        int canonicalPathStart = canonical.length();
+        canonical.append(path.isEmpty() ? "/" : path);
+
+        int canonicalQueryStart = canonical.length();
+        if (query != null && !query.isEmpty()) {
+            canonical.append('?').append(sortQueryParameters ? sortParameters(query) : query);
+        }
+
+        return new Link(canonical.toString(), host, canonicalPathStart, canonicalQueryStart, sortQueryParameters);
+    }
+
+
+    /**
+     * Finds the end of the scheme of the reference.
+     *
+     * @param ref reference
+     * @return index of the ':' after the scheme, or -1 if the reference has no scheme
+     */
+    private static int schemeEnd(String ref) {
+        for (int i = 0; i < ref.length(); i++) {
+            char c = ref.charAt(i);
+
+            if (c == ':') return i > 0 ? i : -1;
+            if (isAlpha(c)) continue;
+            if (i > 0 && (isDigit(c) || c == '+' || c == '-' || c == '.')) continue;
+
+            return -1;
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Appends the normalized authority: the userinfo unchanged, the host lowercased (and converted to ASCII if it is an
+     * internationalized domain name) and the port unless it is the default port of the scheme.
+     *
+     * @param canonical builder the authority is appended to
+     * @param scheme lowercase scheme
+     * @param ref reference containing the authority
+     * @param start index of the first character of the authority
+     * @param end index after the last character of the authority
+     * @return interned host including the port if it is not the default port, or null if the authority is invalid
+     */
+    private static String appendAuthority(StringBuilder canonical, String scheme, String ref, int start, int end) {
+        int userInfoEnd = ref.lastIndexOf('@', end - 1);
+        if (userInfoEnd >= start) {
+            canonical.append(ref, start, userInfoEnd + 1);
+            start = userInfoEnd + 1;
+        }
+
+        if (start == end) return null;
+
+        int hostEnd;
+        if (ref.charAt(start) == '[') {
+            //ip literal, the colons inside the brackets do not separate the port
+            hostEnd = ref.indexOf(']', start);
+            if (hostEnd == -1 || hostEnd >= end) return null;
+            hostEnd++;
+        } else {
+            hostEnd = ref.lastIndexOf(':', end - 1);
+            if (hostEnd < start) hostEnd = end;
+        }
+
+        String host = ref.charAt(start) == '['
+                ? normalizeIpLiteral(ref.substring(start, hostEnd))
+                : normalizeHost(ref.substring(start, hostEnd));
+        if (host == null) return null;
+
+        int port = -1;
+        if (hostEnd < end) {
+            if (ref.charAt(hostEnd) != ':') return null;
+
+            for (int i = hostEnd + 1; i < end; i++) {
+                if (!isDigit(ref.charAt(i))) return null;
+                port = Math.max(port, 0) * 10 + ref.charAt(i) - '0';
+                if (port > 65535) return null;
+            }
+        }
+
+        if (port != -1 && port != (scheme.equals(HTTPS) ? 443 : 80)) {
+            host = host + ':' + port;
+        }
+
+        canonical.append(host);
+        return host.intern();
+    }
+
+
+    /**
+     * Lowercases the host, normalizes its percent-encoding and converts internationalized domain names to ASCII.
+     *
+     * @param host host without the port
+     * @return normalized host, or null if the host is empty or contains characters that are not allowed in a host
+     */
+    private static String normalizeHost(String host) {
+        if (host.isEmpty()) return null;
+
+        for (int i = 0; i < host.length(); i++) {
+            if (host.charAt(i) >= 0x80) {
+                try {
+                    host = IDN.toASCII(host, IDN.ALLOW_UNASSIGNED);
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+                break;
+            }
+        }
+
+        host = normalizeEncoding(host, 0, host.length());
+
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if (c <= ' ' || c >= 0x7f || "\"#/<>?@\\^`{|}".indexOf(c) != -1) return null;
+        }
+
+        return host.isEmpty() ? null : host.toLowerCase(Locale.ROOT);
+    }
+
+
+    /**
+     * Lowercases the hex digits of an ip literal, which is kept bracketed and unencoded, since the brackets delimit
+     * it from the port.
+     *
+     * @param literal ip literal including the brackets
+     * @return normalized ip literal, or null if it is empty or contains characters that are not allowed in an IPv6
+     * address
+     */
+    private static String normalizeIpLiteral(String literal) {
+        if (literal.length() <= 2) return null;
+
+        for (int i = 1; i < literal.length() - 1; i++) {
+            char c = literal.charAt(i);
+            if (!isHex(c) && c != ':' && c != '.') return null;
+        }
+
+        return literal.toLowerCase(Locale.ROOT);
+    }
+
+
+    /**
+     * Removes the "." and ".." segments from the path (RFC 3986, section 5.2.4).
+     *
+     * @param path path that may contain dot segments
+     * @return path without dot segments
+     */
+    private static String removeDotSegments(String path) {
+        if (!hasDotSegment(path)) return path;
+
+        StringBuilder output = new StringBuilder(path.length());
+        int i = 0;
+        int length = path.length();
+
+        while (i < length) {
+            if (path.startsWith("../", i)) {
+                i += 3;
+            } else if (path.startsWith("./", i)) {
+                i += 2;
+            } else if (path.startsWith("/./", i)) {
+                i += 2;
+            } else if (path.startsWith("/.", i) && i + 2 == length) {
+                output.append('/');
+                i = length;
+            } else if (path.startsWith("/../", i)) {
+                removeLastSegment(output);
+                i += 3;
+            } else if (path.startsWith("/..", i) && i + 3 == length) {
+                removeLastSegment(output);
+                output.append('/');
+                i = length;
+            } else if (length - i <= 2 && isDots(path, i)) {
+                i = length;
+            } else {
+                int next = path.indexOf('/', path.charAt(i) == '/' ? i + 1 : i);
+                if (next == -1) next = length;
+                output.append(path, i, next);
+                i = next;
+            }
+        }
+
+        return output.toString();
+    }
+
+
+    private static boolean hasDotSegment(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) != '.' || (i > 0 && path.charAt(i - 1) != '/')) continue;
+
+            int end = i + 1 < path.length() && path.charAt(i + 1) == '.' ? i + 2 : i + 1;
+            if (end == path.length() || path.charAt(end) == '/') return true;
+        }
+
+        return false;
+    }
+
+
+    private static boolean isDots(String path, int from) {
+        for (int i = from; i < path.length(); i++) {
+            if (path.charAt(i) != '.') return false;
+        }
+
+        return true;
+    }
+
+
+    private static void removeLastSegment(StringBuilder output) {
+        int last = output.lastIndexOf("/");
+        output.setLength(Math.max(last, 0));
+    }
+
+
+    /**
+     * Normalizes the percent-encoding of a path or query (RFC 3986, section 6.2.2): encoded unreserved characters are
+     * decoded, the hex digits of the remaining encodings are uppercased and characters that are not allowed in a url
+     * (whitespace, non-ASCII, ...) are encoded as UTF-8.
+     *
+     * @param ref reference containing the path or query
+     * @param start index of the first character
+     * @param end index after the last character
+     * @return normalized path or query
+     */
+    private static String normalizeEncoding(String ref, int start, int end) {
+        int i = start;
+        while (i < end && ref.charAt(i) != '%' && isAllowed(ref.charAt(i))) i++;
+        if (i == end) return ref.substring(start, end);
+
+        StringBuilder normalized = new StringBuilder(end - start + 16);
+        normalized.append(ref, start, i);
+
+        while (i < end) {
+            char c = ref.charAt(i);
+
+            if (c == '%' && i + 2 < end && isHex(ref.charAt(i + 1)) && isHex(ref.charAt(i + 2))) {
+                char decoded = (char) (Character.digit(ref.charAt(i + 1), 16) * 16 + Character.digit(ref.charAt(i + 2), 16));
+                if (isUnreserved(decoded)) {
+                    normalized.append(decoded);
+                } else {
+                    normalized.append('%')
+                            .append(Character.toUpperCase(ref.charAt(i + 1)))
+                            .append(Character.toUpperCase(ref.charAt(i + 2)));
+                }
+                i += 3;
+            } else if (c != '%' && isAllowed(c)) {
+                normalized.append(c);
+                i++;
+            } else {
+                int codePointEnd = Character.isHighSurrogate(c) && i + 1 < end ? i + 2 : i + 1;
+                for (byte b : ref.substring(i, codePointEnd).getBytes(StandardCharsets.UTF_8)) {
+                    normalized.append('%').append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+                }
+                i = codePointEnd;
+            }
+        }
+
+        return normalized.toString();
+    }
+
+
+    /**
+     * Sorts the query parameters by name. Parameters with the same name keep their order, since it may be significant.
+     *
+     * @param query query without the leading '?'
+     * @return query with sorted parameters
+     */
+    private static String sortParameters(String query) {
+        if (query.indexOf('&') == -1) return query;
+
+        String[] parameters = query.split("&");
+        Arrays.sort(parameters, Comparator.comparing(Link::parameterName));
+
+        return String.join("&", parameters);
+    }
+
+
+    private static String parameterName(String parameter) {
+        int separator = parameter.indexOf('=');
+
+        return separator == -1 ? parameter : parameter.substring(0, separator);
+    }
+
+
+    private static int indexOfAny(String s, int from, String chars) {
+        for (int i = from; i < s.length(); i++) {
+            if (chars.indexOf(s.charAt(i)) != -1) return i;
+        }
+
+        return s.length();
+    }
+
+
+    /**
+     * Checks whether the character may appear unencoded in a path or query: unreserved, sub-delims, ':', '@', '/', '?'
+     * and '%', which is checked separately.
+     */
+    private static boolean isAllowed(char c) {
+        return isUnreserved(c) || "!$&'()*+,;=:@/?%".indexOf(c) != -1;
+    }
+
+
+    private static boolean isUnreserved(char c) {
+        return isAlpha(c) || isDigit(c) || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+
+    private static boolean isAlpha(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+
+    private static boolean isHex(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+}
@@ -0,0 +1,73 @@
+package spoder;
+
+/**
+ * Remembers which links have been found already, so every link is crawled only once.
+ * Implementations store compact fingerprints of the links instead of the links themselves and may therefore
+ * wrongly report a new link as already found, with the probability given by {@link #getFalsePositiveRate()}.
+ */
+public interface LinkDeduplicator {
+
+    /**
+     * Adds the link if it has not been added before.
+     *
+     * @param link link to be added
+     * @return true if the link is new, false if it has (probably) been added before
+     */
+    boolean add(Link link);
+
+    /**
+     * Returns the number of links that were added as new.
+     *
+     * @return number of links
+     */
+    long size();
+
+    /**
+     * Returns the memory the deduplicator currently uses for its data.
+     *
+     * @return memory usage in bytes
+     */
+    long getMemoryUsage();
+
+    /**
+     * Returns the number of new links that could not be stored because the memory budget was exhausted.
+     * These links were reported as already found.
+     *
+     * @return number of rejected links
+     */
+    long getRejected();
+
+    /**
+     * Estimates the probability that a new link is wrongly reported as already found, given the current contents.
+     *
+     * @return estimated false positive rate
+     */
+    double getFalsePositiveRate();
+
+
+    /**
+     * Computes a 64-bit fingerprint of the url of the link: FNV-1a over the characters, followed by the
+     * finalizer of MurmurHash3 to spread the bits.
+     *
+     * @param link link to be hashed
+     * @return fingerprint of the link
+     */
+    static long fingerprint(Link link) {
+        String url = link.toString();
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < url.length(); i++) {
+            hash ^= url.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+}
@@ -0,0 +1,67 @@
+package spoder;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Rates how valuable a link probably is, so that the best links are crawled first when the crawl is stopped early.
+ * <p>
+ * The score prefers links that have been found close to the start page, that have short paths, that stay on the
+ * host of the start page and whose url contains one of the given keywords. Links with a query are rated slightly
+ * lower, since they often lead into calendars, filters and other endless variations of the same page.
+ */
+public class LinkScorer implements ToDoubleFunction<Frontier.Entry> {
+
+    private static final double DEPTH_WEIGHT = 1.0;
+    private static final double PATH_SEGMENT_PENALTY = 0.5;
+    private static final double QUERY_PENALTY = 0.5;
+    private static final double SAME_HOST_BONUS = 2.0;
+    private static final double KEYWORD_BONUS = 3.0;
+
+    private final String startHost;
+    private final List<String> keywords;
+
+    /**
+     * @param startLink link the crawl started at
+     * @param keywords keywords that make a link more valuable if its url contains them, compared case-insensitively
+     */
+    LinkScorer(Link startLink, List<String> keywords) {
+        this.startHost = startLink.getHost();
+        this.keywords = keywords.stream().map(keyword -> keyword.toLowerCase(Locale.ROOT)).toList();
+    }
+
+
+    /**
+     * Rates the link. The remaining depth is higher the closer to the start page the link has been found, also
+     * if the depth is unlimited and counts down from -1.
+     *
+     * @param entry link together with its remaining depth
+     * @return score of the link, higher is better
+     */
+    @Override
+    public double applyAsDouble(Frontier.Entry entry) {
+        Link link = entry.link();
+        double score = DEPTH_WEIGHT * entry.depth();
+
+        String path = link.getPath();
+        for (int i = 1; i < path.length(); i++) {
+            if (path.charAt(i) == '/') score -= PATH_SEGMENT_PENALTY;
+        }
+
+        if (link.getQuery() != null) score -= QUERY_PENALTY;
+
+        //interned, see Link#getHost()
+        if (link.getHost() == startHost) score += SAME_HOST_BONUS;
+
+        if (!keywords.isEmpty()) {
+            String url = link.toString().toLowerCase(Locale.ROOT);
+            for (String keyword : keywords) {
+                if (url.contains(keyword)) score += KEYWORD_BONUS;
+            }
+        }
+
+        return score;
+    }
+
+}
@@ -0,0 +1,1014 @@
+package spoder;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import sun.misc.Signal;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+public class Main {
+
+    public static final String[] ALLOWED_PROTOCOLS = {"http://", "https://"};
+
+    static final int DEFAULT_VIRTUAL_MAX_CONNECTIONS = 1000;
+
+
+    public static void main(String[] args) {
+
+        Options options = generateAcceptedCommandLineOptions();
+        CommandLineArguments commandLineArguments;
+
+        try {
+            commandLineArguments = parseArguments(options, args);
+        } catch (ParseException | IllegalArgumentException e) {
+            printUsageAndHelp(options);
+            System.err.println("\nError: " + e.getMessage());
+            System.exit(64);
+            return;
+        }
+
+        //the results are streamed to stdout unless they are written to a file, so they are not mixed with the report
+        PrintStream report = commandLineArguments.isOutput() ? System.out : System.err;
+
+        report.println("""
+                   _____                 __        \s
+                  / ___/____  ____  ____/ /__  _____
+                  \\__ \\/ __ \\/ __ \\/ __  / _ \\/ ___/
+                 ___/ / /_/ / /_/ / /_/ /  __/ /   \s
+                /____/ .___/\\____/\\__,_/\\___/_/    \s
+                    /_/                            \s
+                """);
+
+        Crawl crawl;
+
+        try {
+            crawl = new Crawl(commandLineArguments);
+        } catch (IOException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        OutputSink outputSink;
+
+        try {
+            outputSink = new OutputSink(
+                    commandLineArguments.isOutput() ? Path.of(commandLineArguments.getOutputFile()) : null,
+                    commandLineArguments.getFormat(),
+                    !commandLineArguments.isOmitLinks());
+        } catch (IOException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        Parser parser = crawl.getParser();
+        parser.addResultListener(outputSink);
+
+        setupSignalHandling(crawl);
+
+        crawl.start();
+
+        long start = System.currentTimeMillis();
+
+        try {
+            crawl.awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            outputSink.close();
+        } catch (IOException e) {
+            System.err.println("ERROR: " + e.getMessage());
+        }
+
+        long end = System.currentTimeMillis();
+        report.println("\nDuration: " + (end - start) + "\n");
+
+        if (!commandLineArguments.isOmitLinks()) {
+            report.println("Number of links found: " + outputSink.getLinks());
+        }
+        report.println("Number of emails found: " + outputSink.getEmails());
+        report.println("Number of phone numbers found: " + outputSink.getPhoneNumbers());
+
+        printDeduplicationStatistics(report, parser.getLinkDeduplicator());
+        printBudgetStatistics(report, crawl.getBudget());
+        printContentFilterStatistics(report, crawl.getContentFilter());
+        printMetrics(report, crawl.getMetrics());
+        printRetryStatistics(report, crawl.getRetryPolicy(), crawl.getHostScheduler());
+        printDnsStatistics(report, crawl.getHostResolver());
+        printScopeStatistics(report, crawl.getScope());
+        printTraceReport(report, crawl.getTracer());
+        printTransferStatistics(report, crawl.getBudget(), crawl.getContentDecoder());
+        printCacheStatistics(report, crawl.getPageCache());
+    }
+
+
+    /**
+     * Parses the given arguments. For optional arguments that are not given, the default value is kept.
+     *
+     * @param options accepted options
+     * @param args arguments passed to the program
+     * @return the parsed arguments
+     * @throws ParseException if the arguments do not match the accepted options
+     * @throws IllegalArgumentException if the value of an argument is invalid
+     */
+    static CommandLineArguments parseArguments(Options options, String[] args) throws ParseException, IllegalArgumentException {
+        CommandLineParser commandLineParser = new DefaultParser();
+        CommandLineArguments commandLineArguments = new CommandLineArguments();
+
+        CommandLine line = commandLineParser.parse(options, args, false);
+
+        commandLineArguments.setUrl(line.getOptionValue("url"));
+
+        if (line.hasOption("output")) {
+            commandLineArguments.setOutput(true);
+            commandLineArguments.setOutputFile(line.getOptionValue("output"));
+        }
+
+        if (line.hasOption("cookies")) {
+            commandLineArguments.setCookies(line.getOptionValue("cookies"));
+        }
+
+        if (line.hasOption("threads")) {
+            commandLineArguments.setNumberOfThreads(Integer.parseInt(line.getOptionValue("threads")));
+        }
+
+        if (line.hasOption("engine")) {
+            commandLineArguments.setEngine(line.getOptionValue("engine"));
+        }
+
+        if (line.hasOption("max-per-host")) {
+            commandLineArguments.setMaxConnectionsPerHost(Integer.parseInt(line.getOptionValue("max-per-host")));
+        }
+
+        if (line.hasOption("max-connections")) {
+            commandLineArguments.setMaxConnections(Integer.parseInt(line.getOptionValue("max-connections")));
+        }
+
+        if (line.hasOption("executor")) {
+            commandLineArguments.setExecutor(line.getOptionValue("executor"));
+
+            //virtual threads are not limited by the thread count, so we limit the number of connections instead
+            if (commandLineArguments.getExecutor() == CommandLineArguments.Executor.VIRTUAL
+                    && !line.hasOption("max-connections")) {
+                commandLineArguments.setMaxConnections(DEFAULT_VIRTUAL_MAX_CONNECTIONS);
+            }
+        }
+
+        if (line.hasOption("async")) {
+            if (line.hasOption("engine") && commandLineArguments.getEngine() != CommandLineArguments.Engine.HTTPCLIENT) {
+                throw new ParseException("--async can only be used with the httpclient engine");
+            }
+            commandLineArguments.setAsync(true);
+            commandLineArguments.setEngine("httpclient");
+        }
+
+        if (line.hasOption("max-in-flight")) {
+            commandLineArguments.setMaxInFlight(Integer.parseInt(line.getOptionValue("max-in-flight")));
+        }
+
+        if (line.hasOption("sort-query")) {
+            commandLineArguments.setSortQueryParameters(true);
+        }
+
+        if (line.hasOption("checkpoint") && line.hasOption("resume")) {
+            throw new ParseException("--checkpoint and --resume cannot be used together, --resume keeps writing checkpoints");
+        }
+
+        if (line.hasOption("checkpoint")) {
+            commandLineArguments.setCheckpointDirectory(line.getOptionValue("checkpoint"));
+        }
+
+        if (line.hasOption("resume")) {
+            commandLineArguments.setCheckpointDirectory(line.getOptionValue("resume"));
+            commandLineArguments.setResume(true);
+        }
+
+        if (line.hasOption("frontier-size")) {
+            commandLineArguments.setFrontierSize(Integer.parseInt(line.getOptionValue("frontier-size")));
+        }
+
+        if (line.hasOption("frontier-dir")) {
+            commandLineArguments.setFrontierDirectory(line.getOptionValue("frontier-dir"));
+        }
+
+        if (line.hasOption("order")) {
+            commandLineArguments.setOrder(line.getOptionValue("order"));
+        }
+
+        if (line.hasOption("keywords")) {
+            commandLineArguments.setKeywords(line.getOptionValue("keywords"));
+        }
+
+        if (line.hasOption("scope")) {
+            commandLineArguments.setScope(line.getOptionValue("scope"));
+        }
+
+        if (line.hasOption("include")) {
+            commandLineArguments.setIncludeGlobs(line.getOptionValues("include"));
+        }
+
+        if (line.hasOption("include-regex")) {
+            commandLineArguments.setIncludeRegexes(line.getOptionValues("include-regex"));
+        }
+
+        if (line.hasOption("exclude")) {
+            commandLineArguments.setExcludeGlobs(line.getOptionValues("exclude"));
+        }
+
+        if (line.hasOption("exclude-regex")) {
+            commandLineArguments.setExcludeRegexes(line.getOptionValues("exclude-regex"));
+        }
+
+        if (line.hasOption("exclude-extensions")) {
+            commandLineArguments.setExcludedExtensions(line.getOptionValue("exclude-extensions"));
+        }
+
+        if (line.hasOption("max-query-params")) {
+            commandLineArguments.setMaxQueryParameters(Integer.parseInt(line.getOptionValue("max-query-params")));
+        }
+
+        if (line.hasOption("max-pages")) {
+            commandLineArguments.setMaxPages(Integer.parseInt(line.getOptionValue("max-pages")));
+        }
+
+        if (line.hasOption("max-bytes")) {
+            commandLineArguments.setMaxBytes(line.getOptionValue("max-bytes"));
+        }
+
+        if (line.hasOption("max-duration")) {
+            commandLineArguments.setMaxDuration(Integer.parseInt(line.getOptionValue("max-duration")));
+        }
+
+        if (line.hasOption("max-frontier")) {
+            commandLineArguments.setMaxFrontierSize(Integer.parseInt(line.getOptionValue("max-frontier")));
+        }
+
+        if (line.hasOption("max-body-size")) {
+            commandLineArguments.setMaxBodySize(line.getOptionValue("max-body-size"));
+        }
+
+        if (line.hasOption("all-content-types")) {
+            commandLineArguments.setAllContentTypes(true);
+        }
+
+        if (line.hasOption("head-probe")) {
+            commandLineArguments.setHeadProbe(true);
+        }
+
+        if (line.hasOption("stop-at-html-end")) {
+            commandLineArguments.setStopAtHtmlEnd(true);
+        }
+
+        if (line.hasOption("cache")) {
+            commandLineArguments.setCacheDirectory(line.getOptionValue("cache"));
+        }
+
+        if (line.hasOption("connect-timeout")) {
+            commandLineArguments.setConnectTimeout(Integer.parseInt(line.getOptionValue("connect-timeout")));
+        }
+
+        if (line.hasOption("read-timeout")) {
+            commandLineArguments.setReadTimeout(Integer.parseInt(line.getOptionValue("read-timeout")));
+        }
+
+        if (line.hasOption("timeout")) {
+            commandLineArguments.setTotalTimeout(Integer.parseInt(line.getOptionValue("timeout")));
+        }
+
+        if (line.hasOption("retries")) {
+            commandLineArguments.setRetries(Integer.parseInt(line.getOptionValue("retries")));
+        }
+
+        if (line.hasOption("retry-delay")) {
+            commandLineArguments.setRetryDelay(Integer.parseInt(line.getOptionValue("retry-delay")));
+        }
+
+        if (line.hasOption("dns-ttl")) {
+            commandLineArguments.setDnsTtl(Integer.parseInt(line.getOptionValue("dns-ttl")));
+        }
+
+        if (line.hasOption("dns-cache-size")) {
+            commandLineArguments.setDnsCacheSize(Integer.parseInt(line.getOptionValue("dns-cache-size")));
+        }
+
+        if (line.hasOption("progress")) {
+            commandLineArguments.setProgressInterval(Integer.parseInt(line.getOptionValue("progress")));
+        }
+
+        if (line.hasOption("metrics-port")) {
+            commandLineArguments.setMetricsPort(Integer.parseInt(line.getOptionValue("metrics-port")));
+        }
+
+        if (line.hasOption("jfr")) {
+            commandLineArguments.setJfrFile(line.getOptionValue("jfr"));
+        }
+
+        if (line.hasOption("dedup")) {
+            commandLineArguments.setDedup(line.getOptionValue("dedup"));
+        }
+
+        if (line.hasOption("dedup-memory")) {
+            commandLineArguments.setDedupMemory(Integer.parseInt(line.getOptionValue("dedup-memory")));
+        }
+
+        if (line.hasOption("dedup-fp-rate")) {
+            commandLineArguments.setDedupFalsePositiveRate(Double.parseDouble(line.getOptionValue("dedup-fp-rate")));
+        }
+
+        if (line.hasOption("omit-links")) {
+            commandLineArguments.setOmitLinks(true);
+        }
+
+        if (line.hasOption("format")) {
+            commandLineArguments.setFormat(line.getOptionValue("format"));
+        }
+
+        if (line.hasOption("depth")) {
+            commandLineArguments.setDepth(Integer.parseInt(line.getOptionValue("depth")));
+        } else {
+            commandLineArguments.setDepthUnlimited();
+        }
+
+        if (!line.hasOption("recursive")) {
+            commandLineArguments.setDepth(1);
+        }
+
+        if (line.hasOption("link")) {
+            commandLineArguments.setLinkRegex(line.getOptionValue("link"));
+        }
+
+        if (line.hasOption("email")) {
+            commandLineArguments.setEmailRegex(line.getOptionValue("email"));
+        }
+
+        if (line.hasOption("telephone")) {
+            commandLineArguments.setTelephoneNumberRegex(line.getOptionValue("telephone"));
+        }
+
+        if (line.hasOption("depth") && !line.hasOption("recursive")) {
+            throw new ParseException("Specifying a depth has no effect without specifying --recursive");
+        }
+
+        return commandLineArguments;
+    }
+
+
+    /**
+     * Manages all accepted options.
+     *
+     * @return Option object with all accepted options set.
+     */
+    static Options generateAcceptedCommandLineOptions() {
+        Options options = new Options();
+
+        options.addOption(Option.builder("o")
+                .longOpt("output")
+                .required(false)
+                .hasArg(true)
+                .desc("Specify an output file, results are appended to it as they are found")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("format")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the format of the results: text (default, one tab-separated type and value per line) or jsonl (one JSON object per line)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder("t")
+                .longOpt("threads")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify number of threads")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder("u")
+                .longOpt("url")
+                .required(true)
+                .hasArg(true)
+                .desc("Specify the URL")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("engine")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the fetch engine: legacy (default) or httpclient (pooled keep-alive connections, HTTP/2)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("max-per-host")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the maximum number of concurrent requests per host, up to which the concurrency is adapted to the response times of the host (default: unlimited)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("max-connections")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the maximum number of concurrent connections in total (default: unlimited, "
+                        + DEFAULT_VIRTUAL_MAX_CONNECTIONS + " with --executor=virtual)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("executor")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the threads tasks are run on: platform (default, --threads many) or virtual (one virtual thread per task)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("async")
+                .hasArg(false)
+                .required(false)
+                .desc("Send requests asynchronously instead of blocking a thread per request (implies --engine=httpclient)")
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("max-in-flight")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the maximum number of asynchronous requests in flight (default: 1000)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("sort-query")
+                .hasArg(false)
+                .required(false)
+                .desc("Sort the query parameters of found links by name, so links that only differ in the order of their parameters are crawled once")
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("checkpoint")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify a directory the progress of the crawl is recorded in, so it can be resumed")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("resume")
+                .hasArg(true)
+                .required(false)
+                .desc("Resume the crawl recorded in the given checkpoint directory and keep recording it")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("frontier-size")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the number of links waiting to be crawled that are kept in memory, the rest is spilled to disk (default: 100000)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("frontier-dir")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the directory links waiting to be crawled are spilled to (default: a temporary directory)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("order")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the order links are crawled in: fifo (default, order found), bfs (strictly by depth), best (most valuable first, see --keywords) or random")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("keywords")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify comma-separated keywords that make links whose url contains them more valuable for --order=best")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("scope")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the hosts whose links are crawled, relative to the host of the url: all (default), host (only the same host), domain (all hosts of the same domain) or subdomains (the host and its subdomains)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("include")
+                .hasArg(true)
+                .required(false)
+                .desc("Only crawl links whose whole url matches the glob, in which * matches any characters; repeatable, a link has to match one")
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("include-regex")
+                .hasArg(true)
+                .required(false)
+                .desc("Only crawl links whose url contains a match of the regex; repeatable, a link has to match one of the includes")
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("exclude")
+                .hasArg(true)
+                .required(false)
+                .desc("Do not crawl links whose whole url matches the glob, in which * matches any characters, e.g. *logout*; repeatable")
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("exclude-regex")
+                .hasArg(true)
+                .required(false)
+                .desc("Do not crawl links whose url contains a match of the regex; repeatable")
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("exclude-extensions")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify comma-separated extensions of links that are not crawled, e.g. css,js,xml")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("max-query-params")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the maximum number of query parameters of a crawled link, to avoid endless calendars and faceted searches (default: unlimited)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("max-pages")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the maximum number of pages fetched, the crawl ends gracefully when it is reached (default: unlimited)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("max-bytes")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the maximum number of bytes downloaded, optionally with the unit K, M or G, e.g. 500M (default: unlimited)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("max-duration")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the maximum duration of the crawl in seconds (default: unlimited)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("max-frontier")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the maximum number of links waiting to be crawled, further links are dropped (default: unlimited)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("max-body-size")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the maximum number of bytes read from a single page, optionally followed by K, M or G, longer pages are cut off (default: 10M)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("all-content-types")
+                .hasArg(false)
+                .required(false)
+                .desc("Read all responses, by default links to binary files are skipped and only text responses are read")
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("head-probe")
+                .hasArg(false)
+                .required(false)
+                .desc("Check the content type of links without a known page extension with a HEAD request before fetching them")
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("stop-at-html-end")
+                .hasArg(false)
+                .required(false)
+                .desc("Stop reading a page at its closing html tag")
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("cache")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify a directory the ETag, Last-Modified and results of every page are kept in, so later crawls only download pages that have changed")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("connect-timeout")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the milliseconds connecting to a host may take, 0 for no limit (default: 5000)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("read-timeout")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the milliseconds to wait for a response or for more of its body, 0 for no limit (default: 10000)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("timeout")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the milliseconds fetching a page may take in total, including its body, 0 for no limit (default: 30000)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("retries")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify how often a link is retried after a timeout, a server error or 429, 0 for never (default: 2)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("retry-delay")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the milliseconds before the first retry, doubled for every further retry and jittered, unless the server sends Retry-After (default: 1000)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("dns-ttl")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the number of seconds the address of a host is cached, 0 to disable the DNS cache and the resolving of queued hosts in advance (default: 300)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("dns-cache-size")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the maximum number of hosts in the DNS cache, the least recently used host is evicted first (default: 10000)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("progress")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the number of seconds between two progress lines printed to stderr, 0 for none (default: 10)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("metrics-port")
+                .hasArg(true)
+                .required(false)
+                .desc("Serve the metrics of the crawl on localhost at the given port, as Prometheus text (/metrics) and JSON (/metrics.json)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("jfr")
+                .hasArg(true)
+                .required(false)
+                .desc("Record the phases of every crawled link as Java Flight Recorder events in the given file")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("dedup")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify how found links are remembered: exact (default, 64-bit fingerprints) or bloom (scalable Bloom filter, fixed bits per link)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("dedup-memory")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the memory budget for remembering found links in MB (default: unlimited)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("dedup-fp-rate")
+                .hasArg(true)
+                .required(false)
+                .desc("Specify the false positive rate the Bloom filter aims for (default: 0.001)")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("omit-links")
+                .hasArg(false)
+                .required(false)
+                .desc("Do not output the found links, only emails and phone numbers")
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("email")
+                .hasArg(true)
+                .required(false)
+                .desc("Provide a custom regular expression to match email addresses")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("link")
+                .hasArg(true)
+                .required(false)
+                .desc("Provide a custom regular expression to match links")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("telephone")
+                .hasArg(true)
+                .required(false)
+                .desc("Provide a custom regular expression to match telephone numbers")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder("r")
+                .longOpt("recursive")
+                .hasArg(false)
+                .required(false)
+                .desc("Specify whether Spoder should recursively follow newly found links")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder("d")
+                .longOpt("depth")
+                .required(false)
+                .hasArg(true)
+                .desc("Specify the recursive depth limit")
+                .valueSeparator('=')
+                .build());
+
+        options.addOption(Option.builder()
+                .longOpt("cookies")
+                .required(false)
+                .optionalArg(false)
+                .hasArg(true)
+                .desc("Add cookies seperated by ';' e.g. cookie1;cookie2;cookie3")
+                .valueSeparator('=')
+                .build());
+
+        return options;
+    }
+
+
+    /**
+     * Prints the usage message together with an overview of which options are allowed.
+     *
+     * @param options accepted options.
+     */
+    private static void printUsageAndHelp(Options options) {
+        HelpFormatter formatter = new HelpFormatter();
+        formatter.printHelp("Spoder", options);
+    }
+
+
+    /**
+     * Defines the behaviour if the process is interrupted by: SIGINT.
+     */
+    private static void setupSignalHandling(Crawl crawl) {
+        Signal.handle(new Signal("INT"), sig -> {
+            System.err.println("Shutting down...");
+            crawl.interrupt();
+        });
+    }
+
+    /**
+     * Prints which budget has ended the crawl, if any, and how many links have been dropped because the frontier
+     * was full.
+     *
+     * @param report stream the report is printed to
+     * @param budget budget of the crawl
+     */
+    private static void printBudgetStatistics(PrintStream report, CrawlBudget budget) {
+        if (budget.getExhausted() != null) {
+            report.println("Crawl ended early, budget exhausted: " + budget.getExhausted().name().toLowerCase(Locale.ROOT)
+                    + " (" + budget.getPages() + " pages, " + budget.getBytes() + " bytes)");
+        }
+
+        if (budget.getDroppedLinks() > 0) {
+            report.println("Links dropped because the frontier was full: " + budget.getDroppedLinks());
+        }
+    }
+
+    /**
+     * Prints how many responses have been skipped because of their type and how many have been cut off.
+     *
+     * @param report stream the report is printed to
+     * @param contentFilter content filter of the crawl
+     */
+    private static void printContentFilterStatistics(PrintStream report, ContentFilter contentFilter) {
+        if (contentFilter.getSkipped() > 0 || contentFilter.getTruncated() > 0) {
+            report.println("Responses skipped by content type: " + contentFilter.getSkipped()
+                    + ", cut off at the maximum body size: " + contentFilter.getTruncated());
+        }
+    }
+
+    /**
+     * Prints how many pages have been fetched and how long fetching and parsing them took.
+     *
+     * @param report stream the report is printed to
+     * @param metrics metrics of the crawl
+     */
+    private static void printMetrics(PrintStream report, CrawlMetrics metrics) {
+        report.println("Pages fetched: " + metrics.getPagesFetched() + ", failed: " + metrics.getPagesFailed());
+
+        if (metrics.getPagesFetched() > 0) {
+            Histogram latency = metrics.getFetchLatency();
+            Histogram parse = metrics.getParseTime();
+
+            report.printf(Locale.ROOT, "Fetch latency: p50 %.1f ms, p99 %.1f ms, max %.1f ms; parse time: p50 %.1f ms, p99 %.1f ms%n",
+                    latency.getPercentile(0.5) / 1e6,
+                    latency.getPercentile(0.99) / 1e6,
+                    latency.getMax() / 1e6,
+                    parse.getPercentile(0.5) / 1e6,
+                    parse.getPercentile(0.99) / 1e6);
+        }
+    }
+
+    /**
+     * Prints how many links have been retried and given up and how many hosts have been found unreachable.
+     *
+     * @param report stream the report is printed to
+     * @param retryPolicy retry policy of the crawl
+     * @param hostScheduler host scheduler of the crawl
+     */
+    private static void printRetryStatistics(PrintStream report, RetryPolicy retryPolicy, HostScheduler hostScheduler) {
+        if (retryPolicy.getRetries() > 0 || retryPolicy.getGivenUp() > 0) {
+            report.println("Retries: " + retryPolicy.getRetries()
+                    + ", links given up after retrying: " + retryPolicy.getGivenUp());
+        }
+
+        if (hostScheduler.getCircuitsOpened() > 0) {
+            report.println("Hosts paused after repeated failures: " + hostScheduler.getCircuitsOpened()
+                    + " times, hosts given up as unreachable: " + hostScheduler.getUnreachableHosts()
+                    + ", links dropped: " + hostScheduler.getDroppedLinks());
+        }
+    }
+
+    /**
+     * Prints how many found links have not been crawled because they were out of scope, by the rule that excluded
+     * them.
+     *
+     * @param report stream the report is printed to
+     * @param scope scope of the crawl
+     */
+    private static void printScopeStatistics(PrintStream report, CrawlScope scope) {
+        if (scope.getOutOfScope() == 0) return;
+
+        report.println("Links out of scope: " + scope.getOutOfScope()
+                + " (other hosts: " + scope.getOtherHosts()
+                + ", excluded extensions: " + scope.getExcludedExtension()
+                + ", too many query parameters: " + scope.getTooManyQueryParameters()
+                + ", excluded by patterns: " + scope.getExcludedPattern() + ")");
+    }
+
+    /**
+     * Prints how often the address of a host has been found in the DNS cache.
+     *
+     * @param report stream the report is printed to
+     * @param hostResolver DNS cache of the crawl
+     */
+    private static void printDnsStatistics(PrintStream report, HostResolver hostResolver) {
+        if (!hostResolver.isEnabled() || hostResolver.getHits() + hostResolver.getMisses() == 0) return;
+
+        report.printf(Locale.ROOT, "DNS cache: %d hosts, %d hits, %d misses (%.1f%% hit rate), %d resolved in advance%n",
+                hostResolver.size(),
+                hostResolver.getHits(),
+                hostResolver.getMisses(),
+                hostResolver.getHitRate() * 100,
+                hostResolver.getPrefetched());
+    }
+
+    /**
+     * Prints the phases sorted by the total time spent in them and the slowest links with the durations of their
+     * phases.
+     *
+     * @param report stream the report is printed to
+     * @param tracer tracer of the crawl
+     */
+    private static void printTraceReport(PrintStream report, Tracer tracer) {
+        if (tracer.getTotal().getCount() == 0) return;
+
+        List<TaskTrace.Phase> phases = new ArrayList<>(List.of(TaskTrace.Phase.values()));
+        phases.sort(Comparator.comparingLong((TaskTrace.Phase phase) -> tracer.getPhase(phase).getSum()).reversed());
+
+        report.println("Slowest phases (total, p50, p99, max in ms):");
+        for (TaskTrace.Phase phase : phases) {
+            Histogram histogram = tracer.getPhase(phase);
+            report.printf(Locale.ROOT, "  %-8s %10.1f %8.1f %8.1f %8.1f%n",
+                    phase.name().toLowerCase(Locale.ROOT),
+                    histogram.getSum() / 1e6,
+                    histogram.getPercentile(0.5) / 1e6,
+                    histogram.getPercentile(0.99) / 1e6,
+                    histogram.getMax() / 1e6);
+        }
+
+        report.println("Slowest links (total: dns, connect, tls, ttfb, download, parse in ms):");
+        for (TaskTrace trace : tracer.getSlowest()) {
+            report.printf(Locale.ROOT, "  %.1f: %.1f, %.1f, %.1f, %.1f, %.1f, %.1f %s%n",
+                    trace.getTotal() / 1e6,
+                    trace.get(TaskTrace.Phase.DNS) / 1e6,
+                    trace.get(TaskTrace.Phase.CONNECT) / 1e6,
+                    trace.get(TaskTrace.Phase.TLS) / 1e6,
+                    trace.get(TaskTrace.Phase.TTFB) / 1e6,
+                    trace.get(TaskTrace.Phase.DOWNLOAD) / 1e6,
+                    trace.get(TaskTrace.Phase.PARSE) / 1e6,
+                    trace.getLink());
+        }
+    }
+
+    /**
+     * Prints how many bytes have been received and how much of it has been compressed.
+     *
+     * @param report stream the report is printed to
+     * @param budget budget of the crawl, which counts the bytes received
+     * @param contentDecoder decoder of compressed responses
+     */
+    private static void printTransferStatistics(PrintStream report, CrawlBudget budget, ContentDecoder contentDecoder) {
+        report.println("Bytes received: " + budget.getBytes());
+
+        if (contentDecoder.getCompressedResponses() > 0) {
+            report.printf(Locale.ROOT, "Compressed responses: %d, %d bytes decoded to %d bytes in %.1f ms%n",
+                    contentDecoder.getCompressedResponses(),
+                    contentDecoder.getCompressedBytes(),
+                    contentDecoder.getDecodedBytes(),
+                    contentDecoder.getInflateNanos() / 1e6);
+        }
+    }
+
+    /**
+     * Prints how many conditional requests have been sent and how many pages have not been modified since.
+     *
+     * @param report stream the report is printed to
+     * @param pageCache page cache of the crawl
+     */
+    private static void printCacheStatistics(PrintStream report, PageCache pageCache) {
+        if (!pageCache.isEnabled()) return;
+
+        report.println("Conditional requests: " + pageCache.getConditionalRequests()
+                + ", not modified: " + pageCache.getNotModified()
+                + ", pages cached: " + pageCache.size());
+    }
+
+    /**
+     * Prints how many links have been remembered, the memory used for them and the estimated false positive rate.
+     *
+     * @param report stream the report is printed to
+     * @param deduplicator deduplicator of the crawl
+     */
+    private static void printDeduplicationStatistics(PrintStream report, LinkDeduplicator deduplicator) {
+        report.printf(Locale.ROOT, "Link deduplication: %d links, %.1f MB, estimated false positive rate %.2e%n",
+                deduplicator.size(),
+                deduplicator.getMemoryUsage() / (1024.0 * 1024.0),
+                deduplicator.getFalsePositiveRate());
+
+        if (deduplicator.getRejected() > 0) {
+            report.println("Links dropped because the memory budget was exhausted: " + deduplicator.getRejected());
+        }
+    }
+
+}
@@ -0,0 +1,279 @@
+package spoder;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Writes every new link, email and phone number as soon as the {@link Parser} finds it, one item per line, either as
+ * plain text ({@code type<TAB>value}) or as JSON Lines ({@code {"type":"...","value":"..."}}).
+ * <p>
+ * The parsing threads only put the items into a bounded queue. A single writer thread takes them out in batches and
+ * writes each batch with one write to the file channel, so the output neither slows down parsing with small writes
+ * nor needs memory proportional to the number of results. If the writer cannot keep up, the queue fills up and the
+ * parsing threads wait.
+ */
+public class OutputSink implements Parser.ResultListener, Closeable {
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    //marks the end of the output, the writer thread stops when it takes it from the queue
+    private static final Item END = new Item(null, null);
+
+    private final FileChannel channel;
+    private final boolean closeChannel;
+    private final CommandLineArguments.Format format;
+    private final boolean includeLinks;
+
+    private final BlockingQueue<Item> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Thread writer;
+
+    private final AtomicLong links = new AtomicLong(0);
+    private final AtomicLong emails = new AtomicLong(0);
+    private final AtomicLong phoneNumbers = new AtomicLong(0);
+
+    //held for reading while an item is put into the queue, so no item can follow the end of the output
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed = false;
+
+    /**
+     * @param file file the items are appended to, null for stdout
+     * @param format format of the lines
+     * @param includeLinks whether links are written, emails and phone numbers are always written
+     * @throws IOException if the file cannot be opened
+     */
+    OutputSink(Path file, CommandLineArguments.Format format, boolean includeLinks) throws IOException {
+        if (file == null) {
+            this.channel = new FileOutputStream(FileDescriptor.out).getChannel();
+            this.closeChannel = false;
+        } else {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            this.closeChannel = true;
+        }
+        this.format = format;
+        this.includeLinks = includeLinks;
+
+        this.writer = new Thread(this::write, "output");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+
+    @Override
+    public void linkFound(Link link) {
+        if (!includeLinks) return;
+
+        enqueue(new Item("link", link.toString()), links);
+    }
+
+
+    @Override
+    public void emailFound(String email) {
+        enqueue(new Item("email", email), emails);
+    }
+
+
+    @Override
+    public void phoneNumberFound(String phoneNumber) {
+        enqueue(new Item("phone", phoneNumber), phoneNumbers);
+    }
+
+
+    public long getLinks() {
+        return links.get();
+    }
+
+    public long getEmails() {
+        return emails.get();
+    }
+
+    public long getPhoneNumbers() {
+        return phoneNumbers.get();
+    }
+
+
+    /**
+     * Writes the remaining items and closes the output. Items found afterwards are dropped.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) return;
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (closeChannel) channel.close();
+    }
+
+
+    /**
+     * Puts the item into the queue, waiting for space if necessary. The item is not dropped if the thread is
+     * interrupted, e.g. because the crawl is stopped, since the other listeners might have recorded it already.
+     */
+    private void enqueue(Item item, AtomicLong counter) {
+        boolean interrupted = false;
+
+        closeLock.readLock().lock();
+        try {
+            if (closed) return;
+
+            while (true) {
+                try {
+                    queue.put(item);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            counter.incrementAndGet();
+        } finally {
+            closeLock.readLock().unlock();
+        }
+
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+
+    /**
+     * Loop of the writer thread: takes the items out of the queue in batches and writes them.
+     * After a failed write the items are still taken out of the queue, so the parsing threads never block forever.
+     */
+    private void write() {
+        List<Item> batch = new ArrayList<>(BATCH_SIZE);
+        boolean failed = false;
+
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+
+            boolean end = false;
+            for (Item item : batch) {
+                if (item == END) {
+                    end = true;
+                    break;
+                }
+                if (failed) continue;
+
+                try {
+                    append(item);
+                } catch (IOException e) {
+                    System.err.println("ERROR: Could not write output: " + e.getMessage());
+                    failed = true;
+                }
+            }
+            batch.clear();
+
+            try {
+                if (!failed) flush();
+            } catch (IOException e) {
+                System.err.println("ERROR: Could not write output: " + e.getMessage());
+                failed = true;
+            }
+
+            if (end) return;
+        }
+    }
+
+
+    /**
+     * Encodes the item as a line and appends it to the buffer. The buffer is written if the line does not fit.
+     */
+    private void append(Item item) throws IOException {
+        String line = switch (format) {
+            case TEXT -> item.type() + '\t' + item.value() + '\n';
+            case JSONL -> "{\"type\":\"" + item.type() + "\",\"value\":\"" + escapeJson(item.value()) + "\"}\n";
+        };
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+
+        if (buffer.remaining() < bytes.length) flush();
+
+        if (buffer.remaining() < bytes.length) {
+            writeFully(ByteBuffer.wrap(bytes));
+        } else {
+            buffer.put(bytes);
+        }
+    }
+
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+
+    /**
+     * Escapes the quotes, backslashes and control characters of a JSON string.
+     *
+     * @param value string to be escaped
+     * @return the escaped string, the given one if nothing had to be escaped
+     */
+    static String escapeJson(String value) {
+        StringBuilder escaped = null;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = switch (c) {
+                case '"' -> "\\\"";
+                case '\\' -> "\\\\";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                case '\t' -> "\\t";
+                default -> c < 0x20 ? String.format("\\u%04x", (int) c) : null;
+            };
+
+            if (replacement == null) {
+                if (escaped != null) escaped.append(c);
+                continue;
+            }
+
+            if (escaped == null) escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+            escaped.append(replacement);
+        }
+
+        return escaped == null ? value : escaped.toString();
+    }
+
+
+    private record Item(String type, String value) {
+    }
+
+}
@@ -0,0 +1,267 @@
+package spoder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the ETag and Last-Modified header of every crawled page together with the links, emails and phone numbers
+ * found on it, so that a later crawl of the same site can send a conditional request. If the server answers with
+ * 304 Not Modified, the results of the page are taken from the cache instead of downloading and parsing it again.
+ * <p>
+ * The cache is kept in memory, keyed by the canonical link, and is read from its directory when the crawl starts
+ * and written back when the crawl ends. Pages that are not crawled again stay in the cache. Pages without an ETag and
+ * without a Last-Modified header cannot be requested conditionally and are not cached.
+ * <p>
+ * A cache without a directory is disabled: nothing is looked up and nothing is stored.
+ */
+public class PageCache implements Closeable {
+
+    private static final String FILE = "pages.cache";
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final Path directory;
+    private final boolean sortQueryParameters;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder conditionalRequests = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    /**
+     * @param directory directory of the cache, created if it does not exist, null to disable the cache
+     * @param sortQueryParameters whether the links sort their query parameters, see {@link Link}
+     * @throws IOException if the directory cannot be created or the cache cannot be read
+     */
+    PageCache(Path directory, boolean sortQueryParameters) throws IOException {
+        this.directory = directory;
+        this.sortQueryParameters = sortQueryParameters;
+
+        if (directory == null) return;
+
+        Files.createDirectories(directory);
+        if (Files.exists(directory.resolve(FILE))) read(directory.resolve(FILE));
+    }
+
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+
+    /**
+     * Looks up the cached validators of the given link, before a request for it is sent. Every link found in the
+     * cache is counted as a conditional request.
+     *
+     * @param link link that is about to be fetched
+     * @return the cached entry, or null if the link is not cached and has to be fetched unconditionally
+     */
+    public Entry lookup(Link link) {
+        if (directory == null) return null;
+
+        Entry entry = entries.get(link.toString());
+        if (entry != null) conditionalRequests.increment();
+
+        return entry;
+    }
+
+
+    /**
+     * Hands the cached results of a page that has not been modified to the parser, as if the page had been parsed.
+     *
+     * @param link link of the page
+     * @param parser parser of the crawl
+     * @return the cached links that have not been found before, empty if the page is not cached
+     */
+    public Set<Link> replay(Link link, Parser parser) {
+        Set<Link> newFoundLinks = new HashSet<>();
+        Entry entry = entries.get(link.toString());
+        //an unsolicited 304 has nothing to replay, so it is not a hit of the cache
+        if (entry == null) return newFoundLinks;
+
+        notModified.increment();
+
+        List<Link> links = new ArrayList<>(entry.links().size());
+        for (String found : entry.links()) {
+            links.add(Link.parse(found, sortQueryParameters));
+        }
+
+        parser.addCached(links, entry.emails(), entry.phoneNumbers(), newFoundLinks);
+        return newFoundLinks;
+    }
+
+
+    /**
+     * Stores the validators of the response and the results of the page, replacing the entry of an earlier crawl.
+     *
+     * @param link link of the page
+     * @param response response of the page
+     * @param pageReader reader that has read the page and recorded its results
+     */
+    public void store(Link link, FetchResponse response, PageReader pageReader) {
+        if (directory == null) return;
+
+        String etag = response.getHeader("ETag");
+        String lastModified = response.getHeader("Last-Modified");
+
+        if (etag == null && lastModified == null) {
+            entries.remove(link.toString());
+            return;
+        }
+
+        entries.put(link.toString(), new Entry(
+                etag,
+                lastModified,
+                List.copyOf(pageReader.getLinks()),
+                List.copyOf(pageReader.getEmails()),
+                List.copyOf(pageReader.getPhoneNumbers())));
+    }
+
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getConditionalRequests() {
+        return conditionalRequests.sum();
+    }
+
+    /**
+     * Returns the number of pages that have not been modified and whose cached results have been replayed.
+     *
+     * @return number of pages not modified
+     */
+    public long getNotModified() {
+        return notModified.sum();
+    }
+
+
+    /**
+     * Writes the cache to a temporary file, which then replaces the previous one, so an interrupted write never
+     * destroys the cache of the last crawl.
+     *
+     * @throws IOException if the cache cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (directory == null) return;
+
+        Path temporary = directory.resolve(FILE + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+            for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+                Entry entry = cached.getValue();
+
+                writeString(out, cached.getKey());
+                writeString(out, entry.etag());
+                writeString(out, entry.lastModified());
+                writeStrings(out, entry.links());
+                writeStrings(out, entry.emails());
+                writeStrings(out, entry.phoneNumbers());
+            }
+        }
+
+        Files.move(temporary, directory.resolve(FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * Reads the entries of the given file. A truncated entry at the end is ignored.
+     */
+    private void read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            while (true) {
+                String link;
+                Entry entry;
+
+                try {
+                    link = readString(in);
+                    entry = new Entry(readString(in), readString(in), readStrings(in), readStrings(in), readStrings(in));
+                } catch (EOFException e) {
+                    break;
+                }
+
+                if (link == null) throw new IOException("Corrupt page cache " + file);
+                entries.put(link, entry);
+            }
+        }
+    }
+
+
+    /**
+     * Writes the length and the UTF-8 bytes of the string, a length of -1 stands for null.
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+
+    private static void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(out, string);
+        }
+    }
+
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) return null;
+        if (length < 0) throw new IOException("Corrupt page cache, negative string length " + length);
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) throw new IOException("Corrupt page cache, negative number of strings " + size);
+
+        List<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String string = readString(in);
+            if (string == null) throw new IOException("Corrupt page cache, missing string");
+            strings.add(string);
+        }
+        return List.copyOf(strings);
+    }
+
+
+    /**
+     * Cached page.
+     *
+     * @param etag value of the ETag header, null if the response had none
+     * @param lastModified value of the Last-Modified header, null if the response had none
+     * @param links all links found on the page
+     * @param emails all emails found on the page
+     * @param phoneNumbers all phone numbers found on the page
+     */
+    public record Entry(String etag, String lastModified, List<String> links, List<String> emails,
+                        List<String> phoneNumbers) {
+    }
+
+}
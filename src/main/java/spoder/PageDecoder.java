@@ -0,0 +1,337 @@
+package spoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Decodes the body of a page to characters in the charset the page is actually written in.
+ * <p>
+ * The charset is taken from the {@code Content-Type} header, then from a byte order mark, then from a
+ * {@code <meta charset>} or {@code <meta http-equiv="Content-Type">} tag in the first kilobyte of the body, and
+ * falls back to UTF-8. The sniffed bytes are kept in the input buffer, so nothing has to be pushed back.
+ * <p>
+ * Decoders are pooled: a page takes one with {@link #open(InputStream, String)} and hands it back with
+ * {@link #close()}, so the byte buffer and the {@link CharsetDecoder}s are reused instead of building a new reader
+ * stack for every page. Plain ASCII, which makes up most of the markup, is copied directly without going through the
+ * CharsetDecoder if the charset is UTF-8 or ASCII.
+ */
+public class PageDecoder extends Reader {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    //the html standard prescans the first 1024 bytes for a meta tag declaring the charset
+    private static final int SNIFF_SIZE = 1024;
+
+    private static final int POOL_SIZE = 256;
+    private static final BlockingQueue<PageDecoder> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private final Map<Charset, CharsetDecoder> decoders = new HashMap<>();
+    //holds the rest of a character that did not fit into the caller's buffer, e.g. the second half of a surrogate pair
+    private final CharBuffer spill = CharBuffer.allocate(2);
+
+    private InputStream in;
+    private Charset charset;
+    private CharsetDecoder decoder;
+    private boolean asciiCompatible;
+    private boolean eof;
+    private boolean flushed;
+
+    private PageDecoder() {
+    }
+
+
+    /**
+     * Takes a decoder from the pool and detects the charset of the given body.
+     *
+     * @param body body of a page, which is not closed by the decoder
+     * @param contentType value of the Content-Type header, null if the response has none
+     * @return decoder reading the characters of the body, which has to be closed to return it to the pool
+     * @throws IOException if an I/O error occurs while reading the beginning of the body
+     */
+    public static PageDecoder open(InputStream body, String contentType) throws IOException {
+        PageDecoder pageDecoder = POOL.poll();
+        if (pageDecoder == null) pageDecoder = new PageDecoder();
+
+        pageDecoder.start(body, contentType);
+        return pageDecoder;
+    }
+
+
+    /**
+     * Returns the charset the body is decoded with.
+     *
+     * @return detected charset
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (in == null) throw new IOException("Decoder closed");
+        if (length == 0) return 0;
+
+        CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+
+        while (true) {
+            drainSpill(out);
+            if (flushed) return out.position() > offset ? out.position() - offset : -1;
+            if (asciiCompatible) copyAscii(out);
+
+            //malformed input is replaced, so the result is either an underflow or an overflow
+            CoderResult result = decoder.decode(bytes, out, eof);
+
+            //not even a single character fits, which happens for a surrogate pair and a length of 1
+            if (result.isOverflow() && out.position() == offset) {
+                decodeIntoSpill();
+                continue;
+            }
+
+            if (out.position() > offset) return out.position() - offset;
+
+            if (eof) {
+                flushed = true;
+                decoder.flush(out);
+                continue;
+            }
+
+            fill();
+        }
+    }
+
+
+    /**
+     * Returns the decoder to the pool. The body is not closed, it belongs to the response.
+     */
+    @Override
+    public void close() {
+        if (in == null) return;
+
+        in = null;
+        POOL.offer(this);
+    }
+
+
+    /**
+     * Prepares the decoder for a new body: reads its beginning and determines the charset.
+     */
+    private void start(InputStream body, String contentType) throws IOException {
+        this.in = body;
+        this.eof = false;
+        this.flushed = false;
+        bytes.clear().flip();
+        spill.clear().flip();
+
+        while (!eof && bytes.remaining() < SNIFF_SIZE) {
+            fill();
+        }
+
+        //a byte order mark is never part of the text, so it is skipped even if the header names the charset
+        Charset byteOrderMark = skipByteOrderMark();
+
+        charset = charsetOfContentType(contentType);
+        if (charset == null) charset = byteOrderMark;
+        if (charset == null) charset = sniffMetaCharset();
+        if (charset == null) charset = StandardCharsets.UTF_8;
+
+        decoder = decoders.computeIfAbsent(charset, c -> c.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        decoder.reset();
+        asciiCompatible = charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII);
+    }
+
+
+    /**
+     * Reads more bytes into the buffer, keeping the bytes that have not been decoded yet.
+     */
+    private void fill() throws IOException {
+        bytes.compact();
+        try {
+            int read = in.read(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+            if (read == -1) {
+                eof = true;
+            } else {
+                bytes.position(bytes.position() + read);
+            }
+        } finally {
+            bytes.flip();
+        }
+    }
+
+
+    /**
+     * Copies bytes below 0x80 directly to the output, until the first other byte or until one of the buffers is
+     * exhausted. In UTF-8 and ASCII these bytes are exactly the characters with the same code.
+     */
+    private void copyAscii(CharBuffer out) {
+        byte[] source = bytes.array();
+        char[] target = out.array();
+        int from = bytes.arrayOffset() + bytes.position();
+        int to = out.arrayOffset() + out.position();
+        int count = Math.min(bytes.remaining(), out.remaining());
+
+        int i = 0;
+        while (i < count && source[from + i] >= 0) {
+            target[to + i] = (char) source[from + i];
+            i++;
+        }
+
+        bytes.position(bytes.position() + i);
+        out.position(out.position() + i);
+    }
+
+
+    private void decodeIntoSpill() {
+        spill.compact();
+        decoder.decode(bytes, spill, eof);
+        spill.flip();
+    }
+
+
+    private void drainSpill(CharBuffer out) {
+        while (spill.hasRemaining() && out.hasRemaining()) {
+            out.put(spill.get());
+        }
+    }
+
+
+    /**
+     * Extracts the charset parameter of the given content type.
+     *
+     * @return the charset, or null if there is none or it is not supported
+     */
+    private static Charset charsetOfContentType(String contentType) {
+        if (contentType == null) return null;
+
+        int index = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (index == -1) return null;
+
+        return charsetForName(contentType, index + "charset=".length(), contentType.length());
+    }
+
+
+    /**
+     * Skips a byte order mark at the beginning of the body.
+     *
+     * @return the charset of the byte order mark, or null if there is none
+     */
+    private Charset skipByteOrderMark() {
+        int p = bytes.position();
+
+        if (startsWith(p, 0xEF, 0xBB, 0xBF)) {
+            bytes.position(p + 3);
+            return StandardCharsets.UTF_8;
+        }
+        if (startsWith(p, 0xFE, 0xFF)) {
+            bytes.position(p + 2);
+            return StandardCharsets.UTF_16BE;
+        }
+        if (startsWith(p, 0xFF, 0xFE)) {
+            bytes.position(p + 2);
+            return StandardCharsets.UTF_16LE;
+        }
+
+        return null;
+    }
+
+
+    private boolean startsWith(int position, int... mark) {
+        if (bytes.limit() - position < mark.length) return false;
+
+        for (int i = 0; i < mark.length; i++) {
+            if ((bytes.get(position + i) & 0xFF) != mark[i]) return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Looks for a meta tag declaring the charset in the first {@link #SNIFF_SIZE} bytes, which are read as ASCII.
+     * Both {@code <meta charset="...">} and the charset parameter in the content of
+     * {@code <meta http-equiv="Content-Type" content="...">} are found.
+     *
+     * @return the declared charset, or null if there is none or it is not supported
+     */
+    private Charset sniffMetaCharset() {
+        int end = Math.min(bytes.limit(), bytes.position() + SNIFF_SIZE);
+        String head = new String(bytes.array(), bytes.arrayOffset() + bytes.position(),
+                end - bytes.position(), StandardCharsets.ISO_8859_1);
+        String lowerHead = head.toLowerCase(Locale.ROOT);
+
+        int meta = lowerHead.indexOf("<meta");
+        while (meta != -1) {
+            int tagEnd = lowerHead.indexOf('>', meta);
+            if (tagEnd == -1) tagEnd = lowerHead.length();
+
+            int index = lowerHead.indexOf("charset", meta);
+            if (index != -1 && index < tagEnd) {
+                index += "charset".length();
+                while (index < tagEnd && (HtmlTokenizer.isWhitespace(head.charAt(index)) || head.charAt(index) == '=')) {
+                    index++;
+                }
+                while (index < tagEnd && (head.charAt(index) == '"' || head.charAt(index) == '\'')) {
+                    index++;
+                }
+
+                Charset declared = charsetForName(head, index, tagEnd);
+                //a page that can be read as ASCII cannot be UTF-16, the declaration is wrong
+                if (declared != null && declared.name().startsWith("UTF-16")) return StandardCharsets.UTF_8;
+                if (declared != null) return declared;
+            }
+
+            meta = lowerHead.indexOf("<meta", tagEnd);
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Reads a charset name starting at the given index, optionally enclosed in quotes.
+     *
+     * @return the charset, or null if the name is empty or the charset is not supported
+     */
+    private static Charset charsetForName(String value, int start, int end) {
+        while (start < end && (value.charAt(start) == '"' || value.charAt(start) == '\'' || value.charAt(start) == ' ')) {
+            start++;
+        }
+
+        int nameEnd = start;
+        while (nameEnd < end && isCharsetNameChar(value.charAt(nameEnd))) {
+            nameEnd++;
+        }
+
+        if (nameEnd == start) return null;
+
+        try {
+            return Charset.forName(value.substring(start, nameEnd));
+        } catch (IllegalArgumentException e) {
+            //IllegalCharsetNameException and UnsupportedCharsetException
+            return null;
+        }
+    }
+
+
+    private static boolean isCharsetNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.' || c == ':' || c == '+';
+    }
+
+}
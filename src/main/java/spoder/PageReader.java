@@ -0,0 +1,177 @@
+package spoder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the html of a single page and hands the text between the tags and the attributes of the tags to
+ * the {@link Parser}. Keeps track of all links found on the page that have not been found before and, if asked to,
+ * of all links, emails and phone numbers on the page, e.g. to store them in the {@link PageCache}.
+ */
+public class PageReader implements HtmlTokenizer.Handler {
+
+    private final Parser parser;
+    private final boolean stopAtHtmlEnd;
+    private Link link;
+    private final Set<Link> newFoundLinks = new HashSet<>();
+    private boolean insideBaseTag = false;
+    private HtmlTokenizer tokenizer;
+    private final Results results;
+
+    PageReader(Parser parser, Link link) {
+        this(parser, link, false, false);
+    }
+
+    /**
+     * @param parser parser the content of the page is handed to
+     * @param link link of the page
+     * @param stopAtHtmlEnd whether reading stops at the closing html tag, ignoring whatever follows it
+     * @param recordResults whether all results of the page are recorded, not only the new-found links
+     */
+    PageReader(Parser parser, Link link, boolean stopAtHtmlEnd, boolean recordResults) {
+        this.parser = parser;
+        this.link = link;
+        this.stopAtHtmlEnd = stopAtHtmlEnd;
+        this.results = recordResults ? new Results() : null;
+    }
+
+
+    /**
+     * Returns the links found by {@link #read(Reader)} that have not been found on any other page before.
+     *
+     * @return Set of the new-found links
+     */
+    public Set<Link> getNewFoundLinks() {
+        return newFoundLinks;
+    }
+
+
+    /**
+     * Returns all links found on the page, whether they have been found on another page before or not.
+     *
+     * @return links in the order they were found, empty if the results are not recorded
+     */
+    public Collection<String> getLinks() {
+        return results == null ? List.of() : results.links;
+    }
+
+
+    /**
+     * Returns all emails found on the page.
+     *
+     * @return emails in the order they were found, empty if the results are not recorded
+     */
+    public Collection<String> getEmails() {
+        return results == null ? List.of() : results.emails;
+    }
+
+
+    /**
+     * Returns all phone numbers found on the page.
+     *
+     * @return phone numbers in the order they were found, empty if the results are not recorded
+     */
+    public Collection<String> getPhoneNumbers() {
+        return results == null ? List.of() : results.phoneNumbers;
+    }
+
+
+    /**
+     * Read from the passed Reader and sends the text between the tags and the attributes of
+     * the tags to the parser to extract links, emails, telephone numbers.
+     *
+     * @param reader Reader
+     * @throws IOException if an I/O error occurs
+     */
+    public void read(Reader reader) throws IOException {
+        tokenizer = HtmlTokenizer.acquire();
+        try {
+            tokenizer.tokenize(reader, this);
+        } finally {
+            tokenizer.release();
+            tokenizer = null;
+        }
+    }
+
+
+    @Override
+    public void text(CharSequence text) {
+        parser.parseLine(text, this.link, this.newFoundLinks, this.results);
+    }
+
+
+    @Override
+    public void startTag(CharSequence name) {
+        insideBaseTag = HtmlTokenizer.equalsIgnoreCase(name, "base");
+    }
+
+
+    @Override
+    public void attribute(CharSequence name, CharSequence value) {
+        if (insideBaseTag) {
+            if (HtmlTokenizer.equalsIgnoreCase(name, "href")) {
+                this.setBaseUrl(value.toString());
+            }
+            return;
+        }
+
+        parser.parseAttribute(name, value, this.link, this.newFoundLinks, this.results);
+    }
+
+
+    @Override
+    public void endTag(CharSequence name) {
+        insideBaseTag = false;
+
+        if (stopAtHtmlEnd && HtmlTokenizer.equalsIgnoreCase(name, "html")) tokenizer.stop();
+    }
+
+
+    /**
+     * If we find a base tag in the head of the html element, we replace the current
+     * Link with a new link based on the href attribute of the base tag.
+     * The href may itself be relative to the current link.
+     *
+     * @param baseUrl value of the href attribute of the base tag.
+     */
+    private void setBaseUrl(String baseUrl) {
+        Link base = Link.resolve(link, baseUrl);
+
+        //an invalid base url is ignored, as browsers do
+        if (base != null) {
+            this.link = base;
+        }
+    }
+
+
+    /**
+     * All results of the page. Only used by the thread reading the page.
+     */
+    private static class Results implements Parser.ResultListener {
+
+        private final Set<String> links = new LinkedHashSet<>();
+        private final Set<String> emails = new LinkedHashSet<>();
+        private final Set<String> phoneNumbers = new LinkedHashSet<>();
+
+        @Override
+        public void linkFound(Link link) {
+            links.add(link.toString());
+        }
+
+        @Override
+        public void emailFound(String email) {
+            emails.add(email);
+        }
+
+        @Override
+        public void phoneNumberFound(String phoneNumber) {
+            phoneNumbers.add(phoneNumber);
+        }
+    }
+
+}
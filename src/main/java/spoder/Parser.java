@@ -0,0 +1,486 @@
+package spoder;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class parses text segments and stores the found links, emails telephone numbers.
+ * Every word is scanned once for cheap hints ('@', "http", the number of digits) that decide which of the default
+ * patterns can match at all, so most words are never handed to a regular expression. Custom patterns are always
+ * applied, since nothing is known about what they match.
+ */
+public class Parser {
+
+    private static final String DEFAULT_LINK_REGEX = "https?:\\/\\/(www\\.)?[-a-zA-Z0-9äüöÄÜÖ@:%._\\+~#=]{1,256}\\.[a-zA-Z0-9()]{1,6}\\b([-a-zA-Z0-9()äüöÄÜÖ@:%_\\+.~#?&//=]*)";
+    private static final String DEFAULT_HREF_LINK = "(^(?!www\\.|(?:http|ftp)s?://|[A-Za-z]:\\\\|//).*)|(https?:\\/\\/(www\\.)?[-a-zA-Z0-9äüöAÜÖ@:%._\\+~#=]{1,256}\\.[a-zA-Z0-9()]{1,6}\\b([-a-zA-Z0-9()äüöÄÜÖ@:%_\\+.~#?&//=]*))";
+    private static final String DEFAULT_EMAIL_REGEX = "^[mailto:]?[a-zA-Z0-9.!#$%&'*+/=?^_`{|}~-]+@[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?(?:\\.[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?)*$";
+    private static final String DEFAULT_PHONE_NUMBER_REGEX = "^[\\+]?[(]?[0-9]{3}[)]?[-\\s\\.]?[0-9]{3}[-\\s\\.]?[0-9]{4,6}$";
+
+    //the default phone number pattern requires at least 3 + 3 + 4 digits
+    private static final int MIN_PHONE_NUMBER_DIGITS = 10;
+
+    private final Pattern linkPattern;
+    private final Pattern hrefLinkPattern;
+    private final Pattern emailPattern;
+    private final Pattern phoneNumberPattern;
+
+    private final boolean customLinkPattern;
+    private final boolean customEmailPattern;
+    private final boolean customPhoneNumberPattern;
+
+    private final ThreadLocal<Matchers> matchers = ThreadLocal.withInitial(Matchers::new);
+
+    //decides whether a link is new, the links themselves are only kept if asked for, the crawl streams them instead
+    private final LinkDeduplicator linkDeduplicator;
+    private final Queue<String> collectedLinks;
+    private final Set<String> collectedEmails = ConcurrentHashMap.newKeySet();
+    private final Set<String> collectedPhoneNumbers = ConcurrentHashMap.newKeySet();
+
+    private final List<ResultListener> resultListeners = new CopyOnWriteArrayList<>();
+
+
+    Parser(String linkRegex, String emailRegex, String phoneNumberRegex) {
+        this(linkRegex, emailRegex, phoneNumberRegex, new FingerprintSet(0), true);
+    }
+
+    /**
+     * @param linkRegex custom link regex, null for the default
+     * @param emailRegex custom email regex, null for the default
+     * @param phoneNumberRegex custom phone number regex, null for the default
+     * @param linkDeduplicator decides which of the found links are new
+     * @param keepLinks whether the found links are kept for {@link #collectLinks()}
+     */
+    Parser(String linkRegex, String emailRegex, String phoneNumberRegex, LinkDeduplicator linkDeduplicator,
+           boolean keepLinks) {
+        this.linkPattern = customOrDefaultPattern(linkRegex, DEFAULT_LINK_REGEX);
+        this.hrefLinkPattern = customOrDefaultPattern(linkRegex, DEFAULT_HREF_LINK);
+        this.emailPattern = customOrDefaultPattern(emailRegex, DEFAULT_EMAIL_REGEX);
+        this.phoneNumberPattern = customOrDefaultPattern(phoneNumberRegex, DEFAULT_PHONE_NUMBER_REGEX);
+
+        this.customLinkPattern = linkRegex != null;
+        this.customEmailPattern = emailRegex != null;
+        this.customPhoneNumberPattern = phoneNumberRegex != null;
+
+        this.linkDeduplicator = linkDeduplicator;
+        this.collectedLinks = keepLinks ? new ConcurrentLinkedQueue<>() : null;
+    }
+
+
+    /**
+     * Parses the given line word by word and collects all links, emails, phone numbers that have not been found yet.
+     * The new-found links are added to the given set.
+     *
+     * @param line line to be parsed
+     * @param parentLink link of the page the line was found on
+     * @param newFoundLinks set the new-found links are added to
+     */
+    public void parseLine(CharSequence line, Link parentLink, Set<Link> newFoundLinks) {
+        parseLine(line, parentLink, newFoundLinks, null);
+    }
+
+
+    /**
+     * Parses the given line like {@link #parseLine(CharSequence, Link, Set)} and additionally hands every link,
+     * email and phone number in the line, whether it has been found before or not, to the given listener.
+     *
+     * @param line line to be parsed
+     * @param parentLink link of the page the line was found on
+     * @param newFoundLinks set the new-found links are added to
+     * @param pageResults listener notified about all results of the line, null if not needed
+     */
+    public void parseLine(CharSequence line, Link parentLink, Set<Link> newFoundLinks, ResultListener pageResults) {
+        Matchers m = matchers.get();
+        m.reset(line);
+
+        int wordStart = -1;
+        boolean containsAt = false;
+        boolean containsHttp = false;
+        int digits = 0;
+
+        for (int i = 0; i <= line.length(); i++) {
+            char c = i == line.length() ? ' ' : line.charAt(i);
+
+            if (HtmlTokenizer.isWhitespace(c)) {
+                if (wordStart != -1) {
+                    parseWord(m, wordStart, i, containsHttp, containsAt, digits, parentLink, newFoundLinks, pageResults);
+                    wordStart = -1;
+                    containsAt = false;
+                    containsHttp = false;
+                    digits = 0;
+                }
+                continue;
+            }
+
+            if (wordStart == -1) wordStart = i;
+
+            if (c == '@') {
+                containsAt = true;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == 'p' && i - wordStart >= 3
+                    && line.charAt(i - 1) == 't' && line.charAt(i - 2) == 't' && line.charAt(i - 3) == 'h') {
+                containsHttp = true;
+            }
+        }
+
+        m.reset("");
+    }
+
+
+    /**
+     * Parses the value of an attribute and searches for links in hrefs.
+     * The new-found links are added to the given set.
+     *
+     * @param name name of the attribute
+     * @param value value of the attribute
+     * @param parentLink link of the page the attribute was found on
+     * @param newFoundLinks set the new-found links are added to
+     */
+    public void parseAttribute(CharSequence name, CharSequence value, Link parentLink, Set<Link> newFoundLinks) {
+        parseAttribute(name, value, parentLink, newFoundLinks, null);
+    }
+
+
+    /**
+     * Parses the value of an attribute like {@link #parseAttribute(CharSequence, CharSequence, Link, Set)} and
+     * additionally hands the link or email in it, whether it has been found before or not, to the given listener.
+     *
+     * @param name name of the attribute
+     * @param value value of the attribute
+     * @param parentLink link of the page the attribute was found on
+     * @param newFoundLinks set the new-found links are added to
+     * @param pageResults listener notified about all results of the attribute, null if not needed
+     */
+    public void parseAttribute(CharSequence name, CharSequence value, Link parentLink, Set<Link> newFoundLinks,
+                               ResultListener pageResults) {
+        if (!relevantKeyword(name)) return;
+
+        Matchers m = matchers.get();
+        m.reset(value);
+
+        Matcher matcher = m.hrefLink;
+        if (matcher.find()) {
+            addLink(generateAbsoluteLink(parentLink, matcher.group()), newFoundLinks, pageResults);
+        } else {
+            matcher = m.email;
+            if (matcher.find()) {
+                addEmail(matcher.group(), pageResults);
+            }
+        }
+
+        m.reset("");
+    }
+
+
+    /**
+     * Marks a link that is crawled without having been found on a page, i.e. the start link, as collected,
+     * so it is not crawled a second time when a page links back to it.
+     *
+     * @param link link to be marked
+     */
+    public void markCollected(Link link) {
+        if (linkDeduplicator.add(link)) {
+            linkCollected(link);
+        }
+    }
+
+
+    /**
+     * Adds the results of an earlier crawl, e.g. read from a checkpoint, without notifying the listeners.
+     *
+     * @param links links found before
+     * @param emails emails found before
+     * @param phoneNumbers phone numbers found before
+     */
+    public void restore(Collection<Link> links, Collection<String> emails, Collection<String> phoneNumbers) {
+        for (Link link : links) {
+            if (linkDeduplicator.add(link) && collectedLinks != null) {
+                collectedLinks.add(link.toString());
+            }
+        }
+
+        collectedEmails.addAll(emails);
+        collectedPhoneNumbers.addAll(phoneNumbers);
+    }
+
+
+    /**
+     * Adds the results of a page that have been found on an earlier crawl and are known not to have changed, e.g.
+     * taken from the {@link PageCache}. The listeners are notified about the new ones, as if the page had been parsed.
+     *
+     * @param links links found on the page
+     * @param emails emails found on the page
+     * @param phoneNumbers phone numbers found on the page
+     * @param newFoundLinks set the new-found links are added to
+     */
+    public void addCached(Collection<Link> links, Collection<String> emails, Collection<String> phoneNumbers,
+                          Set<Link> newFoundLinks) {
+        for (Link link : links) {
+            addLink(link, newFoundLinks, null);
+        }
+
+        for (String email : emails) {
+            addEmail(email, null);
+        }
+
+        for (String phoneNumber : phoneNumbers) {
+            addPhoneNumber(phoneNumber, null);
+        }
+    }
+
+
+    /**
+     * Adds a listener that is notified about every new link, email and phone number as soon as it is found.
+     *
+     * @param listener listener to be added
+     */
+    public void addResultListener(ResultListener listener) {
+        resultListeners.add(listener);
+    }
+
+
+    /**
+     * Returns a set of all links collected so far by all threads.
+     *
+     * @return Set of links, empty if the parser does not keep the links
+     */
+    public Set<String> collectLinks() {
+        if (collectedLinks == null) return new HashSet<>();
+
+        return new HashSet<>(collectedLinks);
+    }
+
+
+    /**
+     * Returns the deduplicator that decides which of the found links are new.
+     *
+     * @return link deduplicator
+     */
+    public LinkDeduplicator getLinkDeduplicator() {
+        return linkDeduplicator;
+    }
+
+
+    /**
+     * Returns a set of all emails collected so far by all threads.
+     *
+     * @return Set of emails
+     */
+    public Set<String> collectEmails() {
+        return collectedEmails;
+    }
+
+
+    /**
+     * Returns a set of all phone numbers collected so far by all threads.
+     *
+     * @return set of phone numbers
+     */
+    public Set<String> collectPhoneNumbers() {
+        return collectedPhoneNumbers;
+    }
+
+
+    /**
+     * Takes a custom regex and an according default regex. If the custom regex is null, the default pattern is returned
+     * In every other case the custom pattern is returned.
+     *
+     * @param custom custom regular expression
+     * @param standard default regular expression
+     * @return Compiled regex
+     */
+    private Pattern customOrDefaultPattern(String custom, String standard) {
+        if (custom == null) return Pattern.compile(standard);
+
+        return Pattern.compile(custom);
+    }
+
+    /**
+     * Checks the word line[start, end) for a link, email or phone number, in that order.
+     * A default pattern is only applied if the hints found while scanning the word allow a match.
+     *
+     * @param m matchers of the current thread, reset to the line
+     * @param start index of the first character of the word
+     * @param end index after the last character of the word
+     * @param containsHttp whether the word contains "http"
+     * @param containsAt whether the word contains '@'
+     * @param digits number of digits in the word
+     * @param parentLink link of the page the word was found on
+     * @param newFoundLinks set the new-found links are added to
+     * @param pageResults listener notified about all results of the word, null if not needed
+     */
+    private void parseWord(Matchers m, int start, int end, boolean containsHttp, boolean containsAt, int digits,
+                           Link parentLink, Set<Link> newFoundLinks, ResultListener pageResults) {
+        if (customLinkPattern || containsHttp) {
+            Matcher matcher = m.link.region(start, end);
+            if (matcher.find()) {
+                addLink(generateAbsoluteLink(parentLink, matcher.group()), newFoundLinks, pageResults);
+                return;
+            }
+        }
+
+        if (customEmailPattern || containsAt) {
+            Matcher matcher = m.email.region(start, end);
+            if (matcher.find()) {
+                addEmail(matcher.group(), pageResults);
+                return;
+            }
+        }
+
+        if (customPhoneNumberPattern || digits >= MIN_PHONE_NUMBER_DIGITS) {
+            Matcher matcher = m.phoneNumber.region(start, end);
+            if (matcher.find()) {
+                addPhoneNumber(matcher.group(), pageResults);
+            }
+        }
+    }
+
+    /**
+     * Adds the link to the collected links. If it has not been collected before, it is also added to the given set.
+     *
+     * @param link link to be added, links that could not be resolved (null) are ignored
+     * @param newFoundLinks set of the links that have not been found before
+     * @param pageResults listener notified about the link even if it has been found before, null if not needed
+     */
+    private void addLink(Link link, Set<Link> newFoundLinks, ResultListener pageResults) {
+        if (link == null) return;
+
+        if (pageResults != null) pageResults.linkFound(link);
+
+        if (linkDeduplicator.add(link)) {
+            linkCollected(link);
+            newFoundLinks.add(link);
+        }
+    }
+
+    /**
+     * Keeps the new link if the links are kept and notifies the listeners.
+     *
+     * @param link new link
+     */
+    private void linkCollected(Link link) {
+        if (collectedLinks != null) collectedLinks.add(link.toString());
+
+        for (ResultListener listener : resultListeners) {
+            listener.linkFound(link);
+        }
+    }
+
+    /**
+     * Adds the email to the collected emails and notifies the listeners if it has not been collected before.
+     *
+     * @param email email to be added
+     * @param pageResults listener notified about the email even if it has been found before, null if not needed
+     */
+    private void addEmail(String email, ResultListener pageResults) {
+        if (pageResults != null) pageResults.emailFound(email);
+
+        if (!collectedEmails.add(email)) return;
+
+        for (ResultListener listener : resultListeners) {
+            listener.emailFound(email);
+        }
+    }
+
+    /**
+     * Adds the phone number to the collected phone numbers and notifies the listeners if it has not been collected
+     * before.
+     *
+     * @param phoneNumber phone number to be added
+     * @param pageResults listener notified about the phone number even if it has been found before, null if not needed
+     */
+    private void addPhoneNumber(String phoneNumber, ResultListener pageResults) {
+        if (pageResults != null) pageResults.phoneNumberFound(phoneNumber);
+
+        if (!collectedPhoneNumbers.add(phoneNumber)) return;
+
+        for (ResultListener listener : resultListeners) {
+            listener.phoneNumberFound(phoneNumber);
+        }
+    }
+
+    /**
+     * Check if the given keyword is a relevant attribute
+     *
+     * @param key key to be checked
+     * @return true if it is a relevant attribute, false otherwise
+     */
+    private boolean relevantKeyword(CharSequence key) {
+        String[] keywords = {"href"};
+
+        for (String keyword : keywords) {
+            if (HtmlTokenizer.equalsIgnoreCase(key, keyword)) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Creates a new absolute link
+     *
+     * @param parentLink the link on the page on which we found the link
+     * @param found the found link
+     * @return new Link Object that represent the absolute link, or null if the found link is not an http(s) url
+     */
+    private Link generateAbsoluteLink(Link parentLink, String found) {
+        return Link.resolve(parentLink, found);
+    }
+
+
+    /**
+     * Matchers of a single thread. They are reused for every line by resetting them to the new input.
+     */
+    private class Matchers {
+
+        private final Matcher link = linkPattern.matcher("");
+        private final Matcher hrefLink = hrefLinkPattern.matcher("");
+        private final Matcher email = emailPattern.matcher("");
+        private final Matcher phoneNumber = phoneNumberPattern.matcher("");
+
+        /**
+         * Resets all matchers to the given input. Passing an empty input releases the previous one.
+         *
+         * @param input new input of the matchers
+         */
+        void reset(CharSequence input) {
+            link.reset(input);
+            hrefLink.reset(input);
+            email.reset(input);
+            phoneNumber.reset(input);
+        }
+    }
+
+
+    /**
+     * Gets notified about every new result as soon as it is found. The listener is called on the thread that
+     * parses the page, so it has to be thread-safe and should return quickly.
+     * <p>
+     * Passed to {@link #parseLine(CharSequence, Link, Set, ResultListener)} instead, it is notified about every
+     * result of the page, including those that have been found before.
+     */
+    public interface ResultListener {
+
+        /**
+         * @param link link that has not been found before
+         */
+        void linkFound(Link link);
+
+        /**
+         * @param email email that has not been found before
+         */
+        void emailFound(String email);
+
+        /**
+         * @param phoneNumber phone number that has not been found before
+         */
+        void phoneNumberFound(String phoneNumber);
+    }
+}
@@ -0,0 +1,111 @@
+package spoder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether a failed fetch is retried and how long to wait before. Only transient errors are retried: timeouts,
+ * server errors (5xx) and 429 Too Many Requests. Errors that would most likely happen again, like 404 or a host that
+ * cannot be resolved, are not.
+ * <p>
+ * The delay grows exponentially with every attempt, up to a maximum, and half of it is random, so the retries of the
+ * links that failed at the same time are spread out instead of hitting the server at once again. If the server has
+ * sent a Retry-After header, its delay is used instead. A link is given up if the server asks to wait longer than the
+ * maximum delay.
+ * <p>
+ * The attempts are counted per link until the link has been given up or fetched, see {@link #forget(Link)}.
+ */
+public class RetryPolicy {
+
+    private static final long MAX_DELAY_MILLIS = 60_000;
+
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder givenUp = new LongAdder();
+
+    /**
+     * @param maxRetries maximum number of retries per link, 0 disables retrying
+     * @param baseDelayMillis delay before the first retry, doubled for every further retry
+     */
+    RetryPolicy(int maxRetries, long baseDelayMillis) {
+        this.maxRetries = maxRetries;
+        this.baseDelayMillis = baseDelayMillis;
+    }
+
+
+    /**
+     * Decides whether the failed fetch of the given link is retried and counts the attempt.
+     *
+     * @param link link whose fetch has failed
+     * @param error error of the fetch
+     * @return milliseconds to wait before the link is fetched again, or -1 if it is not retried
+     */
+    public long retryDelay(Link link, Throwable error) {
+        if (maxRetries == 0 || !isTransient(HostScheduler.outcomeOf(error))) return -1;
+
+        int attempt = attempts.merge(link.toString(), 1, Integer::sum);
+        if (attempt > maxRetries) {
+            attempts.remove(link.toString());
+            givenUp.increment();
+            return -1;
+        }
+
+        long retryAfter = error instanceof HttpStatusException status ? status.getRetryAfterMillis() : -1;
+        if (retryAfter > MAX_DELAY_MILLIS) {
+            attempts.remove(link.toString());
+            givenUp.increment();
+            return -1;
+        }
+
+        retries.increment();
+        if (retryAfter >= 0) return retryAfter;
+
+        //equal jitter: half of the exponential delay is fixed, the other half random
+        long delay = Math.min(MAX_DELAY_MILLIS, baseDelayMillis << Math.min(attempt - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+
+    /**
+     * Forgets the attempts of a link that has been crawled.
+     *
+     * @param link crawled link
+     */
+    public void forget(Link link) {
+        //most links are fetched at the first attempt, so the map is usually empty
+        if (!attempts.isEmpty()) attempts.remove(link.toString());
+    }
+
+
+    /**
+     * Returns the number of retries that have been scheduled.
+     *
+     * @return number of retries
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+
+    /**
+     * Returns the number of links that have still failed after their last retry.
+     *
+     * @return number of links given up
+     */
+    public long getGivenUp() {
+        return givenUp.sum();
+    }
+
+
+    private static boolean isTransient(HostScheduler.Outcome outcome) {
+        return outcome == HostScheduler.Outcome.OVERLOADED
+                || outcome == HostScheduler.Outcome.TIMEOUT
+                || outcome == HostScheduler.Outcome.SERVER_ERROR;
+    }
+
+}
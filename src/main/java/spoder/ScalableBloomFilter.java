@@ -0,0 +1,210 @@
+package spoder;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Probabilistic deduplicator that needs a fixed number of bits per link, independent of the length of the urls.
+ * <p>
+ * A scalable Bloom filter (Almeida et al., "Scalable Bloom Filters") is a series of Bloom filters. When a filter has
+ * reached its capacity, a new one with twice the capacity and half the error rate is added, so the overall false
+ * positive rate stays below the configured one no matter how many links are found. Only the last filter receives
+ * new links. If the memory budget does not allow another filter, the last one keeps filling up and the false
+ * positive rate rises beyond the configured one, which is reflected by {@link #getFalsePositiveRate()}.
+ * <p>
+ * The bits are set with atomic operations, so no locks are needed. Two threads adding the same new link at the same
+ * moment may both report it as new.
+ */
+public class ScalableBloomFilter implements LinkDeduplicator {
+
+    private static final long INITIAL_CAPACITY = 64 * 1024;
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final long memoryBudget;
+
+    private volatile Filter[] filters;
+    private volatile boolean exhausted = false;
+    private final AtomicLong size = new AtomicLong(0);
+
+    /**
+     * @param falsePositiveRate false positive rate the filter aims for, between 0 and 1
+     * @param memoryBudget maximum number of bytes the filters may use, 0 for unlimited
+     */
+    ScalableBloomFilter(double falsePositiveRate, long memoryBudget) {
+        this.memoryBudget = memoryBudget <= 0 ? Long.MAX_VALUE : memoryBudget;
+
+        //the error rates of the filters form a geometric series that sums up to the configured rate
+        Filter first = new Filter(INITIAL_CAPACITY, falsePositiveRate * (1 - TIGHTENING_RATIO));
+        if (first.getMemoryUsage() > this.memoryBudget) {
+            first = Filter.ofSize(this.memoryBudget, falsePositiveRate * (1 - TIGHTENING_RATIO));
+        }
+        this.filters = new Filter[]{first};
+    }
+
+
+    @Override
+    public boolean add(Link link) {
+        long fingerprint = LinkDeduplicator.fingerprint(link);
+        Filter[] current = filters;
+
+        for (int i = 0; i < current.length - 1; i++) {
+            if (current[i].mightContain(fingerprint)) return false;
+        }
+
+        Filter last = current[current.length - 1];
+        if (!last.put(fingerprint)) return false;
+
+        size.incrementAndGet();
+        if (last.isFull() && !exhausted) grow(current);
+
+        return true;
+    }
+
+
+    @Override
+    public long size() {
+        return size.get();
+    }
+
+
+    @Override
+    public long getMemoryUsage() {
+        long bytes = 0;
+        for (Filter filter : filters) {
+            bytes += filter.getMemoryUsage();
+        }
+        return bytes;
+    }
+
+
+    @Override
+    public long getRejected() {
+        return 0;
+    }
+
+
+    /**
+     * A new link is reported as found if any of the filters reports it, so the rate is 1 - (1 - p1)(1 - p2)...
+     * where pi is estimated from the number of links in filter i.
+     */
+    @Override
+    public double getFalsePositiveRate() {
+        double none = 1;
+        for (Filter filter : filters) {
+            none *= 1 - filter.getFalsePositiveRate();
+        }
+        return 1 - none;
+    }
+
+
+    /**
+     * Adds a filter with twice the capacity and a tighter error rate, if the memory budget allows it.
+     *
+     * @param current filters at the time the last one was found to be full
+     */
+    private synchronized void grow(Filter[] current) {
+        //another thread has grown the filters in the meantime
+        if (filters != current) return;
+
+        Filter last = current[current.length - 1];
+        Filter next = new Filter(last.capacity * 2, last.errorRate * TIGHTENING_RATIO);
+        if (getMemoryUsage() + next.getMemoryUsage() > memoryBudget) {
+            exhausted = true;
+            return;
+        }
+
+        Filter[] grown = new Filter[current.length + 1];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        grown[current.length] = next;
+        filters = grown;
+    }
+
+
+    /**
+     * Plain Bloom filter. The bit positions are derived from the 64-bit fingerprint by double hashing
+     * (Kirsch and Mitzenmacher, "Less Hashing, Same Performance").
+     */
+    private static class Filter {
+
+        private final long capacity;
+        private final double errorRate;
+        private final long bits;
+        private final int hashes;
+        private final AtomicLongArray words;
+        private final AtomicLong count = new AtomicLong(0);
+
+        /**
+         * Creates a filter with the optimal number of bits and hash functions for the given capacity and error rate.
+         */
+        Filter(long capacity, double errorRate) {
+            this(capacity, errorRate, (long) Math.ceil(-capacity * Math.log(errorRate) / (Math.log(2) * Math.log(2))));
+        }
+
+        private Filter(long capacity, double errorRate, long bits) {
+            this.capacity = capacity;
+            this.errorRate = errorRate;
+            this.words = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64));
+            this.bits = words.length() * 64L;
+            this.hashes = Math.max(1, (int) Math.round(this.bits / (double) capacity * Math.log(2)));
+        }
+
+        /**
+         * Creates a filter that uses the given number of bytes and holds as many links as possible at the error rate.
+         */
+        static Filter ofSize(long bytes, double errorRate) {
+            long bits = Math.max(64, bytes * 8);
+            long capacity = Math.max(1, (long) (bits * Math.log(2) * Math.log(2) / -Math.log(errorRate)));
+            return new Filter(capacity, errorRate, bits);
+        }
+
+        boolean mightContain(long fingerprint) {
+            long step = Long.rotateLeft(fingerprint, 32) | 1;
+
+            for (int i = 0; i < hashes; i++) {
+                long bit = Long.remainderUnsigned(fingerprint + i * step, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+
+            return true;
+        }
+
+        /**
+         * Sets the bits of the fingerprint.
+         *
+         * @return true if at least one bit was not set before, i.e. the fingerprint was definitely not contained
+         */
+        boolean put(long fingerprint) {
+            long step = Long.rotateLeft(fingerprint, 32) | 1;
+            boolean changed = false;
+
+            for (int i = 0; i < hashes; i++) {
+                long bit = Long.remainderUnsigned(fingerprint + i * step, bits);
+                long mask = 1L << bit;
+                int word = (int) (bit >>> 6);
+
+                if ((words.get(word) & mask) == 0) {
+                    changed |= (words.getAndAccumulate(word, mask, (a, b) -> a | b) & mask) == 0;
+                }
+            }
+
+            if (changed) count.incrementAndGet();
+            return changed;
+        }
+
+        boolean isFull() {
+            return count.get() >= capacity;
+        }
+
+        long getMemoryUsage() {
+            return bits / 8;
+        }
+
+        /**
+         * Estimates the error rate from the number of links in the filter: (1 - e^(-kn/m))^k.
+         */
+        double getFalsePositiveRate() {
+            return Math.pow(1 - Math.exp(-hashes * (double) count.get() / bits), hashes);
+        }
+    }
+
+}
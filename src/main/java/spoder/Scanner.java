@@ -0,0 +1,127 @@
+package spoder;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Takes a link, sends a request to the website and extracts all links, emails, telephone numbers.
+ * Every new link found is scheduled with the {@link ThreadPoolManager}. If the page has not been modified since it has
+ * been stored in the {@link PageCache}, its cached results are used instead. The durations of the phases of the task
+ * are recorded in a {@link TaskTrace} that is handed to the {@link Tracer}. A link that has failed with a transient
+ * error is handed back to the {@link ThreadPoolManager} to be retried later. An unexpected exception, e.g. from
+ * parsing, is reported as an error of the link instead of killing the thread, and the task is finished anyway.
+ */
+public class Scanner implements Runnable {
+
+    private final int depth;
+    private final Link link;
+    private final FetchEngine fetchEngine;
+    private final ConcurrencyLimiter limiter;
+    private final Parser parser;
+    private final ThreadPoolManager threadPoolManager;
+    private final CrawlBudget budget;
+    private final ContentFilter contentFilter;
+    private final PageCache pageCache;
+    private final CrawlMetrics metrics;
+    private final Tracer tracer;
+
+    Scanner(ThreadPoolManager threadPoolManager, Parser parser, FetchEngine fetchEngine, ConcurrencyLimiter limiter,
+            CrawlBudget budget, ContentFilter contentFilter, PageCache pageCache, CrawlMetrics metrics, Tracer tracer,
+            Link link, int depth) {
+        this.threadPoolManager = threadPoolManager;
+        this.budget = budget;
+        this.metrics = metrics;
+        this.tracer = tracer;
+        this.contentFilter = contentFilter;
+        this.pageCache = pageCache;
+        this.parser = parser;
+        this.fetchEngine = fetchEngine;
+        this.limiter = limiter;
+        this.link = link;
+        this.depth = depth;
+    }
+
+    @Override
+    public void run() {
+        limiter.acquire().join();
+
+        Exception error = null;
+        boolean retried = false;
+        long latency = 0;
+        long started = System.nanoTime();
+        TaskTrace trace = new TaskTrace(link);
+        PageReader pageReader = null;
+        Set<Link> newFoundLinks = Set.of();
+
+        //the task is finished whatever happens, otherwise the crawl would never complete
+        try {
+            try (FetchResponse response = fetchEngine.fetch(link, trace)) {
+                latency = System.nanoTime() - started;
+                metrics.pageFetched(latency);
+
+                if (response.isNotModified()) {
+                    newFoundLinks = pageCache.replay(link, parser);
+                } else if (!response.isSkipped()) {
+                    //the body of a skipped response has not been downloaded
+                    pageReader = new PageReader(parser, link, contentFilter.isStopAtHtmlEnd(), pageCache.isEnabled());
+                    long parseStarted = System.nanoTime();
+                    try (PageDecoder decoder = PageDecoder.open(response.getBody(), response.getHeader("Content-Type"))) {
+                        pageReader.read(decoder);
+                    } finally {
+                        budget.addBytes(response.getBytesRead());
+                    }
+                    //the body is downloaded while it is parsed
+                    long parseTime = Math.max(0, System.nanoTime() - parseStarted - response.getReadNanos());
+                    trace.add(TaskTrace.Phase.DOWNLOAD, response.getReadNanos());
+                    trace.add(TaskTrace.Phase.PARSE, parseTime);
+                    metrics.pageParsed(parseTime);
+                    pageCache.store(link, response, pageReader);
+                }
+            } catch (IOException | RuntimeException e) {
+                error = e;
+            } finally {
+                limiter.release();
+            }
+
+            //the links found before the body failed are collected already, they would not be found again on a retry
+            if (pageReader != null) newFoundLinks = pageReader.getNewFoundLinks();
+
+            for (Link link_temp : newFoundLinks) {
+                threadPoolManager.schedule(link_temp, depth-1);
+            }
+
+            trace.finish();
+            tracer.record(trace);
+
+            if (error != null) retried = threadPoolManager.retry(link, depth, error, latency);
+        } catch (RuntimeException e) {
+            if (error == null) error = e;
+        } finally {
+            if (!retried) {
+                if (error != null) {
+                    metrics.pageFailed();
+                    //requests are interrupted when the crawl is stopped, which is not worth an error
+                    if (!threadPoolManager.isStopped()) System.err.println(describe(link, error));
+                }
+
+                threadPoolManager.finished(link, error, latency);
+            }
+        }
+    }
+
+
+    /**
+     * Describes the error of a task for the error output. An error other than an {@link IOException} is a bug, which
+     * is reported together with the link it has happened on.
+     *
+     * @param link link of the task
+     * @param error error of the task
+     * @return line to be printed
+     */
+    static String describe(Link link, Throwable error) {
+        if (error instanceof IOException) return "ERROR: " + error.getMessage();
+
+        return "ERROR: Unexpected " + error + " while crawling " + link;
+    }
+
+}
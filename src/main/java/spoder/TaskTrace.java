@@ -0,0 +1,108 @@
+package spoder;
+
+/**
+ * Durations of the phases of crawling a single link, from resolving its host to parsing its page. The phases are
+ * measured as laps: {@link #mark()} starts a lap and {@link #lap(Phase)} adds the time since then to a phase and
+ * starts the next one. Phases an engine cannot observe stay 0, their time is part of the next phase it measures.
+ * <p>
+ * A trace is only written by one thread at a time, e.g. the thread of a {@link Scanner} or the callbacks of an
+ * asynchronous request, which run one after another. It is handed to the {@link Tracer} once the task has finished.
+ */
+public class TaskTrace {
+
+    /**
+     * Phases of crawling a link.
+     */
+    public enum Phase {
+        DNS, CONNECT, TLS, TTFB, DOWNLOAD, PARSE
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final Link link;
+    private final long started = System.nanoTime();
+    private final long[] nanos = new long[PHASES.length];
+    private long mark = started;
+    private long transportConnected = 0;
+    private long total = 0;
+
+    TaskTrace(Link link) {
+        this.link = link;
+    }
+
+
+    /**
+     * Starts a lap.
+     */
+    public void mark() {
+        mark = System.nanoTime();
+    }
+
+
+    /**
+     * Adds the time since the last mark to the given phase and starts the next lap.
+     *
+     * @param phase phase the lap belongs to
+     */
+    public void lap(Phase phase) {
+        long now = System.nanoTime();
+        nanos[phase.ordinal()] += now - mark;
+        mark = now;
+    }
+
+
+    /**
+     * Notes that the transport connection has been established and the TLS handshake starts.
+     */
+    public void transportConnected() {
+        transportConnected = System.nanoTime();
+    }
+
+
+    /**
+     * Ends the lap of establishing a connection. If {@link #transportConnected()} has been called during the lap,
+     * the time after it is added to {@link Phase#TLS}, everything else to {@link Phase#CONNECT}.
+     */
+    public void lapConnect() {
+        if (transportConnected > mark) {
+            nanos[Phase.CONNECT.ordinal()] += transportConnected - mark;
+            mark = transportConnected;
+            lap(Phase.TLS);
+        } else {
+            lap(Phase.CONNECT);
+        }
+    }
+
+
+    /**
+     * Adds a duration measured elsewhere to the given phase, without affecting the current lap.
+     *
+     * @param phase phase the duration belongs to
+     * @param duration duration in nanoseconds
+     */
+    public void add(Phase phase, long duration) {
+        nanos[phase.ordinal()] += duration;
+    }
+
+
+    /**
+     * Ends the trace. The total is the time since the trace has been created.
+     */
+    public void finish() {
+        total = System.nanoTime() - started;
+    }
+
+
+    public Link getLink() {
+        return link;
+    }
+
+    public long get(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+}
@@ -0,0 +1,429 @@
+package spoder;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Pulls the links to be crawled from the {@link Frontier} and hands them to the worker, at most a fixed number
+ * at a time. Links are only taken from the frontier when a worker is free, so the pending links are not piled up
+ * in the queue of the executor but stay in the frontier, which keeps its memory usage bounded. Which link is crawled
+ * next is decided by the {@link HostScheduler}, so that the requests are spread over the hosts.
+ * <p>
+ * A link counts as running from the moment it is scheduled until its task has finished. Since a task schedules the
+ * links found on its page before it finishes, the counter only drops to zero once no link is left at all, and the
+ * task that brings it there completes the crawl. If the {@link CrawlBudget} runs out before, the crawl is drained
+ * instead: no further links are handed out and it completes as soon as the active tasks have finished.
+ * <p>
+ * A link whose fetch has failed with a transient error is put back into the frontier after the delay given by the
+ * {@link RetryPolicy}. It keeps counting as running while it waits, so the crawl does not complete before it has been
+ * retried, and it stays pending for the {@link TaskListener}. No thread is blocked while waiting: the delays, like the
+ * pauses of the hosts of the {@link HostScheduler}, are kept by a single timer thread.
+ */
+public class ThreadPoolManager {
+
+    //time the tasks that are still running get to react to the interrupt, e.g. to finish parsing a page
+    private static final long STOP_GRACE_PERIOD_SECONDS = 2;
+
+    private final AtomicInteger runningTasks = new AtomicInteger(0);
+
+    private final AtomicInteger totalTasksRegistered = new AtomicInteger(0);
+
+    private final AtomicInteger activeTasks = new AtomicInteger(0);
+
+    private final ExecutorService executorService;
+
+    private final Frontier frontier;
+
+    private final HostScheduler hostScheduler;
+
+    private final int maxActiveTasks;
+
+    private final CrawlBudget budget;
+
+    private final RetryPolicy retryPolicy;
+
+    private final HostResolver hostResolver;
+
+    private final CrawlScope scope;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "retries");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+
+    private volatile boolean stopped = false;
+
+    private volatile boolean draining = false;
+
+    private Consumer<Frontier.Entry> worker;
+
+    private TaskListener taskListener;
+
+    /**
+     * @param numberOfThreads number of threads of the pool, ignored if virtual threads are used
+     * @param virtualThreads if true, every task is run on its own virtual thread instead of a fixed pool
+     * @param frontier frontier the links to be crawled are queued in
+     * @param hostScheduler scheduler that takes the links from the frontier
+     * @param maxActiveTasks maximum number of links that are handed to the worker at the same time
+     * @param budget budget that limits the number of pages fetched and the number of links queued
+     * @param retryPolicy policy deciding which failed links are retried
+     * @param hostResolver cache of the addresses of the hosts, which resolves the hosts of queued links in advance
+     * @param scope scope deciding which links are queued at all
+     */
+    ThreadPoolManager(int numberOfThreads, boolean virtualThreads, Frontier frontier, HostScheduler hostScheduler,
+                      int maxActiveTasks, CrawlBudget budget, RetryPolicy retryPolicy,
+                      HostResolver hostResolver, CrawlScope scope) {
+        //daemon threads, so a thread stuck in a request that ignores the interrupt does not keep the program alive
+        this.executorService = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(numberOfThreads, runnable -> {
+                    Thread thread = new Thread(runnable);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.frontier = frontier;
+        this.hostScheduler = hostScheduler;
+        this.maxActiveTasks = maxActiveTasks;
+        this.budget = budget;
+        this.retryPolicy = retryPolicy;
+        this.hostResolver = hostResolver;
+        this.scope = scope;
+    }
+
+
+    /**
+     * Sets the worker the links taken from the frontier are handed to. The worker is called on the thread that
+     * schedules or finishes a task, so it has to hand the actual work off, e.g. to {@link #getExecutor()}, and
+     * call {@link #finished(Link, Throwable, long)} when it is done, or {@link #retry(Link, int, Throwable, long)} if
+     * it has failed.
+     *
+     * @param worker worker crawling a single link
+     */
+    public void setWorker(Consumer<Frontier.Entry> worker) {
+        this.worker = worker;
+    }
+
+
+    /**
+     * Sets the listener that is notified about every scheduled and every finished link.
+     *
+     * @param taskListener listener, null for none
+     */
+    public void setTaskListener(TaskListener taskListener) {
+        this.taskListener = taskListener;
+    }
+
+
+    /**
+     * Queues a link in the frontier, increments the {@link #runningTasks} task counter and hands the link to the
+     * worker as soon as fewer than the maximum number of tasks are active. The host of the link is resolved while
+     * the link waits in the frontier.
+     *
+     * @param link link to be crawled
+     * @param depth remaining recursion depth, nothing is done if it is 0 or the link is out of the scope
+     */
+    public void schedule(Link link, int depth) {
+        if (depth == 0) return;
+        if (!scope.admits(link)) return;
+        if (!budget.admitLink(runningTasks.get() - activeTasks.get())) return;
+
+        //still reported after the crawl has been stopped, the link has been found and is pending now
+        if (taskListener != null) taskListener.scheduled(link, depth);
+        if (stopped) return;
+
+        totalTasksRegistered.getAndIncrement();
+        runningTasks.getAndIncrement();
+        frontier.add(link, depth);
+        hostResolver.prefetch(link);
+        dispatch();
+    }
+
+
+    /**
+     * Queues links that have been scheduled before, e.g. in a crawl that is resumed, without notifying the listener.
+     * All of them are counted before the first one is handed to the worker, so the crawl cannot complete while
+     * they are being queued.
+     *
+     * @param entries links to be crawled together with their remaining recursion depth
+     */
+    public void restore(Collection<Frontier.Entry> entries) {
+        if (stopped) return;
+
+        totalTasksRegistered.addAndGet(entries.size());
+        runningTasks.addAndGet(entries.size());
+        for (Frontier.Entry entry : entries) {
+            frontier.add(entry.link(), entry.depth());
+            hostResolver.prefetch(entry.link());
+        }
+        dispatch();
+    }
+
+
+    /**
+     * Returns the ThreadPool, so that tasks can run their work on it.
+     *
+     * @return Executor of the ThreadPool
+     */
+    public Executor getExecutor() {
+        return executorService;
+    }
+
+
+    /**
+     * Marks a task as done, decrements the {@link #runningTasks} counter and hands the next link to the worker.
+     * If the last task calls this method, the crawl is complete and the thread pool is shut down. Nothing is done
+     * if the crawl has been stopped, so the link is not recorded as crawled.
+     *
+     * @param link link the task has crawled
+     * @param error error of the task, null if it succeeded, see {@link HostScheduler#completed(Link, Throwable, long)}
+     * @param latencyNanos time until the response was received
+     */
+    public void finished(Link link, Throwable error, long latencyNanos) {
+        if (stopped) return;
+
+        if (taskListener != null) taskListener.finished(link);
+        retryPolicy.forget(link);
+
+        release(link, error, latencyNanos);
+
+        //only the task that brings the counter to zero sees zero, and no link can be scheduled after that
+        if (runningTasks.decrementAndGet() == 0) {
+            complete();
+        } else if (draining && activeTasks.get() == 0) {
+            complete();
+        }
+    }
+
+
+    /**
+     * Puts the link of a failed task back into the frontier after a delay, if the {@link RetryPolicy} decides to
+     * retry it. The task is done then, but the link still counts as running. Links are not retried once the crawl is
+     * being drained or has been stopped.
+     *
+     * @param link link the task has failed to crawl
+     * @param depth remaining recursion depth of the link
+     * @param error error of the task
+     * @param latencyNanos time until the response was received
+     * @return true if the link is retried, false if the task has to be finished with
+     * {@link #finished(Link, Throwable, long)}
+     */
+    public boolean retry(Link link, int depth, Throwable error, long latencyNanos) {
+        if (stopped || draining) return false;
+
+        long delay = retryPolicy.retryDelay(link, error);
+        if (delay < 0) return false;
+
+        try {
+            timer.schedule(() -> {
+                if (stopped) return;
+                frontier.add(link, depth);
+                dispatch();
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            //the crawl has been stopped in the meantime
+            return false;
+        }
+
+        release(link, error, latencyNanos);
+
+        //the crawl might have started draining after the check above, and this was its last active task
+        if (draining && activeTasks.get() == 0) complete();
+        return true;
+    }
+
+
+    /**
+     * Ends the crawl gracefully: no further links are handed to the worker, and the crawl completes as soon as the
+     * active tasks have finished. The links left in the frontier stay pending, e.g. for resuming a checkpoint.
+     */
+    public void drain() {
+        draining = true;
+        if (activeTasks.get() == 0) complete();
+    }
+
+
+    /**
+     * Stops the crawl: no further links are scheduled or handed to the worker, the running tasks are interrupted
+     * and {@link #awaitTermination()} returns.
+     */
+    public void interrupt() {
+        stopped = true;
+        completed.set(true);
+        timer.shutdownNow();
+        executorService.shutdownNow();
+        completion.complete(null);
+    }
+
+
+    /**
+     * Returns the number of links that have been scheduled but not yet handed to the worker.
+     *
+     * @return number of pending links
+     */
+    public int getPendingTasks() {
+        return Math.max(0, runningTasks.get() - activeTasks.get());
+    }
+
+
+    /**
+     * Returns the number of links that are currently being crawled by the worker.
+     *
+     * @return number of active tasks
+     */
+    public int getActiveTasks() {
+        return activeTasks.get();
+    }
+
+
+    /**
+     * Checks whether the crawl has been stopped by {@link #interrupt()}.
+     *
+     * @return true if the crawl has been stopped
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+
+    /**
+     * Blocks until all links have been crawled or the crawl has been stopped. In the latter case, it waits a short
+     * grace period for the running tasks to end, but not for requests that do not react to the interrupt.
+     *
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public void awaitTermination() throws InterruptedException {
+        try {
+            completion.get();
+        } catch (ExecutionException e) {
+            //the completion is never completed exceptionally
+            throw new IllegalStateException(e.getCause());
+        }
+
+        if (stopped) executorService.awaitTermination(STOP_GRACE_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+
+    private void complete() {
+        if (!completed.compareAndSet(false, true)) return;
+
+        System.err.println("Total tasks registered: " + totalTasksRegistered.get());
+        timer.shutdownNow();
+        executorService.shutdown();
+        completion.complete(null);
+    }
+
+
+    /**
+     * Tells the host scheduler that the request of a task is done, wakes its host up once it is no longer paused and
+     * hands the next link to the worker.
+     */
+    private void release(Link link, Throwable error, long latencyNanos) {
+        long pause = hostScheduler.completed(link, error, latencyNanos);
+        if (pause > 0) {
+            try {
+                timer.schedule(() -> {
+                    hostScheduler.wake(link);
+                    dispatch();
+                }, pause, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                //the crawl has ended in the meantime
+            }
+        }
+
+        activeTasks.getAndDecrement();
+        dispatch();
+    }
+
+
+    /**
+     * Finishes the links the host scheduler has dropped, because their host is unreachable. They are reported as
+     * finished to the listener, so they are not crawled again when the crawl is resumed.
+     */
+    private void finishDropped() {
+        List<Frontier.Entry> dropped = hostScheduler.takeDropped();
+
+        for (Frontier.Entry entry : dropped) {
+            if (taskListener != null) taskListener.finished(entry.link());
+            retryPolicy.forget(entry.link());
+            if (runningTasks.decrementAndGet() == 0) complete();
+        }
+    }
+
+
+    /**
+     * Hands links from the host scheduler to the worker until either no host can be sent another request or the
+     * maximum number of tasks is active. Every link handed out counts against the page budget.
+     */
+    private void dispatch() {
+        while (!stopped && !draining) {
+            int current = activeTasks.get();
+            if (current >= maxActiveTasks) return;
+            if (!activeTasks.compareAndSet(current, current + 1)) continue;
+
+            Frontier.Entry next = hostScheduler.poll();
+            finishDropped();
+
+            if (next != null) {
+                if (!budget.tryAcquirePage()) {
+                    //the budget has called drain(), but could not complete the crawl, since this slot was held
+                    activeTasks.decrementAndGet();
+                    if (activeTasks.get() == 0) complete();
+                    return;
+                }
+
+                try {
+                    worker.accept(next);
+                } catch (RejectedExecutionException e) {
+                    //the pool has been shut down in the meantime by interrupt() or a drained crawl completing
+                    if (!stopped && !completed.get()) throw e;
+                    return;
+                }
+                continue;
+            }
+
+            activeTasks.decrementAndGet();
+
+            //a link might have been added or a host freed while we held the slot, so we only stop if nothing is ready
+            if (!hostScheduler.hasReady()) return;
+        }
+    }
+
+
+    /**
+     * Gets notified about the progress of the crawl.
+     */
+    public interface TaskListener {
+
+        /**
+         * Called when a link is queued to be crawled.
+         *
+         * @param link link to be crawled
+         * @param depth remaining recursion depth
+         */
+        void scheduled(Link link, int depth);
+
+        /**
+         * Called when a link has been crawled, after all links found on its page have been scheduled.
+         *
+         * @param link crawled link
+         */
+        void finished(Link link);
+    }
+
+}
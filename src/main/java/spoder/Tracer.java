@@ -0,0 +1,245 @@
+package spoder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.Timespan;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects the {@link TaskTrace}s of all finished tasks, to find out where the time of a slow crawl goes.
+ * <p>
+ * Every trace is put into a ring buffer of the most recent traces and its phases are recorded in one
+ * {@link Histogram} per phase, both without locking. The slowest traces of the crawl are kept as well; the lock
+ * guarding them is only taken by the few traces that are slower than the fastest of them.
+ * <p>
+ * Every trace is also committed as a {@code spoder.Fetch} JFR event, which costs nothing unless a flight recording
+ * is running, e.g. the one started by {@link #Tracer(Path)} or one started with {@code -XX:StartFlightRecording}.
+ */
+public class Tracer implements Closeable {
+
+    private static final int RECENT = 1024;
+    private static final int SLOWEST = 10;
+    private static final TaskTrace.Phase[] PHASES = TaskTrace.Phase.values();
+
+    private final AtomicReferenceArray<TaskTrace> recent = new AtomicReferenceArray<>(RECENT);
+    private final AtomicLong recorded = new AtomicLong(0);
+
+    private final Histogram[] phases = new Histogram[PHASES.length];
+    private final Histogram total = new Histogram();
+
+    private final ReentrantLock slowestLock = new ReentrantLock();
+    private final PriorityQueue<TaskTrace> slowest = new PriorityQueue<>(Comparator.comparingLong(TaskTrace::getTotal));
+    private volatile long slowestThreshold = 0;
+
+    private final Recording recording;
+
+    /**
+     * @param jfrFile file a flight recording of the traces is written to when the tracer is closed, null for none
+     * @throws IOException if the recording cannot be written to the file
+     */
+    Tracer(Path jfrFile) throws IOException {
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new Histogram();
+        }
+
+        if (jfrFile != null) {
+            recording = new Recording();
+            recording.setName("spoder");
+            recording.enable(FetchEvent.class);
+            recording.setDestination(jfrFile);
+            recording.start();
+        } else {
+            recording = null;
+        }
+    }
+
+
+    /**
+     * Records the trace of a finished task.
+     *
+     * @param trace finished trace
+     */
+    public void record(TaskTrace trace) {
+        recent.set((int) (recorded.getAndIncrement() % RECENT), trace);
+
+        for (TaskTrace.Phase phase : PHASES) {
+            phases[phase.ordinal()].record(trace.get(phase));
+        }
+        total.record(trace.getTotal());
+
+        if (trace.getTotal() > slowestThreshold) keepIfSlowest(trace);
+
+        FetchEvent event = new FetchEvent();
+        if (event.shouldCommit()) {
+            event.url = trace.getLink().toString();
+            event.dns = trace.get(TaskTrace.Phase.DNS);
+            event.connect = trace.get(TaskTrace.Phase.CONNECT);
+            event.tls = trace.get(TaskTrace.Phase.TLS);
+            event.ttfb = trace.get(TaskTrace.Phase.TTFB);
+            event.download = trace.get(TaskTrace.Phase.DOWNLOAD);
+            event.parse = trace.get(TaskTrace.Phase.PARSE);
+            event.total = trace.getTotal();
+            event.commit();
+        }
+    }
+
+
+    /**
+     * Returns the histogram of the durations of the given phase over all tasks.
+     *
+     * @param phase phase
+     * @return histogram in nanoseconds
+     */
+    public Histogram getPhase(TaskTrace.Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+
+    public Histogram getTotal() {
+        return total;
+    }
+
+
+    /**
+     * Returns the slowest traces of the crawl.
+     *
+     * @return traces, slowest first
+     */
+    public List<TaskTrace> getSlowest() {
+        slowestLock.lock();
+        try {
+            List<TaskTrace> traces = new ArrayList<>(slowest);
+            traces.sort(Comparator.comparingLong(TaskTrace::getTotal).reversed());
+            return traces;
+        } finally {
+            slowestLock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the most recent traces.
+     *
+     * @return up to {@value #RECENT} traces, most recent first
+     */
+    public List<TaskTrace> getRecent() {
+        long end = recorded.get();
+        List<TaskTrace> traces = new ArrayList<>();
+
+        for (long i = end - 1; i >= 0 && i >= end - RECENT; i--) {
+            TaskTrace trace = recent.get((int) (i % RECENT));
+            if (trace != null) traces.add(trace);
+        }
+
+        return traces;
+    }
+
+
+    /**
+     * Formats the slowest and the most recent traces as a JSON object, durations in milliseconds.
+     *
+     * @return JSON object
+     */
+    public String toJson() {
+        return "{\"slowest\":" + toJson(getSlowest()) + ",\"recent\":" + toJson(getRecent()) + "}";
+    }
+
+
+    /**
+     * Stops the flight recording, if any, and writes it to its file.
+     */
+    @Override
+    public void close() {
+        if (recording != null) recording.close();
+    }
+
+
+    private void keepIfSlowest(TaskTrace trace) {
+        slowestLock.lock();
+        try {
+            slowest.add(trace);
+            if (slowest.size() > SLOWEST) slowest.poll();
+            if (slowest.size() == SLOWEST) slowestThreshold = slowest.peek().getTotal();
+        } finally {
+            slowestLock.unlock();
+        }
+    }
+
+
+    private static String toJson(List<TaskTrace> traces) {
+        StringBuilder builder = new StringBuilder("[");
+
+        for (TaskTrace trace : traces) {
+            if (builder.length() > 1) builder.append(',');
+
+            builder.append("{\"url\":\"").append(OutputSink.escapeJson(trace.getLink().toString())).append('"');
+            for (TaskTrace.Phase phase : PHASES) {
+                builder.append(",\"").append(phase.name().toLowerCase(Locale.ROOT)).append("\":").append(millis(trace.get(phase)));
+            }
+            builder.append(",\"total\":").append(millis(trace.getTotal())).append('}');
+        }
+
+        return builder.append(']').toString();
+    }
+
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+
+    /**
+     * Flight recorder event of a single crawled link.
+     */
+    @Name("spoder.Fetch")
+    @Label("Fetch")
+    @Category("Spoder")
+    static class FetchEvent extends Event {
+
+        @Label("URL")
+        String url;
+
+        @Label("DNS")
+        @Timespan
+        long dns;
+
+        @Label("Connect")
+        @Timespan
+        long connect;
+
+        @Label("TLS")
+        @Timespan
+        long tls;
+
+        @Label("Time to First Byte")
+        @Timespan
+        long ttfb;
+
+        @Label("Download")
+        @Timespan
+        long download;
+
+        @Label("Parse")
+        @Timespan
+        long parse;
+
+        @Label("Total")
+        @Timespan
+        long total;
+    }
+
+}
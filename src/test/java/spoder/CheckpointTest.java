@@ -0,0 +1,165 @@
+package spoder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckpointTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void replaysTheJournal() throws IOException {
+        try (Checkpoint checkpoint = new Checkpoint(directory)) {
+            checkpoint.scheduled(link("a"), 2);
+            checkpoint.scheduled(link("b"), 1);
+            checkpoint.scheduled(link("c"), 1);
+            checkpoint.finished(link("a"));
+            checkpoint.linkFound(link("b"));
+            checkpoint.linkFound(link("c"));
+            checkpoint.emailFound("someone@example.com");
+            checkpoint.phoneNumberFound("+1 234 567");
+        }
+
+        Checkpoint.State state = Checkpoint.read(directory, false);
+
+        assertEquals(List.of(new Frontier.Entry(link("b"), 1), new Frontier.Entry(link("c"), 1)), state.pending());
+        assertEquals(List.of(link("b"), link("c")), state.links());
+        assertEquals(List.of("someone@example.com"), state.emails());
+        assertEquals(List.of("+1 234 567"), state.phoneNumbers());
+    }
+
+
+    @Test
+    void appendsToAnExistingJournal() throws IOException {
+        try (Checkpoint checkpoint = new Checkpoint(directory)) {
+            checkpoint.scheduled(link("a"), 1);
+            checkpoint.scheduled(link("b"), 1);
+        }
+        try (Checkpoint checkpoint = new Checkpoint(directory)) {
+            checkpoint.finished(link("b"));
+        }
+
+        assertEquals(List.of(new Frontier.Entry(link("a"), 1)), Checkpoint.read(directory, false).pending());
+    }
+
+
+    @Test
+    void ignoresATruncatedRecordAtTheEnd() throws IOException {
+        try (Checkpoint checkpoint = new Checkpoint(directory)) {
+            checkpoint.scheduled(link("a"), 1);
+            checkpoint.scheduled(link("b"), 1);
+        }
+
+        Path journal = directory.resolve("checkpoint.journal");
+        byte[] bytes = Files.readAllBytes(journal);
+        Files.write(journal, Arrays.copyOf(bytes, bytes.length - 3), StandardOpenOption.TRUNCATE_EXISTING);
+
+        assertEquals(List.of(new Frontier.Entry(link("a"), 1)), Checkpoint.read(directory, false).pending());
+    }
+
+
+    @Test
+    void replaysRecordsLargerThanTheBuffer() throws IOException {
+        Link longLink = Link.parse("http://example.com/" + "x".repeat(300_000), false);
+
+        try (Checkpoint checkpoint = new Checkpoint(directory)) {
+            checkpoint.scheduled(link("a"), 1);
+            checkpoint.scheduled(longLink, 3);
+        }
+
+        assertEquals(List.of(new Frontier.Entry(link("a"), 1), new Frontier.Entry(longLink, 3)),
+                Checkpoint.read(directory, false).pending());
+    }
+
+
+    @Test
+    void compactsTheJournalIntoASnapshotOfTheState() throws IOException {
+        try (Checkpoint checkpoint = new Checkpoint(directory)) {
+            for (int i = 0; i < 1000; i++) {
+                checkpoint.scheduled(link("p" + i), 2);
+                checkpoint.linkFound(link("p" + i));
+                if (i % 10 != 0) checkpoint.finished(link("p" + i));
+            }
+            checkpoint.emailFound("someone@example.com");
+            checkpoint.phoneNumberFound("+1 234 567");
+        }
+
+        Path journal = directory.resolve("checkpoint.journal");
+        long size = Files.size(journal);
+        Checkpoint.State state = Checkpoint.read(directory, false);
+
+        Checkpoint.compact(directory, state);
+
+        assertTrue(Files.size(journal) < size);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(journal), files.toList());
+        }
+
+        Checkpoint.State compacted = Checkpoint.read(directory, false);
+        assertEquals(100, compacted.pending().size());
+        assertEquals(state, compacted);
+    }
+
+
+    @Test
+    void appendsToACompactedJournal() throws IOException {
+        try (Checkpoint checkpoint = new Checkpoint(directory)) {
+            checkpoint.scheduled(link("a"), 1);
+            checkpoint.scheduled(link("b"), 1);
+            checkpoint.finished(link("a"));
+        }
+        Checkpoint.compact(directory, Checkpoint.read(directory, false));
+
+        try (Checkpoint checkpoint = new Checkpoint(directory)) {
+            checkpoint.scheduled(link("c"), 1);
+            checkpoint.finished(link("b"));
+        }
+
+        assertEquals(List.of(new Frontier.Entry(link("c"), 1)), Checkpoint.read(directory, false).pending());
+    }
+
+
+    @Test
+    void existsOnlyWithANonEmptyJournal() throws IOException {
+        assertFalse(Checkpoint.exists(directory));
+
+        new Checkpoint(directory).close();
+        assertFalse(Checkpoint.exists(directory));
+
+        try (Checkpoint checkpoint = new Checkpoint(directory)) {
+            checkpoint.scheduled(link("a"), 1);
+        }
+        assertTrue(Checkpoint.exists(directory));
+    }
+
+
+    @Test
+    void dropsRecordsAfterClose() throws IOException {
+        Checkpoint checkpoint = new Checkpoint(directory);
+        checkpoint.scheduled(link("a"), 1);
+        checkpoint.close();
+        checkpoint.scheduled(link("b"), 1);
+
+        assertEquals(List.of(new Frontier.Entry(link("a"), 1)), Checkpoint.read(directory, false).pending());
+    }
+
+
+    private static Link link(String path) {
+        return Link.parse("http://example.com/" + path, false);
+    }
+
+}
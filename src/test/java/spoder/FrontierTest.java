@@ -0,0 +1,131 @@
+package spoder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrontierTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void keepsTheOrderWhenLinksAreSpilledToDisk() throws IOException {
+        try (Frontier frontier = new Frontier(3, directory, false)) {
+            for (int i = 0; i < 10; i++) {
+                frontier.add(link(i), i);
+            }
+            assertEquals(10, frontier.size());
+            assertTrue(segments() > 0);
+
+            //links added while the first ones are still on disk go behind them
+            for (int i = 0; i < 4; i++) {
+                assertEquals(link(i), frontier.poll().link());
+            }
+            frontier.add(link(10), 10);
+
+            for (int i = 4; i <= 10; i++) {
+                Frontier.Entry entry = frontier.poll();
+                assertEquals(link(i), entry.link());
+                assertEquals(i, entry.depth());
+            }
+            assertNull(frontier.poll());
+            assertTrue(frontier.isEmpty());
+        }
+    }
+
+
+    @Test
+    void readsBackLinksLongerThanTheBuffer() throws IOException {
+        Link longLink = Link.parse("http://example.com/" + "x".repeat(100_000), false);
+
+        try (Frontier frontier = new Frontier(1, directory, false)) {
+            frontier.add(link(0), 0);
+            frontier.add(longLink, 1);
+            frontier.add(link(2), 2);
+
+            assertEquals(link(0), frontier.poll().link());
+            assertEquals(longLink, frontier.poll().link());
+            assertEquals(link(2), frontier.poll().link());
+        }
+    }
+
+
+    @Test
+    void takesTheHighestPriorityFirstAndTiesInOrder() throws IOException {
+        try (Frontier frontier = new Frontier(100, directory, false, entry -> entry.depth())) {
+            frontier.add(link(0), 1);
+            frontier.add(link(1), 3);
+            frontier.add(link(2), 1);
+            frontier.add(link(3), 2);
+
+            assertEquals(List.of(link(1), link(3), link(0), link(2)), drain(frontier));
+        }
+    }
+
+
+    @Test
+    void keepsTheBestLinksInMemoryWhenSpilling() throws IOException {
+        try (Frontier frontier = new Frontier(2, directory, false, entry -> entry.depth())) {
+            frontier.add(link(0), 1);
+            frontier.add(link(1), 2);
+            frontier.add(link(2), 5);
+            frontier.add(link(3), 0);
+            frontier.add(link(4), 4);
+            assertEquals(5, frontier.size());
+
+            //the head holds the two best links, the others are refilled from disk in the order they were spilled
+            List<Link> links = drain(frontier);
+            assertEquals(List.of(link(2), link(4)), links.subList(0, 2));
+            assertEquals(5, links.size());
+        }
+    }
+
+
+    @Test
+    void discardsEverythingOnClose() throws IOException {
+        Frontier frontier = new Frontier(1, directory, false);
+        for (int i = 0; i < 5; i++) {
+            frontier.add(link(i), 0);
+        }
+        frontier.close();
+
+        assertEquals(0, frontier.size());
+        assertEquals(0, segments());
+        frontier.add(link(5), 0);
+        assertNull(frontier.poll());
+    }
+
+
+    private static Link link(int i) {
+        return Link.parse("http://example.com/" + i, false);
+    }
+
+
+    private static List<Link> drain(Frontier frontier) {
+        List<Link> links = new ArrayList<>();
+        for (Frontier.Entry entry = frontier.poll(); entry != null; entry = frontier.poll()) {
+            links.add(entry.link());
+        }
+        return links;
+    }
+
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+}
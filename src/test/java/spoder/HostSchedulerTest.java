@@ -0,0 +1,210 @@
+package spoder;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HostSchedulerTest {
+
+    private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private Frontier frontier;
+
+    @BeforeEach
+    void createFrontier() throws IOException {
+        frontier = new Frontier(1000, null, false);
+    }
+
+    @AfterEach
+    void closeFrontier() throws IOException {
+        frontier.close();
+    }
+
+
+    @Test
+    void limitsTheRequestsInFlightPerHost() {
+        HostScheduler scheduler = new HostScheduler(frontier, 100, 10);
+        add("a", 10);
+
+        List<Link> polled = pollAll(scheduler);
+        assertEquals(4, polled.size());
+
+        scheduler.completed(polled.get(0), null, LATENCY);
+        assertEquals(link("a", 4), scheduler.poll().link());
+        assertNull(scheduler.poll());
+    }
+
+
+    @Test
+    void letsTheHostsTakeTurns() {
+        HostScheduler scheduler = new HostScheduler(frontier, 100, 10);
+        add("a", 3);
+        add("b", 2);
+
+        assertEquals(List.of(link("a", 0), link("b", 0), link("a", 1), link("b", 1), link("a", 2)), pollAll(scheduler));
+    }
+
+
+    @Test
+    void skipsAheadToAnotherHostAndKeepsTheOrderOfTheSkippedLinks() {
+        HostScheduler scheduler = new HostScheduler(frontier, 2, 1);
+        add("a", 5);
+        add("b", 1);
+
+        assertEquals(link("a", 0), scheduler.poll().link());
+        //host a is busy and its queue is full, so the link of host b is found beyond it
+        assertEquals(link("b", 0), scheduler.poll().link());
+        assertNull(scheduler.poll());
+
+        for (int i = 1; i < 5; i++) {
+            scheduler.completed(link("a", i - 1), null, LATENCY);
+            assertEquals(link("a", i), scheduler.poll().link());
+        }
+    }
+
+
+    @Test
+    void increasesTheLimitWhileTheHostStaysFastAndHalvesItOnTimeouts() {
+        HostScheduler scheduler = new HostScheduler(frontier, 100, 10);
+        add("a", 20);
+
+        assertEquals(4, scheduler.getLimit("a"));
+        for (int i = 0; i < 5; i++) {
+            scheduler.completed(scheduler.poll().link(), null, LATENCY);
+        }
+        assertEquals(5, scheduler.getLimit("a"));
+
+        //slow responses do not increase the limit
+        for (int i = 0; i < 5; i++) {
+            scheduler.completed(scheduler.poll().link(), null, 10 * LATENCY);
+        }
+        assertEquals(5, scheduler.getLimit("a"));
+
+        scheduler.completed(scheduler.poll().link(), new SocketTimeoutException(), 0);
+        assertEquals(2, scheduler.getLimit("a"));
+    }
+
+
+    @Test
+    void neverExceedsTheMaximumPerHost() {
+        HostScheduler scheduler = new HostScheduler(frontier, 100, 2);
+        add("a", 10);
+
+        assertEquals(2, scheduler.getLimit("a"));
+        for (int i = 0; i < 5; i++) {
+            scheduler.completed(scheduler.poll().link(), null, LATENCY);
+        }
+        assertEquals(2, scheduler.getLimit("a"));
+        assertEquals(2, pollAll(scheduler).size());
+    }
+
+
+    @Test
+    void pausesAHostAfterConsecutiveFailures() {
+        HostScheduler scheduler = new HostScheduler(frontier, 100, 10);
+        add("a", 10);
+        pollAll(scheduler);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, scheduler.completed(link("a", i), new ConnectException(), 0), "failure " + i);
+            assertEquals(link("a", i + 4), scheduler.poll().link());
+        }
+        long pause = scheduler.completed(link("a", 4), new ConnectException(), 0);
+
+        assertTrue(pause > TimeUnit.SECONDS.toNanos(4), "paused for " + pause);
+        assertEquals(1, scheduler.getCircuitsOpened());
+        assertNull(scheduler.poll());
+
+        //other hosts are not held back
+        frontier.add(link("b", 0), 0);
+        assertEquals(link("b", 0), scheduler.poll().link());
+    }
+
+
+    @Test
+    void aSuccessResetsTheFailures() {
+        HostScheduler scheduler = new HostScheduler(frontier, 100, 10);
+        add("a", 20);
+        pollAll(scheduler);
+
+        for (int i = 0; i < 4; i++) {
+            scheduler.completed(link("a", i), new ConnectException(), 0);
+        }
+        pollAll(scheduler);
+        scheduler.completed(link("a", 4), null, LATENCY);
+
+        for (int i = 5; i < 8; i++) {
+            scheduler.completed(link("a", i), new ConnectException(), 0);
+        }
+        pollAll(scheduler);
+        assertEquals(0, scheduler.completed(link("a", 8), new ConnectException(), 0));
+        assertEquals(0, scheduler.getCircuitsOpened());
+    }
+
+
+    @Test
+    void pausesAHostAsLongAsItsRetryAfterAsks() {
+        HostScheduler scheduler = new HostScheduler(frontier, 100, 10);
+        add("a", 3);
+
+        Link link = scheduler.poll().link();
+        long pause = scheduler.completed(link, new HttpStatusException(429, link, "30"), 0);
+
+        assertTrue(pause > TimeUnit.SECONDS.toNanos(29) && pause <= TimeUnit.SECONDS.toNanos(30), "paused for " + pause);
+        assertEquals(2, scheduler.getLimit("a"));
+        assertNull(scheduler.poll());
+    }
+
+
+    @Test
+    void classifiesErrors() {
+        Link link = link("a", 0);
+
+        assertEquals(HostScheduler.Outcome.SUCCESS, HostScheduler.outcomeOf(null));
+        assertEquals(HostScheduler.Outcome.OVERLOADED, HostScheduler.outcomeOf(new HttpStatusException(429, link)));
+        assertEquals(HostScheduler.Outcome.OVERLOADED, HostScheduler.outcomeOf(new HttpStatusException(503, link)));
+        assertEquals(HostScheduler.Outcome.SERVER_ERROR, HostScheduler.outcomeOf(new HttpStatusException(500, link)));
+        assertEquals(HostScheduler.Outcome.FAILURE, HostScheduler.outcomeOf(new HttpStatusException(404, link)));
+        assertEquals(HostScheduler.Outcome.TIMEOUT, HostScheduler.outcomeOf(new SocketTimeoutException()));
+        assertEquals(HostScheduler.Outcome.UNREACHABLE, HostScheduler.outcomeOf(new HttpConnectTimeoutException("")));
+        assertEquals(HostScheduler.Outcome.UNREACHABLE, HostScheduler.outcomeOf(new UnknownHostException()));
+        assertEquals(HostScheduler.Outcome.UNREACHABLE,
+                HostScheduler.outcomeOf(new IOException(new ConnectException())));
+        assertEquals(HostScheduler.Outcome.FAILURE, HostScheduler.outcomeOf(new IOException()));
+    }
+
+
+    private void add(String host, int count) {
+        for (int i = 0; i < count; i++) {
+            frontier.add(link(host, i), 0);
+        }
+    }
+
+
+    private static Link link(String host, int i) {
+        return Link.parse("http://" + host + "/" + i, false);
+    }
+
+
+    private static List<Link> pollAll(HostScheduler scheduler) {
+        List<Link> links = new ArrayList<>();
+        for (Frontier.Entry entry = scheduler.poll(); entry != null; entry = scheduler.poll()) {
+            links.add(entry.link());
+        }
+        return links;
+    }
+
+}
@@ -0,0 +1,161 @@
+package spoder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LinkTest {
+
+    private static final Link BASE = Link.parse("http://a/b/c/d;p?q", false);
+
+
+    /**
+     * The examples of RFC 3986, section 5.4, without the fragments, which are removed.
+     */
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', quoteCharacter = '"', value = {
+            //normal examples
+            "g            | http://a/b/c/g",
+            "./g          | http://a/b/c/g",
+            "g/           | http://a/b/c/g/",
+            "/g           | http://a/g",
+            "//g          | http://g/",
+            "?y           | http://a/b/c/d;p?y",
+            "g?y          | http://a/b/c/g?y",
+            "#s           | http://a/b/c/d;p?q",
+            "g#s          | http://a/b/c/g",
+            "g?y#s        | http://a/b/c/g?y",
+            ";x           | http://a/b/c/;x",
+            "g;x          | http://a/b/c/g;x",
+            "\"\"         | http://a/b/c/d;p?q",
+            ".            | http://a/b/c/",
+            "./           | http://a/b/c/",
+            "..           | http://a/b/",
+            "../          | http://a/b/",
+            "../g         | http://a/b/g",
+            "../..        | http://a/",
+            "../../       | http://a/",
+            "../../g      | http://a/g",
+            //abnormal examples
+            "../../../g   | http://a/g",
+            "../../../../g| http://a/g",
+            "/./g         | http://a/g",
+            "/../g        | http://a/g",
+            "g.           | http://a/b/c/g.",
+            ".g           | http://a/b/c/.g",
+            "g..          | http://a/b/c/g..",
+            "..g          | http://a/b/c/..g",
+            "./../g       | http://a/b/g",
+            "./g/.        | http://a/b/c/g/",
+            "g/./h        | http://a/b/c/g/h",
+            "g/../h       | http://a/b/c/h",
+            "g;x=1/./y    | http://a/b/c/g;x=1/y",
+            "g;x=1/../y   | http://a/b/c/y",
+            "g?y/./x      | http://a/b/c/g?y/./x",
+            "g?y/../x     | http://a/b/c/g?y/../x"
+    })
+    void resolvesReferencesOfRfc3986(String reference, String expected) {
+        assertEquals(expected, Link.resolve(BASE, reference).toString());
+    }
+
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "HTTP://Example.COM/                | http://example.com/",
+            "http://example.com                 | http://example.com/",
+            "http://example.com:80/a            | http://example.com/a",
+            "https://example.com:443/a          | https://example.com/a",
+            "https://example.com:8443/a         | https://example.com:8443/a",
+            "http://example.com/%7euser/%2fx    | http://example.com/~user/%2Fx",
+            "http://example.com/a b?q=ä         | http://example.com/a%20b?q=%C3%A4",
+            "http://example.com/a/./b/../c      | http://example.com/a/c",
+            "http://example.com/a#top           | http://example.com/a",
+            "http://user:pw@example.com/        | http://user:pw@example.com/",
+            "http://bücher.example/             | http://xn--bcher-kva.example/",
+            "http://[::1]:8080/                 | http://[::1]:8080/",
+            "http://[FE80::1]/                  | http://[fe80::1]/",
+            "'  http://example.com/a  '         | http://example.com/a"
+    })
+    void canonicalizes(String url, String expected) {
+        assertEquals(expected, Link.parse(url, false).toString());
+    }
+
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "mailto:someone@example.com",
+            "javascript:void(0)",
+            "tel:+123",
+            "ftp://example.com/",
+            "http://example.com:99999/",
+            "http://example.com:8o/",
+            "http://[::1/",
+            "http://[]/",
+            "http://[::1%25eth0]/",
+            //without an authority, the strict parsing of RFC 3986 (section 5.4.2) does not make it relative
+            "http:g"
+    })
+    void rejectsInvalidReferences(String reference) {
+        assertNull(Link.resolve(BASE, reference));
+    }
+
+
+    @ParameterizedTest
+    @ValueSource(strings = {"http://", "https://", "HTTP://", "//", "http://user@", "http://:80", "http://?q", "http:///a"})
+    void rejectsEmptyHosts(String reference) {
+        assertNull(Link.resolve(BASE, reference));
+        assertThrows(IllegalArgumentException.class, () -> Link.parse(reference, false));
+    }
+
+
+    @Test
+    void rejectsRelativeUrlsWithoutBase() {
+        assertThrows(IllegalArgumentException.class, () -> Link.parse("/a/b", false));
+    }
+
+
+    @Test
+    void sortsQueryParametersByNameKeepingTheOrderOfEqualNames() {
+        Link base = Link.parse("http://example.com/", true);
+
+        assertEquals("http://example.com/s?a=2&b=1&b=0&c", Link.resolve(base, "/s?c&b=1&a=2&b=0").toString());
+        assertEquals("http://example.com/s?c&b=1&a=2&b=0",
+                Link.resolve(BASE, "http://example.com/s?c&b=1&a=2&b=0").toString());
+    }
+
+
+    @Test
+    void splitsIntoComponents() {
+        Link link = Link.parse("https://Example.com:8443/a/b?x=1#f", false);
+
+        assertEquals("https", link.getScheme());
+        assertEquals("example.com:8443", link.getHost());
+        assertEquals("example.com", link.getHostName());
+        assertEquals("/a/b", link.getPath());
+        assertEquals("x=1", link.getQuery());
+        assertNull(Link.parse("http://example.com/", false).getQuery());
+    }
+
+
+    @Test
+    void stripsTheBracketsAndThePortOfIpLiterals() {
+        assertEquals("::1", Link.parse("http://[::1]:8080/", false).getHostName());
+        assertEquals("::1", Link.parse("http://[::1]/", false).getHostName());
+    }
+
+
+    @Test
+    void equalSpellingsResultInEqualLinks() {
+        Link a = Link.parse("HTTP://example.com:80/a/../b/%7e", false);
+        Link b = Link.resolve(Link.parse("http://example.com/x/y", false), "/b/~");
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+    }
+
+}
@@ -0,0 +1,107 @@
+package spoder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class OutputSinkTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void writesTextLines() throws IOException {
+        Path file = directory.resolve("out.txt");
+
+        try (OutputSink sink = new OutputSink(file, CommandLineArguments.Format.TEXT, true)) {
+            sink.linkFound(Link.parse("http://example.com/a", false));
+            sink.emailFound("someone@example.com");
+            sink.phoneNumberFound("+1 234");
+        }
+
+        assertEquals(List.of("link\thttp://example.com/a", "email\tsomeone@example.com", "phone\t+1 234"),
+                Files.readAllLines(file));
+    }
+
+
+    @Test
+    void writesJsonLines() throws IOException {
+        Path file = directory.resolve("out.jsonl");
+
+        try (OutputSink sink = new OutputSink(file, CommandLineArguments.Format.JSONL, true)) {
+            sink.linkFound(Link.parse("http://example.com/a?q=\"x\"", false));
+            sink.emailFound("some\\one@example.com");
+        }
+
+        assertEquals(List.of(
+                "{\"type\":\"link\",\"value\":\"http://example.com/a?q=%22x%22\"}",
+                "{\"type\":\"email\",\"value\":\"some\\\\one@example.com\"}"), Files.readAllLines(file));
+    }
+
+
+    @Test
+    void skipsLinksIfNotIncludedAndCountsTheItems() throws IOException {
+        Path file = directory.resolve("out.txt");
+
+        OutputSink sink = new OutputSink(file, CommandLineArguments.Format.TEXT, false);
+        sink.linkFound(Link.parse("http://example.com/a", false));
+        sink.emailFound("a@example.com");
+        sink.emailFound("b@example.com");
+        sink.close();
+        sink.phoneNumberFound("+1 234");
+
+        assertEquals(List.of("email\ta@example.com", "email\tb@example.com"), Files.readAllLines(file));
+        assertEquals(0, sink.getLinks());
+        assertEquals(2, sink.getEmails());
+        assertEquals(0, sink.getPhoneNumbers());
+    }
+
+
+    @Test
+    void writesMoreItemsThanFitIntoTheQueueAndTheBuffer() throws IOException {
+        Path file = directory.resolve("out.txt");
+
+        try (OutputSink sink = new OutputSink(file, CommandLineArguments.Format.TEXT, false)) {
+            for (int i = 0; i < 50_000; i++) {
+                sink.emailFound(i + "@example.com");
+            }
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(50_000, lines.size());
+        assertEquals("email\t49999@example.com", lines.get(49_999));
+    }
+
+
+    @Test
+    void appendsToAnExistingFile() throws IOException {
+        Path file = directory.resolve("out.txt");
+        Files.writeString(file, "earlier\n");
+
+        try (OutputSink sink = new OutputSink(file, CommandLineArguments.Format.TEXT, false)) {
+            sink.emailFound("a@example.com");
+        }
+
+        assertEquals(List.of("earlier", "email\ta@example.com"), Files.readAllLines(file));
+    }
+
+
+    @Test
+    void escapesJsonStrings() {
+        String plain = "http://example.com/a";
+
+        assertSame(plain, OutputSink.escapeJson(plain));
+        assertEquals("a\\\"b\\\\c", OutputSink.escapeJson("a\"b\\c"));
+        assertEquals("\\n\\r\\t\\u0001\\u001f", OutputSink.escapeJson("\n\r\t\u0001\u001f"));
+        assertEquals("ä€😀", OutputSink.escapeJson("ä€😀"));
+    }
+
+}
@@ -0,0 +1,95 @@
+package spoder;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    private static final Link LINK = Link.parse("http://example.com/", false);
+
+
+    @Test
+    void retriesOnlyTransientErrors() {
+        RetryPolicy policy = new RetryPolicy(3, 100);
+
+        assertEquals(-1, policy.retryDelay(LINK, new HttpStatusException(404, LINK)));
+        assertEquals(-1, policy.retryDelay(LINK, new UnknownHostException()));
+        assertTrue(policy.retryDelay(LINK, new HttpStatusException(500, LINK)) >= 0);
+        assertTrue(policy.retryDelay(LINK, new HttpStatusException(429, LINK)) >= 0);
+        assertTrue(policy.retryDelay(LINK, new SocketTimeoutException()) >= 0);
+    }
+
+
+    @Test
+    void doesNotRetryIfDisabled() {
+        RetryPolicy policy = new RetryPolicy(0, 100);
+
+        assertEquals(-1, policy.retryDelay(LINK, new SocketTimeoutException()));
+        assertEquals(0, policy.getGivenUp());
+    }
+
+
+    @Test
+    void backsOffExponentiallyWithJitterAndGivesUpAfterTheMaximum() {
+        RetryPolicy policy = new RetryPolicy(4, 100);
+
+        for (int attempt = 1; attempt <= 4; attempt++) {
+            long delay = policy.retryDelay(LINK, new SocketTimeoutException());
+            long maximum = 100L << (attempt - 1);
+            assertTrue(delay >= maximum / 2 && delay <= maximum, "attempt " + attempt + " waits " + delay);
+        }
+
+        assertEquals(-1, policy.retryDelay(LINK, new SocketTimeoutException()));
+        assertEquals(4, policy.getRetries());
+        assertEquals(1, policy.getGivenUp());
+    }
+
+
+    @Test
+    void capsTheDelay() {
+        RetryPolicy policy = new RetryPolicy(100, 10_000);
+
+        for (int attempt = 1; attempt <= 30; attempt++) {
+            assertTrue(policy.retryDelay(LINK, new SocketTimeoutException()) <= 60_000);
+        }
+    }
+
+
+    @Test
+    void waitsAsLongAsRetryAfterAsks() {
+        RetryPolicy policy = new RetryPolicy(3, 100);
+
+        assertEquals(3000, policy.retryDelay(LINK, new HttpStatusException(503, LINK, "3")));
+        assertEquals(0, policy.retryDelay(LINK, new HttpStatusException(503, LINK, "Thu, 01 Jan 1970 00:00:00 GMT")));
+    }
+
+
+    @Test
+    void givesUpIfRetryAfterExceedsTheMaximumDelay() {
+        RetryPolicy policy = new RetryPolicy(3, 100);
+
+        assertEquals(-1, policy.retryDelay(LINK, new HttpStatusException(429, LINK, "3600")));
+        assertEquals(0, policy.getRetries());
+        assertEquals(1, policy.getGivenUp());
+    }
+
+
+    @Test
+    void countsTheAttemptsPerLinkUntilForgotten() {
+        RetryPolicy policy = new RetryPolicy(1, 100);
+        Link other = Link.parse("http://example.com/other", false);
+
+        assertTrue(policy.retryDelay(LINK, new SocketTimeoutException()) >= 0);
+        assertTrue(policy.retryDelay(other, new SocketTimeoutException()) >= 0);
+
+        policy.forget(LINK);
+        assertTrue(policy.retryDelay(LINK, new SocketTimeoutException()) >= 0);
+        assertEquals(-1, policy.retryDelay(other, new SocketTimeoutException()));
+    }
+
+}